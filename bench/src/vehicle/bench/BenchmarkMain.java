@@ -0,0 +1,46 @@
+package vehicle.bench;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the usual JMH options, but adds the GC profiler and writes the
+ * results to jmh-result.json unless the command line says otherwise, so that allocation
+ * rates are always reported and runs can be compared between releases.
+ */
+public final class BenchmarkMain {
+
+  private BenchmarkMain() {
+  }
+
+  /**
+   * Runs the benchmarks.
+   * @param args the JMH command line options.
+   * @throws Exception if the benchmarks cannot be run.
+   */
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions command = new CommandLineOptions(args);
+    if (command.shouldHelp() || command.shouldList() || command.shouldListWithParams()
+            || command.shouldListProfilers() || command.shouldListResultFormats()) {
+      Main.main(args);
+      return;
+    }
+
+    ChainedOptionsBuilder options = new OptionsBuilder().parent(command);
+    if (command.getProfilers().isEmpty()) {
+      options.addProfiler(GCProfiler.class);
+    }
+    if (!command.getResultFormat().hasValue()) {
+      options.resultFormat(ResultFormatType.JSON);
+    }
+    if (!command.getResult().hasValue()) {
+      options.result("jmh-result.json");
+    }
+    new Runner(options.build()).run();
+  }
+}
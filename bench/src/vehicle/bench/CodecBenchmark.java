@@ -0,0 +1,100 @@
+package vehicle.bench;
+
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import vehicle.GearProfile;
+import vehicle.RegularManualTransmission;
+import vehicle.ShiftPlanner;
+import vehicle.TransitionTable;
+import vehicle.TransmissionCodec;
+
+/**
+ * Measures encoding and decoding a checkpoint of many transmissions with
+ * {@link TransmissionCodec}, both as transmissions and as packed states. The checkpoint
+ * takes 2 bytes per transmission, so a million transmissions are 2 MB.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CodecBenchmark {
+
+  @Param({"1000000"})
+  public int size;
+
+  private TransmissionCodec codec;
+  private RegularManualTransmission[] cars;
+  private RegularManualTransmission[] copies;
+  private long[] states;
+  private ByteBuffer buffer;
+
+  @Setup
+  public void setup() {
+    GearProfile profile = GearProfile.of(new int[]{0, 5, 15, 25, 35},
+            new int[]{10, 20, 30, 40, 50});
+    TransitionTable table = profile.getTransitions();
+    codec = new TransmissionCodec(profile);
+    cars = new RegularManualTransmission[size];
+    copies = new RegularManualTransmission[size];
+    states = new long[size];
+
+    SplittableRandom random = new SplittableRandom(42);
+    byte[] action = new byte[1];
+    for (int i = 0; i < size; i++) {
+      cars[i] = new RegularManualTransmission(profile);
+      long state = TransitionTable.state(1, 0, 0);
+      for (int step = 0; step < 64; step++) {
+        action[0] = (byte) random.nextInt(TransitionTable.ACTIONS);
+        ShiftPlanner.execute(cars[i], action);
+        state = table.next(state, action[0]);
+      }
+      states[i] = state;
+    }
+    buffer = ByteBuffer.allocateDirect(size * codec.getRecordBytes());
+    codec.encode(cars, 0, size, buffer);
+  }
+
+  @Benchmark
+  public ByteBuffer encode() {
+    buffer.clear();
+    codec.encode(cars, 0, size, buffer);
+    return buffer;
+  }
+
+  @Benchmark
+  public RegularManualTransmission[] decode() {
+    buffer.rewind();
+    codec.decode(buffer, copies, 0, size);
+    return copies;
+  }
+
+  @Benchmark
+  public ByteBuffer encodeStates() {
+    buffer.clear();
+    codec.encodeStates(states, 0, size, buffer);
+    return buffer;
+  }
+
+  @Benchmark
+  public long[] decodeStates() {
+    buffer.rewind();
+    codec.decodeStates(buffer, states, 0, size);
+    return states;
+  }
+}
@@ -0,0 +1,93 @@
+package vehicle.bench;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import vehicle.ConcurrentManualTransmission;
+import vehicle.ManualTransmission;
+import vehicle.RegularManualTransmission;
+import vehicle.SynchronizedManualTransmission;
+
+/**
+ * Compares the lock-free transmission with a synchronized one when several drivers change
+ * the same transmission while another thread reads it.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentTransmissionBenchmark {
+
+  /**
+   * One transmission shared by every thread of a group.
+   */
+  @State(Scope.Group)
+  public static class Shared {
+    ConcurrentManualTransmission lockFree;
+    ManualTransmission locked;
+
+    @Setup
+    public void setup() {
+      lockFree = new ConcurrentManualTransmission(0, 10, 5, 20, 15, 30, 25, 40, 35, 50);
+      locked = new SynchronizedManualTransmission(
+              new RegularManualTransmission(0, 10, 5, 20, 15, 30, 25, 40, 35, 50));
+    }
+  }
+
+  private static ManualTransmission drive(ManualTransmission car) {
+    switch (ThreadLocalRandom.current().nextInt(4)) {
+      case 0:
+        return car.increaseSpeed();
+      case 1:
+        return car.decreaseSpeed();
+      case 2:
+        return car.increaseGear();
+      default:
+        return car.decreaseGear();
+    }
+  }
+
+  @Benchmark
+  @Group("lockFree")
+  @GroupThreads(3)
+  public ManualTransmission lockFreeDrive(Shared shared) {
+    return drive(shared.lockFree);
+  }
+
+  @Benchmark
+  @Group("lockFree")
+  @GroupThreads(1)
+  public long lockFreeRead(Shared shared) {
+    return shared.lockFree.getState();
+  }
+
+  @Benchmark
+  @Group("locked")
+  @GroupThreads(3)
+  public ManualTransmission lockedDrive(Shared shared) {
+    return drive(shared.locked);
+  }
+
+  @Benchmark
+  @Group("locked")
+  @GroupThreads(1)
+  public int lockedRead(Shared shared) {
+    synchronized (shared.locked) {
+      return shared.locked.getGear() + shared.locked.getSpeed();
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package vehicle.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import vehicle.ManualTransmission;
+import vehicle.RegularManualTransmission;
+
+/**
+ * Measures how long it takes to construct a transmission, for profiles of growing top speeds.
+ * Profiles are cached, so constructing one with ranges seen before only looks its profile up,
+ * on one thread and on several at once. The cold case goes through more distinct ranges than
+ * the cache holds, so every construction also checks its speed ranges and builds its
+ * transition table.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConstructionBenchmark {
+
+  @Param({"50", "500", "5000"})
+  int maxSpeed;
+
+  // more sets of ranges than the cache of profiles holds
+  private static final int DISTINCT = 1024;
+
+  private int[] ranges;
+  private int[][] distinct;
+  private int next;
+
+  @Setup
+  public void setup() {
+    // the same shape as 0-10, 5-20, 15-30, 25-40, 35-50, scaled to the top speed
+    int[] shape = {0, 10, 5, 20, 15, 30, 25, 40, 35, 50};
+    ranges = new int[shape.length];
+    for (int i = 0; i < shape.length; i++) {
+      ranges[i] = shape[i] * maxSpeed / 50;
+    }
+    // the same ranges with a top speed raised by up to the number of sets, so that its
+    // table is about as big
+    distinct = new int[DISTINCT][];
+    for (int i = 0; i < DISTINCT; i++) {
+      distinct[i] = ranges.clone();
+      distinct[i][9] += i + 1;
+    }
+  }
+
+  private static ManualTransmission construct(int[] r) {
+    return new RegularManualTransmission(r[0], r[1], r[2], r[3], r[4], r[5], r[6], r[7],
+            r[8], r[9]);
+  }
+
+  @Benchmark
+  public ManualTransmission construct() {
+    return construct(ranges);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public ManualTransmission constructOnFourThreads() {
+    return construct(ranges);
+  }
+
+  @Benchmark
+  public ManualTransmission constructCold() {
+    int[] r = distinct[next];
+    next = (next + 1) % DISTINCT;
+    return construct(r);
+  }
+}
@@ -0,0 +1,77 @@
+package vehicle.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import vehicle.ManualTransmission;
+import vehicle.RegularManualTransmission;
+import vehicle.TransmissionStatus;
+
+/**
+ * Measures a full drive from a stop to the top speed in the top gear and back to a stop,
+ * shifting whenever the transmission refuses to change the speed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DriveCycleBenchmark {
+
+  private ManualTransmission car;
+
+  @Setup
+  public void setup() {
+    car = new RegularManualTransmission(0, 10, 5, 20, 15, 30, 25, 40, 35, 50);
+  }
+
+  @Benchmark
+  public int singleSteps() {
+    do {
+      car.increaseSpeed();
+      if (car.getStatusCode() == TransmissionStatus.NO_INCREASE_SPEED) {
+        car.increaseGear();
+      }
+    } while (car.getStatusCode() != TransmissionStatus.NO_INCREASE_SPEED_MAX);
+
+    do {
+      car.decreaseSpeed();
+      if (car.getStatusCode() == TransmissionStatus.NO_DECREASE_SPEED) {
+        car.decreaseGear();
+      }
+    } while (car.getStatusCode() != TransmissionStatus.NO_DECREASE_SPEED_MIN);
+    return car.getSpeed();
+  }
+
+  @Benchmark
+  public int bulkSteps() {
+    do {
+      car.increaseSpeed(Integer.MAX_VALUE);
+      car.increaseGear();
+    } while (car.getStatusCode() != TransmissionStatus.NO_INCREASE_GEAR_MAX);
+    car.increaseSpeed(Integer.MAX_VALUE);
+
+    do {
+      car.decreaseSpeed(Integer.MAX_VALUE);
+      car.decreaseGear();
+    } while (car.getStatusCode() != TransmissionStatus.NO_DECREASE_GEAR_MIN);
+    car.decreaseSpeed(Integer.MAX_VALUE);
+    return car.getSpeed();
+  }
+
+  @Benchmark
+  public long driveTo() {
+    return car.driveTo(50).getSteps() + car.driveTo(0).getSteps();
+  }
+}
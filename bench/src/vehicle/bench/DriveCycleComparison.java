@@ -0,0 +1,63 @@
+package vehicle.bench;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import vehicle.ConcurrentManualTransmission;
+import vehicle.GearProfile;
+import vehicle.ImmutableManualTransmission;
+import vehicle.ManualTransmission;
+import vehicle.RegularManualTransmission;
+import vehicle.SynchronizedManualTransmission;
+import vehicle.TransitionTable;
+import vehicle.cycle.DriveCycleGenerator;
+import vehicle.cycle.DriveCycleRunner;
+import vehicle.cycle.ReplayReport;
+
+/**
+ * Replays one generated drive cycle of each shape against every implementation and prints
+ * the throughput, the allocation per command and the statuses the commands ended in:
+ *
+ * <pre>
+ *   java -cp target/benchmarks.jar vehicle.bench.DriveCycleComparison [seed]
+ * </pre>
+ */
+public final class DriveCycleComparison {
+
+  private static final int COMMANDS = 100000;
+  private static final int REPETITIONS = 100;
+
+  private DriveCycleComparison() {
+  }
+
+  public static void main(String[] args) {
+    long seed = args.length > 0 ? Long.parseLong(args[0]) : 5004;
+    GearProfile profile = GearProfile.of(new int[]{0, 5, 15, 25, 35},
+            new int[]{10, 20, 30, 40, 50});
+    TransitionTable table = profile.getTransitions();
+    ManualTransmission start = ImmutableManualTransmission.start(table);
+    Map<String, Supplier<ManualTransmission>> implementations = new LinkedHashMap<>();
+    implementations.put("regular", () -> new RegularManualTransmission(profile));
+    implementations.put("concurrent", () -> new ConcurrentManualTransmission(table));
+    implementations.put("immutable", () -> start);
+    implementations.put("synchronized",
+            () -> new SynchronizedManualTransmission(new RegularManualTransmission(profile)));
+
+    DriveCycleGenerator generator = new DriveCycleGenerator(profile, seed);
+    for (DriveCycleGenerator.Shape shape : DriveCycleGenerator.Shape.values()) {
+      byte[] cycle = generator.generate(shape, COMMANDS);
+      System.out.println(shape);
+      for (Map.Entry<String, Supplier<ManualTransmission>> entry : implementations.entrySet()) {
+        // a first run lets the JIT compile the loop before anything is measured
+        DriveCycleRunner.run(entry.getValue(), cycle, REPETITIONS);
+        ReplayReport report = DriveCycleRunner.run(entry.getValue(), cycle, REPETITIONS);
+        System.out.printf("  %-12s %14.0f ops/s %8.3f B/op%n", entry.getKey(),
+                report.getOperationsPerSecond(), report.getBytesPerOperation());
+      }
+      // every implementation ends in the same statuses, so they are printed once
+      System.out.println("  statuses " + DriveCycleRunner.run(implementations.get("regular"),
+              cycle, 1).getStatusCounts());
+    }
+  }
+}
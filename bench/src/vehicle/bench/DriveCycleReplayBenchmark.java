@@ -0,0 +1,100 @@
+package vehicle.bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import vehicle.ConcurrentManualTransmission;
+import vehicle.GearProfile;
+import vehicle.ImmutableManualTransmission;
+import vehicle.ManualTransmission;
+import vehicle.RegularManualTransmission;
+import vehicle.SynchronizedManualTransmission;
+import vehicle.TransitionTable;
+import vehicle.cycle.DriveCycleGenerator;
+
+/**
+ * Measures the throughput of every implementation on the same generated drive cycles, one
+ * of each shape, so that they are compared on the same workloads. The GC profiler gives the
+ * allocation per command, and {@code DriveCycleRunner} the statuses the cycles go through.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DriveCycleReplayBenchmark {
+
+  private static final int COMMANDS = 8192;
+
+  @Param({"RANDOM", "URBAN", "HIGHWAY", "AGGRESSIVE"})
+  String shape;
+
+  @Param({"regular", "concurrent", "immutable", "synchronized"})
+  String implementation;
+
+  private Supplier<ManualTransmission> factory;
+  private byte[] cycle;
+
+  @Setup
+  public void setup() {
+    GearProfile profile = GearProfile.of(new int[]{0, 5, 15, 25, 35},
+            new int[]{10, 20, 30, 40, 50});
+    TransitionTable table = profile.getTransitions();
+    switch (implementation) {
+      case "concurrent":
+        factory = () -> new ConcurrentManualTransmission(table);
+        break;
+      case "immutable":
+        // every state is built once here, so the replay only follows links
+        ManualTransmission start = ImmutableManualTransmission.start(table);
+        factory = () -> start;
+        break;
+      case "synchronized":
+        factory = () -> new SynchronizedManualTransmission(new RegularManualTransmission(profile));
+        break;
+      default:
+        factory = () -> new RegularManualTransmission(profile);
+        break;
+    }
+    cycle = new DriveCycleGenerator(profile, 5004).generate(
+            DriveCycleGenerator.Shape.valueOf(shape), COMMANDS);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(COMMANDS)
+  public int replay() {
+    // the cycle starts from a stop, so every replay gets a new transmission
+    ManualTransmission c = factory.get();
+    for (byte command : cycle) {
+      switch (command) {
+        case TransitionTable.INCREASE_SPEED:
+          c = c.increaseSpeed();
+          break;
+        case TransitionTable.DECREASE_SPEED:
+          c = c.decreaseSpeed();
+          break;
+        case TransitionTable.INCREASE_GEAR:
+          c = c.increaseGear();
+          break;
+        default:
+          c = c.decreaseGear();
+          break;
+      }
+    }
+    return c.getSpeed();
+  }
+}
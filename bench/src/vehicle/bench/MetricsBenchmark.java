@@ -0,0 +1,55 @@
+package vehicle.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import vehicle.ManualTransmission;
+import vehicle.RegularManualTransmission;
+import vehicle.metrics.TransmissionMetrics;
+
+/**
+ * Measures what counting and timing calls costs, as a pair of actions that undo each other
+ * on a transmission with and without metrics.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MetricsBenchmark {
+
+  @Param({"none", "off", "counted", "timed"})
+  public String metrics;
+
+  private ManualTransmission cruising;
+
+  @Setup
+  public void setup() {
+    ManualTransmission car = new RegularManualTransmission(0, 10, 5, 20, 15, 30, 25, 40, 35,
+            50);
+    if (!metrics.equals("none")) {
+      TransmissionMetrics counters = new TransmissionMetrics();
+      counters.setEnabled(!metrics.equals("off"));
+      counters.setTimed(metrics.equals("timed"));
+      car = counters.wrap(car);
+    }
+    cruising = car.increaseSpeed(10).increaseGear().increaseSpeed(2);
+  }
+
+  @Benchmark
+  public ManualTransmission increaseThenDecreaseSpeed() {
+    return cruising.increaseSpeed().decreaseSpeed();
+  }
+}
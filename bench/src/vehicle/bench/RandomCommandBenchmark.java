@@ -0,0 +1,82 @@
+package vehicle.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import vehicle.ConcurrentManualTransmission;
+import vehicle.ManualTransmission;
+import vehicle.RegularManualTransmission;
+
+/**
+ * Measures a seeded random stream of the four actions, so that the branches taken vary from
+ * call to call the way they do for a real driver.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RandomCommandBenchmark {
+
+  private static final int COMMANDS = 4096;
+
+  @Param({"regular", "concurrent"})
+  String implementation;
+
+  private ManualTransmission car;
+  private byte[] commands;
+
+  @Setup
+  public void setup() {
+    if (implementation.equals("concurrent")) {
+      car = new ConcurrentManualTransmission(0, 10, 5, 20, 15, 30, 25, 40, 35, 50);
+    } else {
+      car = new RegularManualTransmission(0, 10, 5, 20, 15, 30, 25, 40, 35, 50);
+    }
+
+    // speed changes are three times as common as gear changes
+    Random random = new Random(5004);
+    commands = new byte[COMMANDS];
+    for (int i = 0; i < COMMANDS; i++) {
+      int roll = random.nextInt(8);
+      commands[i] = (byte) (roll < 3 ? 0 : roll < 6 ? 1 : roll - 4);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(COMMANDS)
+  public int mixedCommands() {
+    ManualTransmission c = car;
+    for (byte command : commands) {
+      switch (command) {
+        case 0:
+          c.increaseSpeed();
+          break;
+        case 1:
+          c.decreaseSpeed();
+          break;
+        case 2:
+          c.increaseGear();
+          break;
+        default:
+          c.decreaseGear();
+          break;
+      }
+    }
+    return c.getSpeed();
+  }
+}
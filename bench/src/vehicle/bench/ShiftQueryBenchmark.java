@@ -0,0 +1,89 @@
+package vehicle.bench;
+
+import java.util.BitSet;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import vehicle.GearProfile;
+import vehicle.TransitionTable;
+import vehicle.fleet.TransmissionFleet;
+
+/**
+ * Measures the query of which transmissions of a fleet may shift up, with the Vector API,
+ * with the scalar checks it falls back to, and with one table lookup per transmission, for
+ * a car with 5 gears and a truck with 18.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class ShiftQueryBenchmark {
+
+  @Param({"car", "truck"})
+  public String profile;
+
+  @Param({"1000000"})
+  public int size;
+
+  private TransmissionFleet fleet;
+
+  @Setup
+  public void setup() {
+    int gears = profile.equals("car") ? 5 : 18;
+    int[] lows = new int[gears];
+    int[] highs = new int[gears];
+    for (int i = 0; i < gears; i++) {
+      lows[i] = i * 10;
+      highs[i] = i * 10 + 15;
+    }
+    fleet = new TransmissionFleet(GearProfile.of(lows, highs).getTransitions(), size);
+
+    SplittableRandom random = new SplittableRandom(42);
+    for (int pass = 0; pass < 64; pass++) {
+      for (int id = 0; id < size; id++) {
+        fleet.apply(id, random.nextInt(TransitionTable.ACTIONS));
+      }
+    }
+  }
+
+  @Benchmark
+  @Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+  public BitSet vector() {
+    return fleet.mayIncreaseGear();
+  }
+
+  @Benchmark
+  @Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector",
+          "-Dvehicle.fleet.vector=false"})
+  public BitSet scalar() {
+    return fleet.mayIncreaseGear();
+  }
+
+  @Benchmark
+  @Fork(1)
+  public BitSet perTransmission() {
+    TransitionTable table = fleet.getProfile();
+    BitSet ids = new BitSet(size);
+    for (int id = 0; id < size; id++) {
+      int entry = table.entry(fleet.getGear(id), fleet.getSpeed(id),
+              TransitionTable.INCREASE_GEAR);
+      if (TransitionTable.gearChange(entry) == 1) {
+        ids.set(id);
+      }
+    }
+    return ids;
+  }
+}
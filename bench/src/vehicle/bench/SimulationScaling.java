@@ -0,0 +1,58 @@
+package vehicle.bench;
+
+import vehicle.GearProfile;
+import vehicle.ManualTransmission;
+import vehicle.RegularManualTransmission;
+import vehicle.sim.DriveSimulation;
+import vehicle.sim.Driver;
+import vehicle.sim.Drivers;
+import vehicle.sim.SimulationReport;
+
+/**
+ * Runs the drive simulation for 1k to 1M vehicles and prints the throughput and the tail
+ * latency of the drivers at each size. Every vehicle gets a commuter or a random driver and
+ * is simulated for ten seconds of the simulated clock:
+ *
+ * <pre>
+ *   java -cp target/benchmarks.jar vehicle.bench.SimulationScaling [max vehicles]
+ * </pre>
+ */
+public final class SimulationScaling {
+
+  private static final long DURATION = 10000;
+
+  private SimulationScaling() {
+  }
+
+  public static void main(String[] args) {
+    int max = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+    GearProfile profile = GearProfile.of(new int[]{0, 5, 15, 25, 35},
+            new int[]{10, 20, 30, 40, 50});
+    DriveSimulation simulation = new DriveSimulation();
+
+    // a first run lets the JIT compile the loop before anything is measured
+    simulation.run(cars(profile, 10000), SimulationScaling::driver, DURATION);
+
+    System.out.printf("%10s %12s %14s %10s %10s %10s%n", "vehicles", "operations", "ops/s",
+            "p50 ns", "p99 ns", "p99.9 ns");
+    for (int vehicles = 1000; vehicles <= max; vehicles *= 10) {
+      SimulationReport report = simulation.run(cars(profile, vehicles),
+              SimulationScaling::driver, DURATION);
+      System.out.printf("%10d %12d %14.0f %10d %10d %10d%n", vehicles, report.getOperations(),
+              report.getOperationsPerSecond(), report.getLatency().getPercentile(50),
+              report.getLatency().getPercentile(99), report.getLatency().getPercentile(99.9));
+    }
+  }
+
+  private static ManualTransmission[] cars(GearProfile profile, int count) {
+    ManualTransmission[] cars = new ManualTransmission[count];
+    for (int id = 0; id < count; id++) {
+      cars[id] = new RegularManualTransmission(profile);
+    }
+    return cars;
+  }
+
+  private static Driver driver(int id) {
+    return id % 2 == 0 ? Drivers.commuter(20 + id % 30, 3000, 100) : Drivers.random(id, 500);
+  }
+}
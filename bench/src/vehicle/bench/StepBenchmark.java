@@ -0,0 +1,81 @@
+package vehicle.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import vehicle.ManualTransmission;
+import vehicle.RegularManualTransmission;
+
+/**
+ * Measures single actions on a transmission. A refused action leaves the state as it is,
+ * so the refused cases measure one call each. The accepted cases are measured as a pair
+ * of an action and the action that undoes it, so that every call starts from the same state.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StepBenchmark {
+
+  private ManualTransmission topOfFirstGear;
+  private ManualTransmission stopped;
+  private ManualTransmission slowInFirstGear;
+  private ManualTransmission cruising;
+  // in gear 3 at a speed that gear 2 also covers, so it can shift down and back up
+  private ManualTransmission shiftable;
+
+  private static ManualTransmission car() {
+    return new RegularManualTransmission(0, 10, 5, 20, 15, 30, 25, 40, 35, 50);
+  }
+
+  @Setup
+  public void setup() {
+    topOfFirstGear = car().increaseSpeed(10);
+    stopped = car();
+    slowInFirstGear = car().increaseSpeed(4);
+    cruising = car().increaseSpeed(10).increaseGear().increaseSpeed(2);
+    shiftable = car().increaseSpeed(10).increaseGear().increaseSpeed(8).increaseGear();
+  }
+
+  @Benchmark
+  public ManualTransmission increaseSpeedRefused() {
+    return topOfFirstGear.increaseSpeed();
+  }
+
+  @Benchmark
+  public ManualTransmission decreaseSpeedRefused() {
+    return stopped.decreaseSpeed();
+  }
+
+  @Benchmark
+  public ManualTransmission increaseGearRefused() {
+    return slowInFirstGear.increaseGear();
+  }
+
+  @Benchmark
+  public ManualTransmission decreaseGearRefused() {
+    return stopped.decreaseGear();
+  }
+
+  @Benchmark
+  public ManualTransmission increaseThenDecreaseSpeed() {
+    return cruising.increaseSpeed().decreaseSpeed();
+  }
+
+  @Benchmark
+  public ManualTransmission decreaseThenIncreaseGear() {
+    return shiftable.decreaseGear().increaseGear();
+  }
+}
@@ -0,0 +1,216 @@
+package vehicle;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Represents a manual transmission that can be used by many threads at once without locks.
+ * The gear, speed and status are packed into a single long, and every action replaces it
+ * with a compare-and-set, so a reader always sees a gear, speed and status that belong to
+ * the same state. The transitions follow the same rules as {@link RegularManualTransmission}.
+ */
+public class ConcurrentManualTransmission implements ManualTransmission {
+
+  private final TransitionTable transitions;
+  private final AtomicLong state;
+
+  /**
+   * Constructs a Concurrent Manual Transmission with the higher and lower bound
+   * overlaying speed ranges for the gears.
+   *
+   * @param l1 lower speed bound for gear 1.
+   * @param h1 higher speed bound for gear 1.
+   * @param l2 lower speed bound for gear 2.
+   * @param h2 higher speed bound for gear 2.
+   * @param l3 lower speed bound for gear 3.
+   * @param h3 higher speed bound for gear 3.
+   * @param l4 lower speed bound for gear 4.
+   * @param h4 higher speed bound for gear 4.
+   * @param l5 lower speed bound for gear 5.
+   * @param h5 higher speed bound for gear 5.
+   * @throws IllegalArgumentException When the speed ranges are not valid, as for
+   *                                  {@link RegularManualTransmission}.
+   */
+  public ConcurrentManualTransmission(int l1, int h1, int l2, int h2, int l3,
+                                      int h3, int l4, int h4, int l5, int h5)
+          throws IllegalArgumentException {
+    this(GearProfile.of(new int[]{l1, l2, l3, l4, l5}, new int[]{h1, h2, h3, h4, h5})
+            .getTransitions());
+  }
+
+  /**
+   * Constructs a Concurrent Manual Transmission in gear 1 with speed 0 that uses the given
+   * transition table.
+   *
+   * @param transitions the transition table of the speed ranges of the gears.
+   */
+  public ConcurrentManualTransmission(TransitionTable transitions) {
+    this.transitions = transitions;
+    this.state = new AtomicLong(TransitionTable.state(1, 0,
+            TransmissionStatus.OK_EVERYTHING_IS_OK.ordinal()));
+  }
+
+  /**
+   * Gets the gear, speed and status of this transmission as one value, packed as by
+   * {@link TransitionTable#state(int, int, int)} and read with {@link #gearOf(long)},
+   * {@link #speedOf(long)} and {@link #statusOf(long)}. Unlike calling the getters one by
+   * one, the three always come from the same state.
+   *
+   * @return the packed state of this transmission.
+   */
+  public long getState() {
+    return state.get();
+  }
+
+  /**
+   * Gets the gear of a packed state.
+   * @param state the packed state.
+   * @return the gear of that state.
+   */
+  public static int gearOf(long state) {
+    return TransitionTable.gearOf(state);
+  }
+
+  /**
+   * Gets the speed of a packed state.
+   * @param state the packed state.
+   * @return the speed of that state.
+   */
+  public static int speedOf(long state) {
+    return TransitionTable.speedOf(state);
+  }
+
+  /**
+   * Gets the status of a packed state.
+   * @param state the packed state.
+   * @return the status of that state.
+   */
+  public static TransmissionStatus statusOf(long state) {
+    return TransmissionStatus.of(TransitionTable.statusOf(state));
+  }
+
+  private ManualTransmission apply(int action, int times) {
+    long current;
+    long next;
+    do {
+      current = state.get();
+      next = transitions.repeat(current, action, times);
+    } while (next != current && !state.compareAndSet(current, next));
+    return this;
+  }
+
+  @Override
+  public String getStatus() {
+    return getStatusCode().getMessage();
+  }
+
+  @Override
+  public TransmissionStatus getStatusCode() {
+    return statusOf(state.get());
+  }
+
+  @Override
+  public int getSpeed() {
+    return speedOf(state.get());
+  }
+
+  @Override
+  public int getGear() {
+    return gearOf(state.get());
+  }
+
+  @Override
+  public ManualTransmission increaseSpeed() {
+    return apply(TransitionTable.INCREASE_SPEED, 1);
+  }
+
+  @Override
+  public ManualTransmission decreaseSpeed() {
+    return apply(TransitionTable.DECREASE_SPEED, 1);
+  }
+
+  @Override
+  public ManualTransmission increaseGear() {
+    return apply(TransitionTable.INCREASE_GEAR, 1);
+  }
+
+  @Override
+  public ManualTransmission decreaseGear() {
+    return apply(TransitionTable.DECREASE_GEAR, 1);
+  }
+
+  /**
+   * Increases the speed by the given amount as one atomic change.
+   * {@inheritDoc}
+   */
+  @Override
+  public ManualTransmission increaseSpeed(int delta) throws IllegalArgumentException {
+    if (delta < 0) {
+      throw new IllegalArgumentException("speed change cannot be negative");
+    }
+    return apply(TransitionTable.INCREASE_SPEED, delta);
+  }
+
+  /**
+   * Decreases the speed by the given amount as one atomic change.
+   * {@inheritDoc}
+   */
+  @Override
+  public ManualTransmission decreaseSpeed(int delta) throws IllegalArgumentException {
+    if (delta < 0) {
+      throw new IllegalArgumentException("speed change cannot be negative");
+    }
+    return apply(TransitionTable.DECREASE_SPEED, delta);
+  }
+
+  /**
+   * Moves the speed towards the given speed as one atomic change.
+   * {@inheritDoc}
+   */
+  @Override
+  public ManualTransmission setSpeedClamped(int speed) {
+    long current;
+    long next;
+    do {
+      current = state.get();
+      next = transitions.moveTo(current, speed);
+    } while (next != current && !state.compareAndSet(current, next));
+    return this;
+  }
+
+  /**
+   * Drives to the given speed as one atomic change, following the transition table from
+   * the current state without calling any of the single actions.
+   * {@inheritDoc}
+   */
+  @Override
+  public DriveResult driveTo(int targetSpeed) {
+    long current;
+    long next;
+    long steps;
+    do {
+      current = state.get();
+      next = current;
+      steps = 0;
+      while (TransitionTable.speedOf(next) != targetSpeed) {
+        boolean up = TransitionTable.speedOf(next) < targetSpeed;
+        long before = next;
+        next = transitions.next(next, up ? TransitionTable.INCREASE_SPEED
+                : TransitionTable.DECREASE_SPEED);
+        steps++;
+        if (TransitionTable.speedOf(next) == TransitionTable.speedOf(before)) {
+          if (TransitionTable.statusOf(next) != (up ? TransmissionStatus.NO_INCREASE_SPEED
+                  : TransmissionStatus.NO_DECREASE_SPEED).ordinal()) {
+            break;
+          }
+          next = transitions.next(next, up ? TransitionTable.INCREASE_GEAR
+                  : TransitionTable.DECREASE_GEAR);
+          steps++;
+          if (TransitionTable.gearOf(next) == TransitionTable.gearOf(before)) {
+            break;
+          }
+        }
+      }
+    } while (next != current && !state.compareAndSet(current, next));
+    return new DriveResult(this, TransmissionState.of(next), steps);
+  }
+}
@@ -0,0 +1,57 @@
+package vehicle;
+
+import java.util.Objects;
+
+/**
+ * Represents the outcome of {@link ManualTransmission#driveTo(int)}: the transmission after
+ * the drive, the state it ended in, and how many single actions the drive took.
+ */
+public final class DriveResult {
+
+  private final ManualTransmission transmission;
+  private final TransmissionState state;
+  private final long steps;
+
+  /**
+   * Constructs the outcome of a drive.
+   *
+   * @param transmission the transmission after the drive.
+   * @param state the state the drive ended in.
+   * @param steps the number of single actions of the drive.
+   */
+  public DriveResult(ManualTransmission transmission, TransmissionState state, long steps) {
+    this.transmission = Objects.requireNonNull(transmission);
+    this.state = Objects.requireNonNull(state);
+    this.steps = steps;
+  }
+
+  /**
+   * Gets the transmission after the drive, which is a new object for transmissions that
+   * never change.
+   * @return the transmission.
+   */
+  public ManualTransmission getTransmission() {
+    return transmission;
+  }
+
+  /**
+   * Gets the gear, speed and status the drive ended in.
+   * @return the final state.
+   */
+  public TransmissionState getState() {
+    return state;
+  }
+
+  /**
+   * Gets the number of single actions the drive took, counting the refused ones.
+   * @return the number of steps.
+   */
+  public long getSteps() {
+    return steps;
+  }
+
+  @Override
+  public String toString() {
+    return state + " after " + steps + " steps";
+  }
+}
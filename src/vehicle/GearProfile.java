@@ -0,0 +1,321 @@
+package vehicle;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Represents the speed ranges of the gears of a manual transmission, for any number of gears.
+ * Gear n goes from {@link #getLowerSpeed(int)} to {@link #getHigherSpeed(int)} of n, and the
+ * ranges of adjacent gears overlap. A profile never changes once it is built.
+ *
+ * <p>Profiles are canonical: {@link #of(int[], int[])} returns the same instance for the same
+ * ranges, so each set of ranges is validated, and its {@link TransitionTable} built, only once
+ * and then shared by every transmission that uses it. At most 256 profiles are kept. A
+ * profile found in the cache is returned without taking a lock, and only a new one takes a
+ * lock to make room, dropping a profile that was not asked for since the last time the
+ * clock went past it. A dropped profile is validated and built again when next asked for.
+ */
+public final class GearProfile {
+
+  private static final int MAX_CACHED = 256;
+  private static final Map<Key, GearProfile> CACHE = new ConcurrentHashMap<>();
+  // the cached profiles in the order the clock goes through them, only used while holding
+  // its lock, which is only taken to add a profile
+  private static final ArrayDeque<GearProfile> CLOCK = new ArrayDeque<>();
+  private static final LongAdder HITS = new LongAdder();
+  private static final LongAdder MISSES = new LongAdder();
+
+  final int[] lowerSpeed;
+  final int[] higherSpeed;
+  private final int minSpeed;
+  private final int maxSpeed;
+  // both bounds never go down from a gear to the next, so the gears of a speed are found
+  // with a binary search
+  private final boolean sorted;
+  private final int hash;
+  private volatile TransitionTable transitions;
+  private volatile ShiftPlanner planner;
+  // set by every lookup that finds the profile, and cleared when the clock goes past it
+  private volatile boolean referenced;
+
+  private GearProfile(int[] lowerSpeed, int[] higherSpeed, int minSpeed, int maxSpeed,
+                      boolean sorted) {
+    this.lowerSpeed = lowerSpeed;
+    this.higherSpeed = higherSpeed;
+    this.minSpeed = minSpeed;
+    this.maxSpeed = maxSpeed;
+    this.sorted = sorted;
+    this.hash = hash(lowerSpeed, higherSpeed);
+  }
+
+  /**
+   * Gets the profile where gear n goes from lows[n - 1] to highs[n - 1]. The same instance is
+   * returned for the same ranges while they are cached, and the arrays are copied, so later
+   * changes to them do not change the profile.
+   *
+   * @param lows the lower speed bound of every gear.
+   * @param highs the higher speed bound of every gear.
+   * @return the profile.
+   * @throws IllegalArgumentException if there are no gears, the two bounds do not have the
+   *                                  same number of gears, the speed ranges of adjacent
+   *                                  gears are not overlapping, a higher speed is greater
+   *                                  than the one of the last gear or the speed does not
+   *                                  start at zero.
+   */
+  public static GearProfile of(int[] lows, int[] highs) throws IllegalArgumentException {
+    GearProfile profile = CACHE.get(new Key(lows, highs));
+    if (profile != null) {
+      HITS.increment();
+      // only written when it changes, so that the threads of a hot profile do not keep
+      // taking its cache line from each other
+      if (!profile.referenced) {
+        profile.referenced = true;
+      }
+      return profile;
+    }
+
+    MISSES.increment();
+    // validated outside of the lock, and the first profile put in wins
+    profile = validate(lows, highs);
+    synchronized (CLOCK) {
+      GearProfile cached = CACHE.putIfAbsent(new Key(profile.lowerSpeed, profile.higherSpeed),
+              profile);
+      if (cached != null) {
+        return cached;
+      }
+      CLOCK.addLast(profile);
+      while (CLOCK.size() > MAX_CACHED) {
+        GearProfile oldest = CLOCK.pollFirst();
+        if (oldest.referenced) {
+          oldest.referenced = false;
+          CLOCK.addLast(oldest);
+        } else {
+          CACHE.remove(new Key(oldest.lowerSpeed, oldest.higherSpeed));
+        }
+      }
+      return profile;
+    }
+  }
+
+  private static GearProfile validate(int[] lows, int[] highs) {
+    if (lows.length == 0 || lows.length != highs.length) {
+      throw new IllegalArgumentException("every gear must have a lower and a higher speed");
+    }
+    int[] lowerSpeed = lows.clone();
+    int[] higherSpeed = highs.clone();
+    int gears = lowerSpeed.length;
+    int top = higherSpeed[gears - 1];
+    if (lowerSpeed[0] != 0) {
+      throw new IllegalArgumentException("the first lower speed must start with zero");
+    }
+
+    int min = 0;
+    boolean sorted = true;
+    for (int i = 0; i < gears; i++) {
+      if (higherSpeed[i] > top) {
+        throw new IllegalArgumentException("high speed cannot be greater than maximum speed");
+      }
+      min = Math.min(min, lowerSpeed[i]);
+      if (i + 1 < gears) {
+        if (lowerSpeed[i + 1] > higherSpeed[i]) {
+          throw new IllegalArgumentException("speed must be overlapping in adjacent gears");
+        }
+        sorted &= lowerSpeed[i] <= lowerSpeed[i + 1] && higherSpeed[i] <= higherSpeed[i + 1];
+      }
+    }
+    return new GearProfile(lowerSpeed, higherSpeed, min, Math.max(0, top), sorted);
+  }
+
+  /**
+   * Gets the number of times {@link #of(int[], int[])} found the ranges already validated.
+   * @return the number of cache hits.
+   */
+  public static long getCacheHits() {
+    return HITS.sum();
+  }
+
+  /**
+   * Gets the number of times {@link #of(int[], int[])} had to validate the ranges.
+   * @return the number of cache misses.
+   */
+  public static long getCacheMisses() {
+    return MISSES.sum();
+  }
+
+  /**
+   * Gets the transition table of this profile, which is built the first time it is asked
+   * for and shared after that.
+   * @return the transition table of these ranges.
+   */
+  public TransitionTable getTransitions() {
+    TransitionTable table = transitions;
+    if (table == null) {
+      // two threads may both build it, and either table will do
+      table = new TransitionTable(this);
+      this.transitions = table;
+    }
+    return table;
+  }
+
+  /**
+   * Gets the shift planner of this profile, which is built the first time it is asked for
+   * and shared after that.
+   * @return the shift planner of these ranges.
+   * @throws IllegalArgumentException if the ranges have too many states to plan in.
+   */
+  public ShiftPlanner getPlanner() throws IllegalArgumentException {
+    ShiftPlanner shared = planner;
+    if (shared == null) {
+      shared = new ShiftPlanner(this);
+      this.planner = shared;
+    }
+    return shared;
+  }
+
+  /**
+   * Gets the number of gears of this profile.
+   * @return the number of gears.
+   */
+  public int getGears() {
+    return lowerSpeed.length;
+  }
+
+  /**
+   * Gets the lower speed bound of a gear.
+   * @param gear the gear, from 1 to the number of gears.
+   * @return the lower speed bound of that gear.
+   */
+  public int getLowerSpeed(int gear) {
+    return lowerSpeed[gear - 1];
+  }
+
+  /**
+   * Gets the higher speed bound of a gear.
+   * @param gear the gear, from 1 to the number of gears.
+   * @return the higher speed bound of that gear.
+   */
+  public int getHigherSpeed(int gear) {
+    return higherSpeed[gear - 1];
+  }
+
+  /**
+   * Gets the lowest speed a transmission with these ranges can have.
+   * @return the lowest speed.
+   */
+  public int getMinSpeed() {
+    return minSpeed;
+  }
+
+  /**
+   * Gets the highest speed a transmission with these ranges can have.
+   * @return the highest speed.
+   */
+  public int getMaxSpeed() {
+    return maxSpeed;
+  }
+
+  /**
+   * Gets every gear whose speed range holds the given speed. When the bounds never go down
+   * from a gear to the next, as in any real gearbox, those gears follow each other and are
+   * found with two binary searches; otherwise every gear is checked.
+   *
+   * @param speed the speed.
+   * @return the gears that can drive at that speed, from the lowest to the highest, or an
+   *         empty array if there are none.
+   */
+  public int[] gearsForSpeed(int speed) {
+    if (!sorted) {
+      int[] gears = new int[getGears()];
+      int count = 0;
+      for (int i = 0; i < gears.length; i++) {
+        if (lowerSpeed[i] <= speed && speed <= higherSpeed[i]) {
+          gears[count++] = i + 1;
+        }
+      }
+      return Arrays.copyOf(gears, count);
+    }
+
+    // the first gear that goes up to the speed, and the first one that starts above it
+    int first = firstAbove(higherSpeed, speed - 1L);
+    int end = firstAbove(lowerSpeed, speed);
+    int[] gears = new int[Math.max(0, end - first)];
+    for (int i = 0; i < gears.length; i++) {
+      gears[i] = first + i + 1;
+    }
+    return gears;
+  }
+
+  private static int firstAbove(int[] bounds, long speed) {
+    int low = 0;
+    int high = bounds.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (bounds[middle] > speed) {
+        high = middle;
+      } else {
+        low = middle + 1;
+      }
+    }
+    return low;
+  }
+
+  private static int hash(int[] lows, int[] highs) {
+    return 31 * Arrays.hashCode(lows) + Arrays.hashCode(highs);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    } else if (!(o instanceof GearProfile)) {
+      return false;
+    }
+    GearProfile other = (GearProfile) o;
+    return Arrays.equals(lowerSpeed, other.lowerSpeed)
+            && Arrays.equals(higherSpeed, other.higherSpeed);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < lowerSpeed.length; i++) {
+      text.append(i == 0 ? "" : ", ").append(lowerSpeed[i]).append('-').append(higherSpeed[i]);
+    }
+    return text.toString();
+  }
+
+  /**
+   * The ranges a profile is cached under. A key made to look a profile up holds the arrays
+   * of the caller, which are only read during the lookup.
+   */
+  private static final class Key {
+    private final int[] lows;
+    private final int[] highs;
+    private final int hash;
+
+    private Key(int[] lows, int[] highs) {
+      this.lows = lows;
+      this.highs = highs;
+      this.hash = hash(lows, highs);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Key && Arrays.equals(lows, ((Key) o).lows)
+              && Arrays.equals(highs, ((Key) o).highs);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+}
@@ -0,0 +1,234 @@
+package vehicle;
+
+import java.util.Objects;
+
+/**
+ * Represents a manual transmission that never changes. Every action returns the transmission
+ * in the state after that action, following the same rules as
+ * {@link RegularManualTransmission}, and leaves the one it was called on as it was.
+ *
+ * <p>Every (gear, speed, status) state of a profile is built once, when the first
+ * transmission of that profile is started, and every later action returns one of those
+ * shared instances. An action is then a lookup in the table of next states, and never
+ * allocates, so transmissions can be handed to other threads or kept as a history for free.
+ */
+public final class ImmutableManualTransmission implements ManualTransmission {
+
+  // the state space of a profile is built eagerly, so it has to stay a reasonable size
+  private static final int MAX_STATES = 1 << 20;
+  private static final int STATUSES = TransmissionStatus.values().length;
+
+  private final StateSpace space;
+  private final int index;
+  private final int gear;
+  private final int speed;
+  private final TransmissionStatus status;
+
+  private ImmutableManualTransmission(StateSpace space, int index, int gear, int speed,
+                                      TransmissionStatus status) {
+    this.space = space;
+    this.index = index;
+    this.gear = gear;
+    this.speed = speed;
+    this.status = status;
+  }
+
+  /**
+   * Gets a transmission in gear 1 with speed 0 with the higher and lower bound
+   * overlaying speed ranges for the gears.
+   *
+   * @param l1 lower speed bound for gear 1.
+   * @param h1 higher speed bound for gear 1.
+   * @param l2 lower speed bound for gear 2.
+   * @param h2 higher speed bound for gear 2.
+   * @param l3 lower speed bound for gear 3.
+   * @param h3 higher speed bound for gear 3.
+   * @param l4 lower speed bound for gear 4.
+   * @param h4 higher speed bound for gear 4.
+   * @param l5 lower speed bound for gear 5.
+   * @param h5 higher speed bound for gear 5.
+   * @return the transmission in its starting state.
+   * @throws IllegalArgumentException When the speed ranges are not valid, as for
+   *                                  {@link RegularManualTransmission}, or have too many
+   *                                  states to build.
+   */
+  public static ImmutableManualTransmission start(int l1, int h1, int l2, int h2, int l3,
+                                                  int h3, int l4, int h4, int l5, int h5)
+          throws IllegalArgumentException {
+    return start(GearProfile.of(new int[]{l1, l2, l3, l4, l5}, new int[]{h1, h2, h3, h4, h5})
+            .getTransitions());
+  }
+
+  /**
+   * Gets a transmission in gear 1 with speed 0 that uses the given transition table. Every
+   * state of the table is built by the first call for it, and shared by every transmission
+   * started from the same table after that.
+   *
+   * @param transitions the transition table of the speed ranges of the gears.
+   * @return the transmission in its starting state.
+   * @throws IllegalArgumentException if the table has too many states to build.
+   */
+  public static ImmutableManualTransmission start(TransitionTable transitions)
+          throws IllegalArgumentException {
+    StateSpace space = transitions.states;
+    if (space == null) {
+      // two threads may both build it, and either space will do
+      space = new StateSpace(transitions);
+      transitions.states = space;
+    }
+    return space.get(space.indexOf(1, 0, TransmissionStatus.OK_EVERYTHING_IS_OK.ordinal()));
+  }
+
+  @Override
+  public String getStatus() {
+    return status.getMessage();
+  }
+
+  @Override
+  public TransmissionStatus getStatusCode() {
+    return status;
+  }
+
+  @Override
+  public int getSpeed() {
+    return speed;
+  }
+
+  @Override
+  public int getGear() {
+    return gear;
+  }
+
+  @Override
+  public ManualTransmission increaseSpeed() {
+    return space.next(index, TransitionTable.INCREASE_SPEED);
+  }
+
+  @Override
+  public ManualTransmission decreaseSpeed() {
+    return space.next(index, TransitionTable.DECREASE_SPEED);
+  }
+
+  @Override
+  public ManualTransmission increaseGear() {
+    return space.next(index, TransitionTable.INCREASE_GEAR);
+  }
+
+  @Override
+  public ManualTransmission decreaseGear() {
+    return space.next(index, TransitionTable.DECREASE_GEAR);
+  }
+
+  @Override
+  public ManualTransmission increaseSpeed(int delta) throws IllegalArgumentException {
+    if (delta < 0) {
+      throw new IllegalArgumentException("speed change cannot be negative");
+    }
+    return space.repeat(index, TransitionTable.INCREASE_SPEED, delta);
+  }
+
+  @Override
+  public ManualTransmission decreaseSpeed(int delta) throws IllegalArgumentException {
+    if (delta < 0) {
+      throw new IllegalArgumentException("speed change cannot be negative");
+    }
+    return space.repeat(index, TransitionTable.DECREASE_SPEED, delta);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    } else if (!(o instanceof ImmutableManualTransmission)) {
+      return false;
+    }
+    ImmutableManualTransmission other = (ImmutableManualTransmission) o;
+    return space.transitions == other.space.transitions && index == other.index;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(gear, speed, status);
+  }
+
+  @Override
+  public String toString() {
+    return "gear " + gear + ", speed " + speed + ": " + status.getMessage();
+  }
+
+  /**
+   * Every state of one transition table, and the state each action leads to from each of
+   * them. Both are built in the constructor and held in final fields, so they are safely
+   * published with the space and read with plain loads.
+   */
+  static final class StateSpace {
+    private final TransitionTable transitions;
+    private final int minSpeed;
+    private final int span;
+    private final int[] next;
+    private final ImmutableManualTransmission[] states;
+
+    private StateSpace(TransitionTable transitions) {
+      long speeds = (long) transitions.getMaxSpeed() - transitions.getMinSpeed() + 1;
+      long count = speeds * transitions.getGears() * STATUSES;
+      if (count > MAX_STATES) {
+        throw new IllegalArgumentException("the speed ranges have too many states");
+      }
+
+      this.transitions = transitions;
+      this.minSpeed = transitions.getMinSpeed();
+      this.span = (int) speeds;
+      this.states = new ImmutableManualTransmission[(int) count];
+      this.next = new int[(int) count * TransitionTable.ACTIONS];
+
+      for (int gear = 1; gear <= transitions.getGears(); gear++) {
+        for (int speed = minSpeed; speed <= transitions.getMaxSpeed(); speed++) {
+          for (int action = 0; action < TransitionTable.ACTIONS; action++) {
+            int entry = transitions.entry(gear, speed, action);
+            int newGear = gear + TransitionTable.gearChange(entry);
+            int newSpeed = speed + TransitionTable.speedChange(entry);
+            int code = TransitionTable.status(entry);
+
+            for (int status = 0; status < STATUSES; status++) {
+              int newStatus = code == TransitionTable.UNCHANGED ? status : code;
+              next[indexOf(gear, speed, status) * TransitionTable.ACTIONS + action] =
+                      indexOf(newGear, newSpeed, newStatus);
+            }
+          }
+        }
+      }
+
+      for (int i = 0; i < states.length; i++) {
+        int status = i % STATUSES;
+        int speed = i / STATUSES % span + minSpeed;
+        int gear = i / STATUSES / span + 1;
+        states[i] = new ImmutableManualTransmission(this, i, gear, speed,
+                TransmissionStatus.of(status));
+      }
+    }
+
+    private int indexOf(int gear, int speed, int status) {
+      return ((gear - 1) * span + (speed - minSpeed)) * STATUSES + status;
+    }
+
+    private ImmutableManualTransmission get(int index) {
+      return states[index];
+    }
+
+    private ImmutableManualTransmission next(int index, int action) {
+      return states[next[index * TransitionTable.ACTIONS + action]];
+    }
+
+    private ImmutableManualTransmission repeat(int index, int action, int times) {
+      // once an action leads back to the same state, doing it again will not change it
+      for (int i = 0; i < times; i++) {
+        int after = next[index * TransitionTable.ACTIONS + action];
+        if (after == index) {
+          break;
+        }
+        index = after;
+      }
+      return states[index];
+    }
+  }
+}
@@ -42,6 +42,15 @@ public interface ManualTransmission {
    */
   String getStatus();
 
+  /**
+   * Gets the status that the current manual transmission is in, as one of the
+   * {@link TransmissionStatus} values instead of its message.
+   * @return Returns the status of this transmission.
+   */
+  default TransmissionStatus getStatusCode() {
+    return TransmissionStatus.fromMessage(getStatus());
+  }
+
   /**
    *  Gets the current speed of the vehicle.
    * @return The current speed of the vehicle as a whole number.
@@ -85,4 +94,92 @@ public interface ManualTransmission {
    *         with the same gear.
    */
   ManualTransmission decreaseGear();
+
+  /**
+   * Increases the speed by the given amount without changing gears. The result is
+   * the same as calling {@link #increaseSpeed()} delta times in a row.
+   * @param delta the number of single speed increases to apply.
+   * @return The transmission after all the speed increases were applied.
+   * @throws IllegalArgumentException if delta is negative.
+   */
+  default ManualTransmission increaseSpeed(int delta) throws IllegalArgumentException {
+    if (delta < 0) {
+      throw new IllegalArgumentException("speed change cannot be negative");
+    }
+    ManualTransmission result = this;
+    for (int i = 0; i < delta; i++) {
+      result = result.increaseSpeed();
+    }
+    return result;
+  }
+
+  /**
+   * Decreases the speed by the given amount without changing gears. The result is
+   * the same as calling {@link #decreaseSpeed()} delta times in a row.
+   * @param delta the number of single speed decreases to apply.
+   * @return The transmission after all the speed decreases were applied.
+   * @throws IllegalArgumentException if delta is negative.
+   */
+  default ManualTransmission decreaseSpeed(int delta) throws IllegalArgumentException {
+    if (delta < 0) {
+      throw new IllegalArgumentException("speed change cannot be negative");
+    }
+    ManualTransmission result = this;
+    for (int i = 0; i < delta; i++) {
+      result = result.decreaseSpeed();
+    }
+    return result;
+  }
+
+  /**
+   * Moves the speed towards the given speed without changing gears. The speed stops
+   * at the limit of the current gear if the given speed is outside of its range, and
+   * the status is the one the last single speed change would give.
+   * @param speed the speed to move towards.
+   * @return The transmission after the speed was changed.
+   */
+  default ManualTransmission setSpeedClamped(int speed) {
+    long delta = (long) speed - getSpeed();
+    if (delta > 0) {
+      return increaseSpeed((int) Math.min(delta, Integer.MAX_VALUE));
+    } else if (delta < 0) {
+      return decreaseSpeed((int) Math.min(-delta, Integer.MAX_VALUE));
+    }
+    return this;
+  }
+
+  /**
+   * Drives to the given speed, changing gears on the way. The speed changes one step at a
+   * time, and whenever a step is refused because the speed is outside of the range of the
+   * gear, the gear changes in the same direction. The drive stops at the target, or where a
+   * step is refused for any other reason or the gear cannot change, as at the top speed.
+   * The gear, speed and status are those the same calls of the single actions would give.
+   *
+   * @param targetSpeed the speed to drive to.
+   * @return the transmission after the drive, the state it ended in, and the number of
+   *         single actions done, counting the refused ones.
+   */
+  default DriveResult driveTo(int targetSpeed) {
+    ManualTransmission result = this;
+    long steps = 0;
+    while (result.getSpeed() != targetSpeed) {
+      boolean up = result.getSpeed() < targetSpeed;
+      int speed = result.getSpeed();
+      int gear = result.getGear();
+      result = up ? result.increaseSpeed() : result.decreaseSpeed();
+      steps++;
+      if (result.getSpeed() == speed) {
+        if (result.getStatusCode() != (up ? TransmissionStatus.NO_INCREASE_SPEED
+                : TransmissionStatus.NO_DECREASE_SPEED)) {
+          break;
+        }
+        result = up ? result.increaseGear() : result.decreaseGear();
+        steps++;
+        if (result.getGear() == gear) {
+          break;
+        }
+      }
+    }
+    return new DriveResult(result, TransmissionState.of(result), steps);
+  }
 }
@@ -0,0 +1,132 @@
+package vehicle;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Represents what a {@link ProfileVerifier} found in the states of a profile: how many
+ * cannot be reached from gear 1 at speed 0, how many cannot get back to speed 0, how many
+ * actions have a status that disagrees with what they change, and a description of the first
+ * of those problems.
+ */
+public final class ProfileReport {
+
+  private final GearProfile profile;
+  private final int span;
+  private final long[] reachable;
+  private final long[] returning;
+  private final int states;
+  private final int unreachable;
+  private final int deadEnds;
+  private final int inconsistent;
+  private final List<String> problems;
+
+  ProfileReport(GearProfile profile, int span, long[] reachable, long[] returning, int states,
+                int unreachable, int deadEnds, int inconsistent, List<String> problems) {
+    this.profile = profile;
+    this.span = span;
+    this.reachable = reachable;
+    this.returning = returning;
+    this.states = states;
+    this.unreachable = unreachable;
+    this.deadEnds = deadEnds;
+    this.inconsistent = inconsistent;
+    this.problems = Collections.unmodifiableList(problems);
+  }
+
+  /**
+   * Gets the profile that was checked.
+   * @return the profile.
+   */
+  public GearProfile getProfile() {
+    return profile;
+  }
+
+  /**
+   * Gets the number of (gear, speed) states, where the speed is within the range of the gear.
+   * @return the number of states.
+   */
+  public int getStates() {
+    return states;
+  }
+
+  /**
+   * Gets the number of states that cannot be reached from gear 1 at speed 0.
+   * @return the number of unreachable states.
+   */
+  public int getUnreachableCount() {
+    return unreachable;
+  }
+
+  /**
+   * Gets the number of states from which speed 0 cannot be reached.
+   * @return the number of dead ends.
+   */
+  public int getDeadEndCount() {
+    return deadEnds;
+  }
+
+  /**
+   * Gets the number of actions, over every state, whose status disagrees with what they
+   * change, or that lead outside of the speed ranges.
+   * @return the number of inconsistent transitions.
+   */
+  public int getInconsistentCount() {
+    return inconsistent;
+  }
+
+  /**
+   * Tells whether no problem was found.
+   * @return true if every state can be reached and left for speed 0, and every action agrees
+   *         with its status.
+   */
+  public boolean isValid() {
+    return unreachable == 0 && deadEnds == 0 && inconsistent == 0;
+  }
+
+  /**
+   * Gets a description of each of the first 100 problems found, in the order of the gears,
+   * then of the speeds.
+   * @return the descriptions.
+   */
+  public List<String> getProblems() {
+    return problems;
+  }
+
+  /**
+   * Tells whether a state can be reached from gear 1 at speed 0.
+   *
+   * @param gear the gear.
+   * @param speed the speed.
+   * @return true if the speed is within the range of the gear and the state can be reached.
+   */
+  public boolean isReachable(int gear, int speed) {
+    return isSet(reachable, gear, speed);
+  }
+
+  /**
+   * Tells whether speed 0 can be reached from a state.
+   *
+   * @param gear the gear.
+   * @param speed the speed.
+   * @return true if the speed is within the range of the gear and speed 0 can be reached.
+   */
+  public boolean canReturnToZero(int gear, int speed) {
+    return isSet(returning, gear, speed);
+  }
+
+  private boolean isSet(long[] bits, int gear, int speed) {
+    if (gear < 1 || gear > profile.getGears() || speed < profile.getLowerSpeed(gear)
+            || speed > profile.getHigherSpeed(gear)) {
+      return false;
+    }
+    int state = (gear - 1) * span + (speed - profile.getMinSpeed());
+    return (bits[state >>> 6] & 1L << state) != 0;
+  }
+
+  @Override
+  public String toString() {
+    return states + " states of " + profile + ": " + unreachable + " unreachable, "
+            + deadEnds + " dead ends, " + inconsistent + " inconsistent transitions";
+  }
+}
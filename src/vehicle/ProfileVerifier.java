@@ -0,0 +1,317 @@
+package vehicle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Checks every (gear, speed) state of a profile before it is used: that it can be reached
+ * from gear 1 at speed 0, that speed 0 can be reached again from it, and that the status of
+ * every action done in it agrees with what the action changes. A state is a gear and a
+ * speed within the range of that gear.
+ *
+ * <p>The graph of the four actions is walked forward from the start, and backward from
+ * every state at speed 0, by tasks of a {@link ForkJoinPool} that share one bit per state
+ * and claim it with a compare-and-set. A task that finds more states than it can get through
+ * soon gives half of them to a new task, so idle threads steal them. The actions of a state
+ * only change the gear and the speed by one at most, so the states that lead to a state are
+ * found among its neighbours without building the reverse graph.
+ */
+public final class ProfileVerifier {
+
+  private static final int MAX_STATES = 1 << 24;
+  // a task splits its stack once it holds this many states
+  private static final int SPLIT = 1024;
+  private static final int MAX_PROBLEMS = 100;
+  // what every action changes when it is done, by action code
+  private static final int[] GEAR_CHANGE = {0, 0, 1, -1};
+  private static final int[] SPEED_CHANGE = {1, -1, 0, 0};
+
+  private final ForkJoinPool pool;
+
+  /**
+   * Constructs a verifier that runs on the common pool.
+   */
+  public ProfileVerifier() {
+    this(ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Constructs a verifier that runs on the given pool.
+   * @param pool the pool to walk the states on.
+   */
+  public ProfileVerifier(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Checks every state of a profile.
+   *
+   * @param profile the speed ranges of the gears.
+   * @return what was found.
+   * @throws IllegalArgumentException if the ranges have too many states to check.
+   */
+  public ProfileReport verify(GearProfile profile) throws IllegalArgumentException {
+    Graph graph = new Graph(profile);
+    AtomicLongArray reached = new AtomicLongArray(graph.words());
+    AtomicLongArray returns = new AtomicLongArray(graph.words());
+
+    int start = graph.index(1, 0);
+    claim(reached, start);
+    int[] zeros = new int[profile.getGears()];
+    int count = 0;
+    for (int gear = 1; gear <= profile.getGears(); gear++) {
+      if (graph.isState(gear, 0) && claim(returns, graph.index(gear, 0))) {
+        zeros[count++] = graph.index(gear, 0);
+      }
+    }
+    pool.invoke(new Walk(graph, reached, true, new int[]{start}, 1));
+    pool.invoke(new Walk(graph, returns, false, zeros, count));
+    return graph.report(reached, returns);
+  }
+
+  private static boolean claim(AtomicLongArray bits, int state) {
+    long bit = 1L << state;
+    long word = bits.get(state >>> 6);
+    while ((word & bit) == 0) {
+      long seen = bits.compareAndExchange(state >>> 6, word, word | bit);
+      if (seen == word) {
+        return true;
+      }
+      word = seen;
+    }
+    return false;
+  }
+
+  private static boolean isSet(AtomicLongArray bits, int state) {
+    return (bits.get(state >>> 6) & 1L << state) != 0;
+  }
+
+  /**
+   * The states of a profile, numbered gear after gear over the whole speed range, and the
+   * actions between them.
+   */
+  private static final class Graph {
+    private final GearProfile profile;
+    private final TransitionTable transitions;
+    private final int gears;
+    private final int minSpeed;
+    private final int span;
+
+    private Graph(GearProfile profile) {
+      this.profile = profile;
+      this.transitions = profile.getTransitions();
+      this.gears = profile.getGears();
+      this.minSpeed = profile.getMinSpeed();
+      long speeds = (long) profile.getMaxSpeed() - minSpeed + 1;
+      if (speeds * gears > MAX_STATES) {
+        throw new IllegalArgumentException("the speed ranges have too many states to check");
+      }
+      this.span = (int) speeds;
+    }
+
+    private int words() {
+      return (span * gears + 63) >>> 6;
+    }
+
+    private int index(int gear, int speed) {
+      return (gear - 1) * span + (speed - minSpeed);
+    }
+
+    private int gearOf(int state) {
+      return state / span + 1;
+    }
+
+    private int speedOf(int state) {
+      return state % span + minSpeed;
+    }
+
+    private boolean isState(int gear, int speed) {
+      return gear >= 1 && gear <= gears && speed >= profile.getLowerSpeed(gear)
+              && speed <= profile.getHigherSpeed(gear);
+    }
+
+    // the state an action leads to, or -1 if it leads outside of the speed ranges
+    private int step(int gear, int speed, int action) {
+      int entry = transitions.entry(gear, speed, action);
+      int toGear = gear + TransitionTable.gearChange(entry);
+      int toSpeed = speed + TransitionTable.speedChange(entry);
+      return isState(toGear, toSpeed) ? index(toGear, toSpeed) : -1;
+    }
+
+    // pushes the states one action leads to from the state, or that lead to it in one
+    private int expand(int state, boolean forward, AtomicLongArray seen, int[] stack, int size) {
+      int gear = gearOf(state);
+      int speed = speedOf(state);
+      if (forward) {
+        for (int action = 0; action < TransitionTable.ACTIONS; action++) {
+          int next = step(gear, speed, action);
+          if (next >= 0 && claim(seen, next)) {
+            stack[size++] = next;
+          }
+        }
+        return size;
+      }
+      for (int g = gear - 1; g <= gear + 1; g++) {
+        for (int s = speed - 1; s <= speed + 1; s++) {
+          if ((g != gear || s != speed) && isState(g, s) && leadsTo(g, s, state)) {
+            int previous = index(g, s);
+            if (claim(seen, previous)) {
+              stack[size++] = previous;
+            }
+          }
+        }
+      }
+      return size;
+    }
+
+    private boolean leadsTo(int gear, int speed, int state) {
+      for (int action = 0; action < TransitionTable.ACTIONS; action++) {
+        if (step(gear, speed, action) == state) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    // the problem with an action, or null if its status agrees with what it changes
+    private String checkAction(int gear, int speed, int action) {
+      int entry = transitions.entry(gear, speed, action);
+      int gearChange = TransitionTable.gearChange(entry);
+      int speedChange = TransitionTable.speedChange(entry);
+      int code = TransitionTable.status(entry);
+      if (!isState(gear + gearChange, speed + speedChange)) {
+        return describe(gear, speed, action) + " leads outside of the speed ranges";
+      } else if (code == TransitionTable.UNCHANGED) {
+        return gearChange == 0 && speedChange == 0 ? null
+                : describe(gear, speed, action) + " changes the state but not the status";
+      }
+      TransmissionStatus status = TransmissionStatus.of(code);
+      boolean done = status.isOk();
+      boolean changes = gearChange == GEAR_CHANGE[action]
+              && speedChange == SPEED_CHANGE[action];
+      boolean unchanged = gearChange == 0 && speedChange == 0;
+      if (done && !changes || !done && !unchanged || !done && !refuses(status, action)) {
+        return describe(gear, speed, action) + " gives " + status + " with gear change "
+                + gearChange + " and speed change " + speedChange;
+      }
+      return null;
+    }
+
+    private static boolean refuses(TransmissionStatus status, int action) {
+      switch (status) {
+        case NO_INCREASE_SPEED:
+        case NO_INCREASE_SPEED_MAX:
+          return action == TransitionTable.INCREASE_SPEED;
+        case NO_DECREASE_SPEED:
+        case NO_DECREASE_SPEED_MIN:
+          return action == TransitionTable.DECREASE_SPEED;
+        case NO_INCREASE_GEAR:
+        case NO_INCREASE_GEAR_MAX:
+          return action == TransitionTable.INCREASE_GEAR;
+        default:
+          return action == TransitionTable.DECREASE_GEAR;
+      }
+    }
+
+    private static String describe(int gear, int speed, int action) {
+      String[] names = {"increasing the speed", "decreasing the speed", "increasing the gear",
+          "decreasing the gear"};
+      return names[action] + " in gear " + gear + " at speed " + speed;
+    }
+
+    private ProfileReport report(AtomicLongArray reached, AtomicLongArray returns) {
+      long[] reachable = new long[words()];
+      long[] returning = new long[words()];
+      List<String> problems = new ArrayList<>();
+      int states = 0;
+      int unreachable = 0;
+      int deadEnds = 0;
+      int inconsistent = 0;
+      for (int gear = 1; gear <= gears; gear++) {
+        for (int speed = profile.getLowerSpeed(gear); speed <= profile.getHigherSpeed(gear);
+             speed++) {
+          int state = index(gear, speed);
+          states++;
+          if (isSet(reached, state)) {
+            reachable[state >>> 6] |= 1L << state;
+          } else {
+            unreachable++;
+            note(problems, "gear " + gear + " at speed " + speed + " cannot be reached");
+          }
+          if (isSet(returns, state)) {
+            returning[state >>> 6] |= 1L << state;
+          } else {
+            deadEnds++;
+            note(problems, "gear " + gear + " at speed " + speed
+                    + " cannot get back to speed 0");
+          }
+          for (int action = 0; action < TransitionTable.ACTIONS; action++) {
+            String problem = checkAction(gear, speed, action);
+            if (problem != null) {
+              inconsistent++;
+              note(problems, problem);
+            }
+          }
+        }
+      }
+      return new ProfileReport(profile, span, reachable, returning, states, unreachable,
+              deadEnds, inconsistent, problems);
+    }
+
+    private static void note(List<String> problems, String problem) {
+      if (problems.size() < MAX_PROBLEMS) {
+        problems.add(problem);
+      }
+    }
+  }
+
+  /**
+   * Walks the states from a stack of claimed ones, forking half of the stack whenever it
+   * grows past {@link #SPLIT}.
+   */
+  private static final class Walk extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final Graph graph;
+    private final AtomicLongArray seen;
+    private final boolean forward;
+    private int[] stack;
+    private int size;
+
+    private Walk(Graph graph, AtomicLongArray seen, boolean forward, int[] stack, int size) {
+      this.graph = graph;
+      this.seen = seen;
+      this.forward = forward;
+      this.stack = stack;
+      this.size = size;
+    }
+
+    @Override
+    protected void compute() {
+      List<Walk> forked = new ArrayList<>();
+      while (size > 0) {
+        if (size >= SPLIT) {
+          int half = size / 2;
+          Walk other = new Walk(graph, seen, forward, Arrays.copyOfRange(stack, half, size),
+                  size - half);
+          size = half;
+          other.fork();
+          forked.add(other);
+        }
+        // every state pushes at most 8 others
+        if (stack.length < size + 8) {
+          stack = Arrays.copyOf(stack, Math.max(16, stack.length * 2));
+        }
+        int state = stack[--size];
+        size = graph.expand(state, forward, seen, stack, size);
+      }
+      for (Walk walk : forked) {
+        walk.join();
+      }
+    }
+  }
+}
@@ -2,37 +2,36 @@ package vehicle;
 
 /**
  * Represents a vehicle that allows the driver to change the speed and the gears.
+ *
+ * <p>Each action only records the ordinal of the status it ends in, which
+ * {@link #getStatusCode()} and {@link #getStatus()} look up when they are called, and keeps
+ * the last {@link #STATUS_HISTORY} of them for {@link #getStatusHistory(int)}.
  */
 public class RegularManualTransmission implements ManualTransmission {
 
-  private static final String OK_EVERYTHING_IS_OK = "OK: everything is OK.";
-  private static final String OK_INCREASE_GEAR = "OK: you may increase the gear.";
-  private static final String OK_DECREASE_GEAR = "OK: you may decrease the gear.";
-  private static final String NO_INCREASE_SPEED = "Cannot increase speed, increase gear first.";
-  private static final String NO_DECREASE_SPEED = "Cannot decrease speed, decrease gear first.";
-  private static final String NO_INCREASE_GEAR = "Cannot increase gear, increase speed first.";
-  private static final String NO_DECREASE_GEAR = "Cannot decrease gear, decrease speed first.";
-  private static final String NOINCREASE_SPEEDMAX = "Cannot increase speed. Reached maximum speed.";
-  private static final String NODECREASE_SPEEDMIN = "Cannot decrease speed. Reached minimum speed.";
-  private static final String NO_INCREASE_GEAR_MAX = "Cannot increase gear. Reached maximum gear.";
-  private static final String NO_DECREASE_GEAR_MIN = "Cannot decrease gear. Reached minimum gear.";
-
-  private final int l1;
-  private final int l2;
-  private final int l3;
-  private final int l4;
-  private final int l5;
-  private final int h1;
-  private final int h2;
-  private final int h3;
-  private final int h4;
-  private final int h5;
+  /** The number of statuses {@link #getStatusHistory(int)} remembers. */
+  public static final int STATUS_HISTORY = 64;
+
+  private static final TransmissionStatus[] STATUSES = TransmissionStatus.values();
+  // the messages are string constants, so this holds the interned instances
+  private static final String[] MESSAGES = new String[STATUSES.length];
+
+  static {
+    for (TransmissionStatus status : STATUSES) {
+      MESSAGES[status.ordinal()] = status.getMessage();
+    }
+  }
 
   private int gear;
   private int currentSpeed;
   private final int[] lowerSpeed;
   private final int[] higherSpeed;
-  private String currentMessage;
+  private final TransitionTable transitions;
+  private byte status;
+  // the status of every action, in a ring of STATUS_HISTORY that the count of actions
+  // wraps around
+  private final byte[] history = new byte[STATUS_HISTORY];
+  private long actions;
 
   /**
    * Constructs a Regular Manual Transmission with the higher and lower bound
@@ -59,71 +58,93 @@ public class RegularManualTransmission implements ManualTransmission {
                                    int h3, int l4, int h4, int l5, int h5)
           throws IllegalArgumentException {
 
-    this.l1 = l1;
-    this.l2 = l2;
-    this.l3 = l3;
-    this.l4 = l4;
-    this.l5 = l5;
-
-    this.h1 = h1;
-    this.h2 = h2;
-    this.h3 = h3;
-    this.h4 = h4;
-    this.h5 = h5;
-
-
-
-    this.lowerSpeed = new int[]{l1, l2, l3, l4, l5};
-    this.higherSpeed = new int[]{h1, h2, h3, h4, h5};
-
-
-    this.validateSpeedRanges();
-
-
-    this.gear = 1;
-    this.currentMessage = "OK: everything is OK.";
-    this.currentSpeed = 0;
-
+    this(GearProfile.of(new int[]{l1, l2, l3, l4, l5}, new int[]{h1, h2, h3, h4, h5}));
   }
 
-
-
-  private void validateSpeedRanges() throws IllegalArgumentException {
-    validateSpeed(new int[]{l1, l2, l3, l4, l5}, new int[]{h1, h2, h3, h4, h5});
+  /**
+   * Constructs a Regular Manual Transmission with the speed ranges of a profile, which
+   * may have any number of gears.
+   *
+   * @param profile the speed ranges of the gears.
+   */
+  public RegularManualTransmission(GearProfile profile) {
+    this(profile, 1, 0, TransmissionStatus.OK_EVERYTHING_IS_OK);
   }
 
-
-  private void validateSpeed(int[] lowerspeed, int[] highspeed) {
-    for (int i = 0; i < lowerspeed.length - 1; i++) {
-      if (lowerspeed[i + 1] > highspeed[i]) {
-        throw new IllegalArgumentException("speed must be overlapping in adjacent gears");
-      }
-    }
-    for (int i = 0; i < highspeed.length; i++) {
-      if (highspeed[i] > highspeed[4]) {
-        throw new IllegalArgumentException("high speed cannot be greater than maximum speed");
-      }
-    }
-
-    if (lowerspeed[0] != 0) {
-      throw new IllegalArgumentException("the first lower speed must start with zero");
+  /**
+   * Constructs a Regular Manual Transmission with the speed ranges of a profile, already in
+   * the given state, as when it is restored from a checkpoint.
+   *
+   * @param profile the speed ranges of the gears.
+   * @param state the gear, speed and status to start in.
+   * @throws IllegalArgumentException if the gear or the speed of the state is outside of the
+   *                                  speed ranges.
+   */
+  public RegularManualTransmission(GearProfile profile, TransmissionState state)
+          throws IllegalArgumentException {
+    this(profile, state.getGear(), state.getSpeed(), state.getStatusCode());
+    if (state.getGear() < 1 || state.getGear() > profile.getGears()
+            || state.getSpeed() < profile.getMinSpeed()
+            || state.getSpeed() > profile.getMaxSpeed()) {
+      throw new IllegalArgumentException("gear " + state.getGear() + " and speed "
+              + state.getSpeed() + " are outside of the speed ranges");
     }
   }
 
+  // restores a state that is known to be inside the speed ranges
+  RegularManualTransmission(GearProfile profile, int gear, int speed,
+                            TransmissionStatus status) {
+    this.lowerSpeed = profile.lowerSpeed;
+    this.higherSpeed = profile.higherSpeed;
+    this.transitions = profile.getTransitions();
+    this.gear = gear;
+    this.currentSpeed = speed;
+    this.status = (byte) status.ordinal();
+  }
 
-  private boolean inRange(int gearNum, int speed) {
-    gearNum = this.getGear();
-    for (int i = 0; i < lowerSpeed.length; i++) {
-      if (gear != 5 && lowerSpeed[gearNum] <= speed && speed <= higherSpeed[gearNum - 1]) {
-        return true;
-      }
+  // restores a state in place when this transmission has the given transition table
+  boolean restore(TransitionTable table, int gear, int speed, TransmissionStatus status) {
+    if (transitions != table) {
+      return false;
     }
-    return false;
+    this.gear = gear;
+    this.currentSpeed = speed;
+    this.status = (byte) status.ordinal();
+    this.actions = 0;
+    return true;
   }
 
+
+
   @Override
   public String getStatus() {
-    return currentMessage;
+    return MESSAGES[status];
+  }
+
+  @Override
+  public TransmissionStatus getStatusCode() {
+    return STATUSES[status];
+  }
+
+  /**
+   * Gets the statuses of the last actions, as ordinals of {@link TransmissionStatus}, from
+   * the oldest to the latest. Every single step and every speed change by a positive delta
+   * is one action. Only the last {@link #STATUS_HISTORY} are kept.
+   *
+   * @param n the number of actions.
+   * @return the statuses of the last n actions, or of every action kept if there are fewer.
+   * @throws IllegalArgumentException if n is negative.
+   */
+  public byte[] getStatusHistory(int n) throws IllegalArgumentException {
+    if (n < 0) {
+      throw new IllegalArgumentException("the number of statuses cannot be negative");
+    }
+    int count = (int) Math.min(Math.min(n, actions), STATUS_HISTORY);
+    byte[] statuses = new byte[count];
+    for (int i = 0; i < count; i++) {
+      statuses[i] = history[(int) (actions - count + i) & STATUS_HISTORY - 1];
+    }
+    return statuses;
   }
 
 
@@ -140,95 +161,144 @@ public class RegularManualTransmission implements ManualTransmission {
 
   @Override
   public ManualTransmission increaseSpeed() {
-    int newSpeed = this.currentSpeed + 1;
-    this.gear = this.getGear();
-
-    if (currentSpeed > higherSpeed[gear - 1]) {
-      return this;
-    } else if (newSpeed > higherSpeed[4] && gear == 5) {
-      this.currentMessage = RegularManualTransmission.NOINCREASE_SPEEDMAX;
-      return this;
-    } else if (newSpeed > higherSpeed[gear - 1] && gear < 5) {
-      this.currentMessage = RegularManualTransmission.NO_INCREASE_SPEED;
-      return this;
-    } else if (this.inRange(gear - 1, newSpeed) && this.inRange(gear, newSpeed)) {
-      this.currentMessage = OK_INCREASE_GEAR;
-    } else if (newSpeed >= lowerSpeed[gear - 1] && newSpeed <= higherSpeed[gear - 1]) {
-      this.currentMessage = RegularManualTransmission.OK_EVERYTHING_IS_OK;
-    }
-    this.currentSpeed = newSpeed;
-
-    return this;
+    return this.apply(TransitionTable.INCREASE_SPEED);
   }
 
 
   @Override
   public ManualTransmission decreaseSpeed() {
-    int newSpeed = this.currentSpeed - 1;
-    this.gear = this.getGear();
+    return this.apply(TransitionTable.DECREASE_SPEED);
+  }
 
-    if (currentSpeed < lowerSpeed[gear - 1]) {
-      currentMessage = RegularManualTransmission.OK_EVERYTHING_IS_OK;
-      return this;
-    } else if (newSpeed < lowerSpeed[0] && gear == 1) {
-      this.currentMessage = RegularManualTransmission.NODECREASE_SPEEDMIN;
-      return this;
-    } else if (newSpeed < lowerSpeed[gear - 1] && gear != 1) {
-      this.currentMessage = RegularManualTransmission.NO_DECREASE_SPEED;
-      return this;
-    } else if (gear > 1 && newSpeed <= higherSpeed[gear - 2]) {
-      this.currentMessage =  RegularManualTransmission.OK_DECREASE_GEAR;
-      this.currentSpeed = newSpeed;
-      return this;
-    } else if (newSpeed >= lowerSpeed[gear - 1] && newSpeed <= higherSpeed[gear - 1]) {
-      currentMessage = RegularManualTransmission.OK_EVERYTHING_IS_OK;
-      this.currentSpeed = newSpeed;
+  @Override
+  public ManualTransmission increaseSpeed(int delta) throws IllegalArgumentException {
+    if (delta < 0) {
+      throw new IllegalArgumentException("speed change cannot be negative");
+    } else if (delta == 0) {
       return this;
+    } else if (currentSpeed > higherSpeed[gear - 1]) {
+      return record(status);
     }
-    currentMessage = RegularManualTransmission.OK_EVERYTHING_IS_OK;
-    this.currentSpeed = newSpeed;
-    return this;
+
+    int high = higherSpeed[gear - 1];
+    if (delta > (long) high - currentSpeed) {
+      // the single steps stop at the top of the gear and keep reporting why
+      this.currentSpeed = high;
+      return record(gear == lowerSpeed.length ? TransmissionStatus.NO_INCREASE_SPEED_MAX
+              : TransmissionStatus.NO_INCREASE_SPEED);
+    }
+
+    this.currentSpeed = currentSpeed + delta;
+    if (gear < lowerSpeed.length && lowerSpeed[gear] <= currentSpeed) {
+      return record(TransmissionStatus.OK_INCREASE_GEAR);
+    } else if (currentSpeed >= lowerSpeed[gear - 1]) {
+      return record(TransmissionStatus.OK_EVERYTHING_IS_OK);
+    }
+    return record(status);
   }
 
   @Override
-  public ManualTransmission increaseGear() {
-    this.gear = this.gear + 1;
-
-    if (gear < 5 && currentSpeed >= lowerSpeed[gear]) {
-      this.currentMessage = RegularManualTransmission.OK_EVERYTHING_IS_OK;
-      return this;
-    } else if (this.gear == 6) {
-      this.currentMessage = RegularManualTransmission.NO_INCREASE_GEAR_MAX;
-      this.gear--;
-      return this;
-      // This might be the issues because it adjust back its orginal gear
-    } else if (this.currentSpeed < lowerSpeed[gear - 1]) {
-      this.currentMessage = RegularManualTransmission.NO_INCREASE_GEAR;
-      this.gear--;
+  public ManualTransmission decreaseSpeed(int delta) throws IllegalArgumentException {
+    if (delta < 0) {
+      throw new IllegalArgumentException("speed change cannot be negative");
+    } else if (delta == 0) {
       return this;
+    } else if (currentSpeed < lowerSpeed[gear - 1]) {
+      return record(TransmissionStatus.OK_EVERYTHING_IS_OK);
     }
-    this.currentMessage = RegularManualTransmission.OK_EVERYTHING_IS_OK;
-    return this;
+
+    int low = lowerSpeed[gear - 1];
+    if (delta > (long) currentSpeed - low) {
+      // the single steps stop at the bottom of the gear and keep reporting why
+      this.currentSpeed = low;
+      return record(gear == 1 ? TransmissionStatus.NO_DECREASE_SPEED_MIN
+              : TransmissionStatus.NO_DECREASE_SPEED);
+    }
+
+    this.currentSpeed = currentSpeed - delta;
+    if (gear > 1 && currentSpeed <= higherSpeed[gear - 2]) {
+      return record(TransmissionStatus.OK_DECREASE_GEAR);
+    }
+    return record(TransmissionStatus.OK_EVERYTHING_IS_OK);
+  }
+
+  @Override
+  public ManualTransmission increaseGear() {
+    return this.apply(TransitionTable.INCREASE_GEAR);
   }
 
   @Override
   public ManualTransmission decreaseGear() {
-    this.gear = this.gear - 1;
+    return this.apply(TransitionTable.DECREASE_GEAR);
+  }
 
-    if (gear > 1 && currentSpeed <= higherSpeed[gear - 1]) {
-      this.currentMessage = RegularManualTransmission.OK_EVERYTHING_IS_OK;
-      return this;
-    } else if (gear == 0) {
-      this.currentMessage = RegularManualTransmission.NO_DECREASE_GEAR_MIN;
-      this.gear++;
-      return this;
-    } else if (this.currentSpeed > higherSpeed[gear - 1]) {
-      this.currentMessage = RegularManualTransmission.NO_DECREASE_GEAR;
-      this.gear++;
-      return this;
+
+  /**
+   * Drives to the given speed with one bulk speed change for each gear on the way, so the
+   * drive costs as much as the number of gears it goes through rather than speeds. The
+   * steps counted are still the single actions the drive stands for.
+   * {@inheritDoc}
+   */
+  @Override
+  public DriveResult driveTo(int targetSpeed) {
+    long steps = 0;
+    while (currentSpeed != targetSpeed) {
+      boolean up = currentSpeed < targetSpeed;
+      int speed = currentSpeed;
+      int before = gear;
+      long room = up ? (long) higherSpeed[gear - 1] - speed : (long) speed - lowerSpeed[gear - 1];
+      boolean refused;
+      if (room < 0) {
+        // outside of the range of the gear, where a bulk change does not stand for steps
+        this.apply(up ? TransitionTable.INCREASE_SPEED : TransitionTable.DECREASE_SPEED);
+        steps++;
+        refused = currentSpeed == speed;
+      } else {
+        // to the target, or to the end of the range and the step that is refused there
+        long delta = Math.min(Math.min(Math.abs((long) targetSpeed - speed), room + 1),
+                Integer.MAX_VALUE);
+        if (up) {
+          increaseSpeed((int) delta);
+        } else {
+          decreaseSpeed((int) delta);
+        }
+        steps += delta;
+        refused = delta > room;
+      }
+
+      if (refused) {
+        if (status != (up ? TransmissionStatus.NO_INCREASE_SPEED
+                : TransmissionStatus.NO_DECREASE_SPEED).ordinal()) {
+          break;
+        }
+        this.apply(up ? TransitionTable.INCREASE_GEAR : TransitionTable.DECREASE_GEAR);
+        steps++;
+        if (gear == before) {
+          break;
+        }
+      }
     }
+    return new DriveResult(this, new TransmissionState(gear, currentSpeed, STATUSES[status]),
+            steps);
+  }
+
+  private ManualTransmission apply(int action) {
+    int entry = transitions.entry(gear, currentSpeed, action);
+    int code = TransitionTable.status(entry);
+
+    this.gear += TransitionTable.gearChange(entry);
+    this.currentSpeed += TransitionTable.speedChange(entry);
+    return record(code == TransitionTable.UNCHANGED ? status : code);
+  }
+
+  private ManualTransmission record(TransmissionStatus status) {
+    return record(status.ordinal());
+  }
 
-    this.currentMessage = RegularManualTransmission.OK_EVERYTHING_IS_OK;
+  // sets the status an action ended in and adds it to the history
+  private ManualTransmission record(int code) {
+    this.status = (byte) code;
+    history[(int) actions++ & STATUS_HISTORY - 1] = (byte) code;
     return this;
   }
 
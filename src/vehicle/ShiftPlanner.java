@@ -0,0 +1,299 @@
+package vehicle;
+
+import java.util.Arrays;
+
+/**
+ * Represents a planner of the shortest sequence of actions that takes a transmission from
+ * one (gear, speed) to another, following the same rules as {@link RegularManualTransmission}.
+ * The status does not change where an action leads, so it plays no part in a plan.
+ *
+ * <p>For profiles with up to 2048 (gear, speed) states, the first action of a shortest path
+ * between every pair of states is worked out when the planner is built, with one backward
+ * breadth-first search per target, so a plan costs as much as its length. Larger profiles
+ * search forward from the start of every plan instead.
+ */
+public final class ShiftPlanner {
+
+  // the table of first actions holds one byte per pair of states
+  private static final int MAX_TABLE_STATES = 2048;
+  private static final int MAX_STATES = 1 << 24;
+  private static final byte NONE = -1;
+  private static final byte[] EMPTY = new byte[0];
+
+  private final TransitionTable transitions;
+  private final int gears;
+  private final int minSpeed;
+  private final int span;
+  private final int states;
+  private final byte[] firstAction;
+
+  /**
+   * Builds the planner of the speed ranges of a profile. Profiles keep their planner, which
+   * {@link GearProfile#getPlanner()} gets.
+   *
+   * @param profile the speed ranges of the gears.
+   * @throws IllegalArgumentException if the ranges have too many states to plan in.
+   */
+  ShiftPlanner(GearProfile profile) throws IllegalArgumentException {
+    this.transitions = profile.getTransitions();
+    this.gears = profile.getGears();
+    this.minSpeed = profile.getMinSpeed();
+    long speeds = (long) profile.getMaxSpeed() - minSpeed + 1;
+    if (speeds * gears > MAX_STATES) {
+      throw new IllegalArgumentException("the speed ranges have too many states to plan in");
+    }
+    this.span = (int) speeds;
+    this.states = span * gears;
+    this.firstAction = states <= MAX_TABLE_STATES ? buildTable() : null;
+  }
+
+  private byte[] buildTable() {
+    // the actions that lead into every state, grouped by the state they lead to
+    int[] start = new int[states + 1];
+    for (int from = 0; from < states; from++) {
+      for (int action = 0; action < TransitionTable.ACTIONS; action++) {
+        int to = step(from, action);
+        if (to != from) {
+          start[to + 1]++;
+        }
+      }
+    }
+    for (int i = 0; i < states; i++) {
+      start[i + 1] += start[i];
+    }
+    int[] sources = new int[start[states]];
+    byte[] actions = new byte[start[states]];
+    int[] fill = Arrays.copyOf(start, states);
+    for (int from = 0; from < states; from++) {
+      for (int action = 0; action < TransitionTable.ACTIONS; action++) {
+        int to = step(from, action);
+        if (to != from) {
+          sources[fill[to]] = from;
+          actions[fill[to]++] = (byte) action;
+        }
+      }
+    }
+
+    byte[] table = new byte[states * states];
+    Arrays.fill(table, NONE);
+    int[] queue = new int[states];
+    int[] seenBy = new int[states];
+    for (int target = 0; target < states; target++) {
+      int base = target * states;
+      int head = 0;
+      int tail = 0;
+      queue[tail++] = target;
+      seenBy[target] = target + 1;
+      while (head < tail) {
+        int state = queue[head++];
+        for (int i = start[state]; i < start[state + 1]; i++) {
+          int source = sources[i];
+          if (seenBy[source] != target + 1) {
+            seenBy[source] = target + 1;
+            table[base + source] = actions[i];
+            queue[tail++] = source;
+          }
+        }
+      }
+    }
+    return table;
+  }
+
+  private int index(int gear, int speed) {
+    return (gear - 1) * span + (speed - minSpeed);
+  }
+
+  private int gearOf(int state) {
+    return state / span + 1;
+  }
+
+  private int speedOf(int state) {
+    return state % span + minSpeed;
+  }
+
+  private int step(int state, int action) {
+    int gear = gearOf(state);
+    int speed = speedOf(state);
+    int entry = transitions.entry(gear, speed, action);
+    return index(gear + TransitionTable.gearChange(entry),
+            speed + TransitionTable.speedChange(entry));
+  }
+
+  private int checkState(int gear, int speed) {
+    if (gear < 1 || gear > gears || speed < minSpeed || speed > minSpeed + span - 1) {
+      throw new IllegalArgumentException("gear " + gear + " and speed " + speed
+              + " are outside of the speed ranges");
+    }
+    return index(gear, speed);
+  }
+
+  /**
+   * Gets the shortest sequence of actions from one gear and speed to another.
+   *
+   * @param gear the gear to start from.
+   * @param speed the speed to start from.
+   * @param targetGear the gear to reach.
+   * @param targetSpeed the speed to reach.
+   * @return the actions, as the codes of {@link TransitionTable}, in the order to do them.
+   * @throws IllegalArgumentException if either state is outside of the speed ranges, or the
+   *                                  target cannot be reached from the start.
+   */
+  public byte[] plan(int gear, int speed, int targetGear, int targetSpeed)
+          throws IllegalArgumentException {
+    int from = checkState(gear, speed);
+    int to = checkState(targetGear, targetSpeed);
+    if (from == to) {
+      return EMPTY;
+    } else if (firstAction == null) {
+      return search(from, to, -1);
+    } else if (firstAction[to * states + from] == NONE) {
+      throw new IllegalArgumentException("gear " + targetGear + " and speed " + targetSpeed
+              + " cannot be reached");
+    }
+    return walk(from, to);
+  }
+
+  /**
+   * Gets the shortest sequence of actions from one gear and speed to the given speed, in
+   * whichever gear is closest.
+   *
+   * @param gear the gear to start from.
+   * @param speed the speed to start from.
+   * @param targetSpeed the speed to reach.
+   * @return the actions, as the codes of {@link TransitionTable}, in the order to do them.
+   * @throws IllegalArgumentException if the start or the speed is outside of the speed
+   *                                  ranges, or the speed cannot be reached from the start.
+   */
+  public byte[] planToSpeed(int gear, int speed, int targetSpeed)
+          throws IllegalArgumentException {
+    int from = checkState(gear, speed);
+    checkState(1, targetSpeed);
+    if (speed == targetSpeed) {
+      return EMPTY;
+    } else if (firstAction == null) {
+      return search(from, -1, targetSpeed);
+    }
+
+    int best = -1;
+    int bestLength = Integer.MAX_VALUE;
+    for (int g = 1; g <= gears; g++) {
+      int to = index(g, targetSpeed);
+      if (firstAction[to * states + from] != NONE) {
+        int length = length(from, to);
+        if (length < bestLength) {
+          best = to;
+          bestLength = length;
+        }
+      }
+    }
+    if (best < 0) {
+      throw new IllegalArgumentException("speed " + targetSpeed + " cannot be reached");
+    }
+    return walk(from, best);
+  }
+
+  private int length(int from, int to) {
+    int length = 0;
+    for (int state = from; state != to; length++) {
+      state = step(state, firstAction[to * states + state]);
+    }
+    return length;
+  }
+
+  private byte[] walk(int from, int to) {
+    byte[] plan = new byte[length(from, to)];
+    int state = from;
+    for (int i = 0; i < plan.length; i++) {
+      plan[i] = firstAction[to * states + state];
+      state = step(state, plan[i]);
+    }
+    return plan;
+  }
+
+  // searches forward from a state to the target state, or to any state with the target
+  // speed when the target state is negative
+  private byte[] search(int from, int to, int targetSpeed) {
+    int[] parent = new int[states];
+    byte[] action = new byte[states];
+    Arrays.fill(parent, -1);
+    int[] queue = new int[states];
+    int head = 0;
+    int tail = 0;
+    queue[tail++] = from;
+    parent[from] = from;
+
+    while (head < tail) {
+      int state = queue[head++];
+      if (to < 0 ? speedOf(state) == targetSpeed : state == to) {
+        int length = 0;
+        for (int s = state; s != from; s = parent[s]) {
+          length++;
+        }
+        byte[] plan = new byte[length];
+        for (int s = state; s != from; s = parent[s]) {
+          plan[--length] = action[s];
+        }
+        return plan;
+      }
+      for (int a = 0; a < TransitionTable.ACTIONS; a++) {
+        int next = step(state, a);
+        if (parent[next] < 0) {
+          parent[next] = state;
+          action[next] = (byte) a;
+          queue[tail++] = next;
+        }
+      }
+    }
+    throw new IllegalArgumentException(to < 0 ? "speed " + targetSpeed + " cannot be reached"
+            : "gear " + gearOf(to) + " and speed " + speedOf(to) + " cannot be reached");
+  }
+
+  /**
+   * Plans the way from the current gear and speed of a transmission to the given ones and
+   * does every action of the plan on it.
+   *
+   * @param transmission the transmission.
+   * @param targetGear the gear to reach.
+   * @param targetSpeed the speed to reach.
+   * @return the transmission after the last action, which is the same one unless it returns
+   *         a new transmission for every action.
+   * @throws IllegalArgumentException if the target cannot be reached.
+   */
+  public ManualTransmission drive(ManualTransmission transmission, int targetGear,
+                                  int targetSpeed) throws IllegalArgumentException {
+    return execute(transmission, plan(transmission.getGear(), transmission.getSpeed(),
+            targetGear, targetSpeed));
+  }
+
+  /**
+   * Does every action of a plan on a transmission.
+   *
+   * @param transmission the transmission.
+   * @param plan the actions, as the codes of {@link TransitionTable}.
+   * @return the transmission after the last action.
+   * @throws IllegalArgumentException if the plan holds an unknown action.
+   */
+  public static ManualTransmission execute(ManualTransmission transmission, byte[] plan)
+          throws IllegalArgumentException {
+    ManualTransmission result = transmission;
+    for (byte action : plan) {
+      switch (action) {
+        case TransitionTable.INCREASE_SPEED:
+          result = result.increaseSpeed();
+          break;
+        case TransitionTable.DECREASE_SPEED:
+          result = result.decreaseSpeed();
+          break;
+        case TransitionTable.INCREASE_GEAR:
+          result = result.increaseGear();
+          break;
+        case TransitionTable.DECREASE_GEAR:
+          result = result.decreaseGear();
+          break;
+        default:
+          throw new IllegalArgumentException("unknown action " + action);
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,94 @@
+package vehicle;
+
+/**
+ * Represents a manual transmission that locks another transmission for every call, so that
+ * it can be shared between threads. Every call is synchronized on this object, and the
+ * wrapped transmission is expected to change itself rather than return a new object.
+ */
+public class SynchronizedManualTransmission implements ManualTransmission {
+
+  private final ManualTransmission delegate;
+
+  /**
+   * Constructs a transmission that locks the given one.
+   * @param delegate the transmission to lock.
+   */
+  public SynchronizedManualTransmission(ManualTransmission delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public synchronized String getStatus() {
+    return delegate.getStatus();
+  }
+
+  @Override
+  public synchronized TransmissionStatus getStatusCode() {
+    return delegate.getStatusCode();
+  }
+
+  @Override
+  public synchronized int getSpeed() {
+    return delegate.getSpeed();
+  }
+
+  @Override
+  public synchronized int getGear() {
+    return delegate.getGear();
+  }
+
+  @Override
+  public synchronized ManualTransmission increaseSpeed() {
+    delegate.increaseSpeed();
+    return this;
+  }
+
+  @Override
+  public synchronized ManualTransmission decreaseSpeed() {
+    delegate.decreaseSpeed();
+    return this;
+  }
+
+  @Override
+  public synchronized ManualTransmission increaseGear() {
+    delegate.increaseGear();
+    return this;
+  }
+
+  @Override
+  public synchronized ManualTransmission decreaseGear() {
+    delegate.decreaseGear();
+    return this;
+  }
+
+  @Override
+  public synchronized ManualTransmission increaseSpeed(int delta)
+          throws IllegalArgumentException {
+    delegate.increaseSpeed(delta);
+    return this;
+  }
+
+  @Override
+  public synchronized ManualTransmission decreaseSpeed(int delta)
+          throws IllegalArgumentException {
+    delegate.decreaseSpeed(delta);
+    return this;
+  }
+
+  @Override
+  public synchronized ManualTransmission setSpeedClamped(int speed) {
+    delegate.setSpeedClamped(speed);
+    return this;
+  }
+
+  /**
+   * Drives to the given speed while holding the lock, so no other call sees the states on
+   * the way.
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized DriveResult driveTo(int targetSpeed) {
+    DriveResult result = delegate.driveTo(targetSpeed);
+    return new DriveResult(this, result.getState(), result.getSteps());
+  }
+}
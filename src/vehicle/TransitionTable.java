@@ -0,0 +1,366 @@
+package vehicle;
+
+/**
+ * Represents every transition a manual transmission can make with a given set of speed
+ * ranges for its gears. The table is built once from the ranges, so that finding the next
+ * gear, speed and status of an action is a single array lookup instead of a chain of
+ * comparisons.
+ *
+ * <p>Each entry is packed into one byte: the low four bits hold the ordinal of the
+ * {@link TransmissionStatus}, the next two bits the change of gear and the top two bits the
+ * change of speed (both stored plus one, so that -1, 0 and 1 fit in two bits).
+ */
+public final class TransitionTable {
+
+  /** The action that increases the speed by one. */
+  public static final int INCREASE_SPEED = 0;
+  /** The action that decreases the speed by one. */
+  public static final int DECREASE_SPEED = 1;
+  /** The action that increases the gear by one. */
+  public static final int INCREASE_GEAR = 2;
+  /** The action that decreases the gear by one. */
+  public static final int DECREASE_GEAR = 3;
+  /** The number of different actions. */
+  public static final int ACTIONS = 4;
+
+  /** The status code of a transition that keeps the status the transmission had before. */
+  public static final int UNCHANGED = 15;
+
+  // ranges wider than this are worked out on every call instead of being stored
+  private static final long MAX_ENTRIES = 1L << 24;
+
+  private final GearProfile profile;
+  private final int[] lowerSpeed;
+  private final int[] higherSpeed;
+  private final int gears;
+  private final int minSpeed;
+  private final int span;
+  private final byte[] entries;
+  // the states of the immutable transmissions of this table, built when the first one starts
+  volatile ImmutableManualTransmission.StateSpace states;
+
+  /**
+   * Builds the transition table for the given speed ranges, where gear n goes from
+   * lowerSpeed[n - 1] to higherSpeed[n - 1].
+   *
+   * @param lowerSpeed the lower speed bound of every gear.
+   * @param higherSpeed the higher speed bound of every gear.
+   * @throws IllegalArgumentException if the speed ranges are not valid, as for
+   *                                  {@link GearProfile#of(int[], int[])}.
+   */
+  public TransitionTable(int[] lowerSpeed, int[] higherSpeed) throws IllegalArgumentException {
+    this(GearProfile.of(lowerSpeed, higherSpeed));
+  }
+
+  /**
+   * Builds the transition table for the speed ranges of a profile.
+   *
+   * @param profile the speed ranges of the gears.
+   */
+  public TransitionTable(GearProfile profile) {
+    this.profile = profile;
+    this.lowerSpeed = profile.lowerSpeed;
+    this.higherSpeed = profile.higherSpeed;
+    this.gears = profile.getGears();
+    this.minSpeed = profile.getMinSpeed();
+
+    long speeds = (long) profile.getMaxSpeed() - minSpeed + 1;
+    if (speeds * gears * ACTIONS > MAX_ENTRIES) {
+      this.span = 0;
+      this.entries = null;
+      return;
+    }
+
+    this.span = (int) speeds;
+    this.entries = new byte[span * gears * ACTIONS];
+    for (int gear = 1; gear <= gears; gear++) {
+      for (int speed = minSpeed; speed <= profile.getMaxSpeed(); speed++) {
+        for (int action = 0; action < ACTIONS; action++) {
+          entries[index(gear, speed, action)] = (byte) compute(gear, speed, action);
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets the speed ranges this table was built from.
+   * @return the profile of this table.
+   */
+  public GearProfile getProfile() {
+    return profile;
+  }
+
+  /**
+   * Gets the number of gears of this table.
+   * @return the number of gears.
+   */
+  public int getGears() {
+    return gears;
+  }
+
+  /**
+   * Gets the lower speed bound of a gear.
+   * @param gear the gear, from 1 to the number of gears.
+   * @return the lower speed bound of that gear.
+   */
+  public int getLowerSpeed(int gear) {
+    return lowerSpeed[gear - 1];
+  }
+
+  /**
+   * Gets the higher speed bound of a gear.
+   * @param gear the gear, from 1 to the number of gears.
+   * @return the higher speed bound of that gear.
+   */
+  public int getHigherSpeed(int gear) {
+    return higherSpeed[gear - 1];
+  }
+
+  /**
+   * Gets the lowest speed a transmission with these ranges can have.
+   * @return the lowest speed.
+   */
+  public int getMinSpeed() {
+    return minSpeed;
+  }
+
+  /**
+   * Gets the highest speed a transmission with these ranges can have.
+   * @return the highest speed.
+   */
+  public int getMaxSpeed() {
+    return profile.getMaxSpeed();
+  }
+
+  /**
+   * Gets the packed transition for doing the given action in the given state.
+   *
+   * @param gear the current gear, from 1 to the number of gears.
+   * @param speed the current speed, from the lowest to the highest speed.
+   * @param action the action to do.
+   * @return the packed transition, to be read with {@link #status(int)},
+   *         {@link #gearChange(int)} and {@link #speedChange(int)}.
+   * @throws IllegalArgumentException if the action is not one of the four action codes.
+   */
+  public int entry(int gear, int speed, int action) throws IllegalArgumentException {
+    if (action < 0 || action >= ACTIONS) {
+      throw new IllegalArgumentException("unknown action " + action);
+    } else if (entries == null) {
+      return compute(gear, speed, action);
+    }
+    return entries[index(gear, speed, action)] & 0xFF;
+  }
+
+  /**
+   * Gets the status code of a packed transition.
+   * @param entry the packed transition.
+   * @return the ordinal of the new {@link TransmissionStatus}, or {@link #UNCHANGED} if the
+   *         status stays the same.
+   */
+  public static int status(int entry) {
+    return entry & 0x0F;
+  }
+
+  /**
+   * Gets the change of gear of a packed transition.
+   * @param entry the packed transition.
+   * @return -1, 0 or 1.
+   */
+  public static int gearChange(int entry) {
+    return ((entry >> 4) & 0x03) - 1;
+  }
+
+  /**
+   * Gets the change of speed of a packed transition.
+   * @param entry the packed transition.
+   * @return -1, 0 or 1.
+   */
+  public static int speedChange(int entry) {
+    return ((entry >> 6) & 0x03) - 1;
+  }
+
+  /**
+   * Packs a gear, speed and status into one long, with the status in bits 48 to 55, the
+   * gear in bits 32 to 47 and the speed in the low 32 bits.
+   *
+   * @param gear the gear.
+   * @param speed the speed.
+   * @param status the ordinal of the status.
+   * @return the packed state.
+   */
+  public static long state(int gear, int speed, int status) {
+    return (long) status << 48 | (long) gear << 32 | (speed & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Gets the gear of a packed state.
+   * @param state the packed state.
+   * @return the gear of that state.
+   */
+  public static int gearOf(long state) {
+    return (int) (state >>> 32) & 0xFFFF;
+  }
+
+  /**
+   * Gets the speed of a packed state.
+   * @param state the packed state.
+   * @return the speed of that state.
+   */
+  public static int speedOf(long state) {
+    return (int) state;
+  }
+
+  /**
+   * Gets the status of a packed state.
+   * @param state the packed state.
+   * @return the ordinal of the status of that state.
+   */
+  public static int statusOf(long state) {
+    return (int) (state >>> 48) & 0xFF;
+  }
+
+  /**
+   * Gets the packed state after doing an action in a packed state.
+   *
+   * @param state the packed state, made by {@link #state(int, int, int)}.
+   * @param action the action to do.
+   * @return the packed state after the action.
+   * @throws IllegalArgumentException if the action is not one of the four action codes.
+   */
+  public long next(long state, int action) throws IllegalArgumentException {
+    int gear = gearOf(state);
+    int speed = speedOf(state);
+    int entry = entry(gear, speed, action);
+    int code = status(entry);
+    return state(gear + gearChange(entry), speed + speedChange(entry),
+            code == UNCHANGED ? statusOf(state) : code);
+  }
+
+  /**
+   * Gets the packed state after doing the same action many times in a row. This takes at
+   * most as many steps as there are speeds, since an action that leaves the state as it is
+   * will not change it when done again.
+   *
+   * @param state the packed state, made by {@link #state(int, int, int)}.
+   * @param action the action to do.
+   * @param times the number of times to do it.
+   * @return the packed state after the actions.
+   * @throws IllegalArgumentException if the action is done at least once and is not one of
+   *                                  the four action codes.
+   */
+  public long repeat(long state, int action, int times) throws IllegalArgumentException {
+    for (int i = 0; i < times; i++) {
+      long after = next(state, action);
+      if (after == state) {
+        break;
+      }
+      state = after;
+    }
+    return state;
+  }
+
+  /**
+   * Gets the packed state after changing the speed towards the given speed one step at a
+   * time, as {@link ManualTransmission#setSpeedClamped(int)} does.
+   *
+   * @param state the packed state, made by {@link #state(int, int, int)}.
+   * @param speed the speed to move towards.
+   * @return the packed state after the speed changes.
+   */
+  public long moveTo(long state, int speed) {
+    while (speedOf(state) != speed) {
+      long after = next(state, speedOf(state) < speed ? INCREASE_SPEED : DECREASE_SPEED);
+      if (after == state) {
+        break;
+      }
+      state = after;
+    }
+    return state;
+  }
+
+  private int index(int gear, int speed, int action) {
+    return ((gear - 1) * span + (speed - minSpeed)) * ACTIONS + action;
+  }
+
+  private static int pack(TransmissionStatus status, int gearChange, int speedChange) {
+    return status.ordinal() | (gearChange + 1) << 4 | (speedChange + 1) << 6;
+  }
+
+  private static int keep(int gearChange, int speedChange) {
+    return UNCHANGED | (gearChange + 1) << 4 | (speedChange + 1) << 6;
+  }
+
+  private int compute(int gear, int speed, int action) {
+    switch (action) {
+      case INCREASE_SPEED:
+        return computeIncreaseSpeed(gear, speed);
+      case DECREASE_SPEED:
+        return computeDecreaseSpeed(gear, speed);
+      case INCREASE_GEAR:
+        return computeIncreaseGear(gear, speed);
+      case DECREASE_GEAR:
+        return computeDecreaseGear(gear, speed);
+      default:
+        throw new IllegalArgumentException("unknown action " + action);
+    }
+  }
+
+  private int computeIncreaseSpeed(int gear, int speed) {
+    long newSpeed = (long) speed + 1;
+
+    if (speed > higherSpeed[gear - 1]) {
+      return keep(0, 0);
+    } else if (newSpeed > higherSpeed[gears - 1] && gear == gears) {
+      return pack(TransmissionStatus.NO_INCREASE_SPEED_MAX, 0, 0);
+    } else if (newSpeed > higherSpeed[gear - 1] && gear < gears) {
+      return pack(TransmissionStatus.NO_INCREASE_SPEED, 0, 0);
+    } else if (gear < gears && lowerSpeed[gear] <= newSpeed
+            && newSpeed <= higherSpeed[gear - 1]) {
+      return pack(TransmissionStatus.OK_INCREASE_GEAR, 0, 1);
+    } else if (newSpeed >= lowerSpeed[gear - 1] && newSpeed <= higherSpeed[gear - 1]) {
+      return pack(TransmissionStatus.OK_EVERYTHING_IS_OK, 0, 1);
+    }
+    return keep(0, 1);
+  }
+
+  private int computeDecreaseSpeed(int gear, int speed) {
+    long newSpeed = (long) speed - 1;
+
+    if (speed < lowerSpeed[gear - 1]) {
+      return pack(TransmissionStatus.OK_EVERYTHING_IS_OK, 0, 0);
+    } else if (newSpeed < lowerSpeed[0] && gear == 1) {
+      return pack(TransmissionStatus.NO_DECREASE_SPEED_MIN, 0, 0);
+    } else if (newSpeed < lowerSpeed[gear - 1] && gear != 1) {
+      return pack(TransmissionStatus.NO_DECREASE_SPEED, 0, 0);
+    } else if (gear > 1 && newSpeed <= higherSpeed[gear - 2]) {
+      return pack(TransmissionStatus.OK_DECREASE_GEAR, 0, -1);
+    }
+    return pack(TransmissionStatus.OK_EVERYTHING_IS_OK, 0, -1);
+  }
+
+  private int computeIncreaseGear(int gear, int speed) {
+    int newGear = gear + 1;
+
+    if (newGear < gears && speed >= lowerSpeed[newGear]) {
+      return pack(TransmissionStatus.OK_EVERYTHING_IS_OK, 1, 0);
+    } else if (newGear > gears) {
+      return pack(TransmissionStatus.NO_INCREASE_GEAR_MAX, 0, 0);
+    } else if (speed < lowerSpeed[newGear - 1]) {
+      return pack(TransmissionStatus.NO_INCREASE_GEAR, 0, 0);
+    }
+    return pack(TransmissionStatus.OK_EVERYTHING_IS_OK, 1, 0);
+  }
+
+  private int computeDecreaseGear(int gear, int speed) {
+    int newGear = gear - 1;
+
+    if (newGear > 1 && speed <= higherSpeed[newGear - 1]) {
+      return pack(TransmissionStatus.OK_EVERYTHING_IS_OK, -1, 0);
+    } else if (newGear == 0) {
+      return pack(TransmissionStatus.NO_DECREASE_GEAR_MIN, 0, 0);
+    } else if (speed > higherSpeed[newGear - 1]) {
+      return pack(TransmissionStatus.NO_DECREASE_GEAR, 0, 0);
+    }
+    return pack(TransmissionStatus.OK_EVERYTHING_IS_OK, -1, 0);
+  }
+}
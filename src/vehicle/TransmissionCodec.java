@@ -0,0 +1,351 @@
+package vehicle;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Represents a compact binary format for the state of many transmissions that share one
+ * profile. A stream starts with a header that holds the speed ranges, written once by
+ * {@link #writeHeader(ByteBuffer)}, followed by one fixed-size record per transmission.
+ *
+ * <p>A record packs the status in its low 4 bits, the gear minus one in the next bits and
+ * the speed above the lowest speed of the profile in the highest ones, with as few bits for
+ * the gear and the speed as the profile needs, rounded up to whole bytes. A car with five
+ * gears and speeds up to 50 takes 2 bytes per transmission, and any profile with speeds
+ * that fit in a short and gears that fit in a byte takes at most 4. The header and the
+ * records are big-endian, whatever the order of the buffer, and a record decodes to exactly
+ * the gear, speed and status that were encoded.
+ */
+public final class TransmissionCodec {
+
+  /** The int every header starts with. */
+  public static final int MAGIC = 0x54524E43;
+  /** The version of the format, written after {@link #MAGIC}. */
+  public static final byte VERSION = 1;
+
+  private static final int STATUS_BITS = 4;
+  private static final int STATUS_MASK = (1 << STATUS_BITS) - 1;
+  private static final int STATUSES = TransmissionStatus.values().length;
+
+  private final GearProfile profile;
+  private final TransitionTable table;
+  private final int gears;
+  private final int minSpeed;
+  private final int maxSpeed;
+  private final int speedShift;
+  private final int gearMask;
+  private final int recordBytes;
+
+  /**
+   * Constructs the codec of transmissions with the speed ranges of a profile.
+   *
+   * @param profile the speed ranges of the gears.
+   * @throws IllegalArgumentException if a record of the profile does not fit in 4 bytes.
+   */
+  public TransmissionCodec(GearProfile profile) throws IllegalArgumentException {
+    this.profile = profile;
+    this.table = profile.getTransitions();
+    this.gears = profile.getGears();
+    this.minSpeed = profile.getMinSpeed();
+    this.maxSpeed = profile.getMaxSpeed();
+    int gearBits = bits(gears - 1L);
+    int speedBits = bits((long) maxSpeed - minSpeed);
+    if (STATUS_BITS + gearBits + speedBits > Integer.SIZE) {
+      throw new IllegalArgumentException("the speed ranges are too wide to encode");
+    }
+    this.speedShift = STATUS_BITS + gearBits;
+    this.gearMask = (1 << gearBits) - 1;
+    this.recordBytes = (speedShift + speedBits + Byte.SIZE - 1) / Byte.SIZE;
+  }
+
+  private static int bits(long values) {
+    return Long.SIZE - Long.numberOfLeadingZeros(values);
+  }
+
+  /**
+   * Gets the speed ranges of the transmissions of this codec.
+   * @return the profile.
+   */
+  public GearProfile getProfile() {
+    return profile;
+  }
+
+  /**
+   * Gets the number of bytes of the record of one transmission.
+   * @return the size of a record, from 1 to 4.
+   */
+  public int getRecordBytes() {
+    return recordBytes;
+  }
+
+  /**
+   * Gets the number of bytes {@link #writeHeader(ByteBuffer)} writes.
+   * @return the size of the header.
+   */
+  public int getHeaderBytes() {
+    return Integer.BYTES + 1 + Integer.BYTES + 2 * gears * Integer.BYTES;
+  }
+
+  /**
+   * Writes the header of a stream: {@link #MAGIC}, {@link #VERSION}, the number of gears and
+   * the lower and then the higher speed of every gear.
+   *
+   * @param out the buffer to write to.
+   * @throws BufferOverflowException if the header does not fit in the buffer.
+   */
+  public void writeHeader(ByteBuffer out) throws BufferOverflowException {
+    if (out.remaining() < getHeaderBytes()) {
+      throw new BufferOverflowException();
+    }
+    ByteBuffer header = out.duplicate().order(ByteOrder.BIG_ENDIAN);
+    header.putInt(MAGIC).put(VERSION).putInt(gears);
+    for (int gear = 1; gear <= gears; gear++) {
+      header.putInt(profile.getLowerSpeed(gear));
+    }
+    for (int gear = 1; gear <= gears; gear++) {
+      header.putInt(profile.getHigherSpeed(gear));
+    }
+    out.position(header.position());
+  }
+
+  /**
+   * Reads the header of a stream and gets the codec of its records.
+   *
+   * @param in the buffer to read from, which is left at the first record.
+   * @return the codec of the profile of the header.
+   * @throws IllegalArgumentException if the buffer does not start with a header, or the speed
+   *                                  ranges of the header are not valid.
+   * @throws BufferUnderflowException if the buffer ends in the middle of the header.
+   */
+  public static TransmissionCodec readHeader(ByteBuffer in)
+          throws IllegalArgumentException, BufferUnderflowException {
+    ByteBuffer header = in.duplicate().order(ByteOrder.BIG_ENDIAN);
+    if (header.getInt() != MAGIC || header.get() != VERSION) {
+      throw new IllegalArgumentException("the buffer does not start with a header");
+    }
+    int gears = header.getInt();
+    if (gears < 1) {
+      throw new IllegalArgumentException("the header holds " + gears + " gears");
+    } else if (gears > header.remaining() / (2 * Integer.BYTES)) {
+      throw new BufferUnderflowException();
+    }
+    int[] lows = new int[gears];
+    int[] highs = new int[gears];
+    for (int i = 0; i < gears; i++) {
+      lows[i] = header.getInt();
+    }
+    for (int i = 0; i < gears; i++) {
+      highs[i] = header.getInt();
+    }
+    TransmissionCodec codec = new TransmissionCodec(GearProfile.of(lows, highs));
+    in.position(header.position());
+    return codec;
+  }
+
+  private int pack(int gear, int speed, TransmissionStatus status) {
+    if (gear < 1 || gear > gears || speed < minSpeed || speed > maxSpeed) {
+      throw new IllegalArgumentException("gear " + gear + " and speed " + speed
+              + " are outside of the speed ranges");
+    }
+    return (speed - minSpeed) << speedShift | (gear - 1) << STATUS_BITS | status.ordinal();
+  }
+
+  private int checkRecord(int record) {
+    int gear = (record >>> STATUS_BITS & gearMask) + 1;
+    int speed = (record >>> speedShift) + minSpeed;
+    if ((record & STATUS_MASK) >= STATUSES || gear > gears || speed > maxSpeed) {
+      throw new IllegalArgumentException("record " + Integer.toHexString(record)
+              + " is not a state of the speed ranges");
+    }
+    return record;
+  }
+
+  private void put(ByteBuffer out, int index, int record) {
+    switch (recordBytes) {
+      case 1:
+        out.put(index, (byte) record);
+        break;
+      case 2:
+        out.put(index, (byte) (record >>> 8)).put(index + 1, (byte) record);
+        break;
+      case 3:
+        out.put(index, (byte) (record >>> 16)).put(index + 1, (byte) (record >>> 8))
+                .put(index + 2, (byte) record);
+        break;
+      default:
+        out.put(index, (byte) (record >>> 24)).put(index + 1, (byte) (record >>> 16))
+                .put(index + 2, (byte) (record >>> 8)).put(index + 3, (byte) record);
+        break;
+    }
+  }
+
+  private int get(ByteBuffer in, int index) {
+    switch (recordBytes) {
+      case 1:
+        return in.get(index) & 0xFF;
+      case 2:
+        return (in.get(index) & 0xFF) << 8 | in.get(index + 1) & 0xFF;
+      case 3:
+        return (in.get(index) & 0xFF) << 16 | (in.get(index + 1) & 0xFF) << 8
+                | in.get(index + 2) & 0xFF;
+      default:
+        return in.get(index) << 24 | (in.get(index + 1) & 0xFF) << 16
+                | (in.get(index + 2) & 0xFF) << 8 | in.get(index + 3) & 0xFF;
+    }
+  }
+
+  /**
+   * Writes the record of one transmission.
+   *
+   * @param transmission the transmission, with the speed ranges of this codec.
+   * @param out the buffer to write to.
+   * @throws IllegalArgumentException if the gear or speed is outside of the speed ranges.
+   * @throws BufferOverflowException if the record does not fit in the buffer.
+   */
+  public void encode(ManualTransmission transmission, ByteBuffer out)
+          throws IllegalArgumentException, BufferOverflowException {
+    if (encode(new ManualTransmission[]{transmission}, 0, 1, out) == 0) {
+      throw new BufferOverflowException();
+    }
+  }
+
+  /**
+   * Writes the records of as many of the given transmissions as fit in the buffer.
+   *
+   * @param transmissions the transmissions, with the speed ranges of this codec.
+   * @param offset the index of the first transmission to write.
+   * @param length the number of transmissions to write.
+   * @param out the buffer to write to.
+   * @return the number of records written, which is less than the length if the buffer was
+   *         filled first.
+   * @throws IllegalArgumentException if a gear or speed is outside of the speed ranges, in
+   *                                  which case the records before it are written.
+   */
+  public int encode(ManualTransmission[] transmissions, int offset, int length, ByteBuffer out)
+          throws IllegalArgumentException {
+    int count = Math.min(length, out.remaining() / recordBytes);
+    int index = out.position();
+    try {
+      for (int i = offset; i < offset + count; i++, index += recordBytes) {
+        ManualTransmission transmission = transmissions[i];
+        put(out, index, pack(transmission.getGear(), transmission.getSpeed(),
+                transmission.getStatusCode()));
+      }
+    } finally {
+      out.position(index);
+    }
+    return count;
+  }
+
+  /**
+   * Writes the records of as many of the given packed states as fit in the buffer.
+   *
+   * @param states the states, packed by {@link TransitionTable#state(int, int, int)}.
+   * @param offset the index of the first state to write.
+   * @param length the number of states to write.
+   * @param out the buffer to write to.
+   * @return the number of records written, which is less than the length if the buffer was
+   *         filled first.
+   * @throws IllegalArgumentException if a gear or speed is outside of the speed ranges, in
+   *                                  which case the records before it are written.
+   */
+  public int encodeStates(long[] states, int offset, int length, ByteBuffer out)
+          throws IllegalArgumentException {
+    int count = Math.min(length, out.remaining() / recordBytes);
+    int index = out.position();
+    try {
+      for (int i = offset; i < offset + count; i++, index += recordBytes) {
+        long state = states[i];
+        put(out, index, pack(TransitionTable.gearOf(state), TransitionTable.speedOf(state),
+                TransmissionStatus.of(TransitionTable.statusOf(state))));
+      }
+    } finally {
+      out.position(index);
+    }
+    return count;
+  }
+
+  /**
+   * Reads the record of one transmission.
+   *
+   * @param in the buffer to read from.
+   * @return a new transmission in the state of the record.
+   * @throws IllegalArgumentException if the record is not a state of the speed ranges.
+   * @throws BufferUnderflowException if the buffer ends before the record does.
+   */
+  public RegularManualTransmission decode(ByteBuffer in)
+          throws IllegalArgumentException, BufferUnderflowException {
+    RegularManualTransmission[] one = new RegularManualTransmission[1];
+    if (decode(in, one, 0, 1) == 0) {
+      throw new BufferUnderflowException();
+    }
+    return one[0];
+  }
+
+  /**
+   * Reads as many records as the buffer holds, up to the given number, into transmissions.
+   * A transmission already in the array with the speed ranges of this codec is put in the
+   * state of its record, so reading checkpoints of the same fleet over and over does not
+   * allocate; any other element is replaced with a new transmission.
+   *
+   * @param in the buffer to read from.
+   * @param transmissions the array to put the transmissions in.
+   * @param offset the index of the first transmission to put.
+   * @param length the number of records to read.
+   * @return the number of records read, which is less than the length if the buffer ended
+   *         first.
+   * @throws IllegalArgumentException if a record is not a state of the speed ranges, in which
+   *                                  case the records before it are read.
+   */
+  public int decode(ByteBuffer in, RegularManualTransmission[] transmissions, int offset,
+                    int length) throws IllegalArgumentException {
+    int count = Math.min(length, in.remaining() / recordBytes);
+    int index = in.position();
+    try {
+      for (int i = offset; i < offset + count; i++, index += recordBytes) {
+        int record = checkRecord(get(in, index));
+        int gear = (record >>> STATUS_BITS & gearMask) + 1;
+        int speed = (record >>> speedShift) + minSpeed;
+        TransmissionStatus status = TransmissionStatus.of(record & STATUS_MASK);
+        RegularManualTransmission transmission = transmissions[i];
+        if (transmission == null || !transmission.restore(table, gear, speed, status)) {
+          transmissions[i] = new RegularManualTransmission(profile, gear, speed, status);
+        }
+      }
+    } finally {
+      in.position(index);
+    }
+    return count;
+  }
+
+  /**
+   * Reads as many records as the buffer holds, up to the given number, as packed states.
+   *
+   * @param in the buffer to read from.
+   * @param states the array to put the states in, packed as by
+   *               {@link TransitionTable#state(int, int, int)}.
+   * @param offset the index of the first state to put.
+   * @param length the number of records to read.
+   * @return the number of records read, which is less than the length if the buffer ended
+   *         first.
+   * @throws IllegalArgumentException if a record is not a state of the speed ranges, in which
+   *                                  case the records before it are read.
+   */
+  public int decodeStates(ByteBuffer in, long[] states, int offset, int length)
+          throws IllegalArgumentException {
+    int count = Math.min(length, in.remaining() / recordBytes);
+    int index = in.position();
+    try {
+      for (int i = offset; i < offset + count; i++, index += recordBytes) {
+        int record = checkRecord(get(in, index));
+        states[i] = TransitionTable.state((record >>> STATUS_BITS & gearMask) + 1,
+                (record >>> speedShift) + minSpeed, record & STATUS_MASK);
+      }
+    } finally {
+      in.position(index);
+    }
+    return count;
+  }
+}
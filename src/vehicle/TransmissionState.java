@@ -0,0 +1,99 @@
+package vehicle;
+
+import java.util.Objects;
+
+/**
+ * Represents the gear, speed and status a manual transmission is in at one moment.
+ */
+public final class TransmissionState {
+
+  private final int gear;
+  private final int speed;
+  private final TransmissionStatus status;
+
+  /**
+   * Constructs a state.
+   *
+   * @param gear the gear.
+   * @param speed the speed.
+   * @param status the status.
+   */
+  public TransmissionState(int gear, int speed, TransmissionStatus status) {
+    this.gear = gear;
+    this.speed = speed;
+    this.status = Objects.requireNonNull(status);
+  }
+
+  /**
+   * Gets the state a transmission is in now.
+   * @param transmission the transmission.
+   * @return the current state of that transmission.
+   */
+  public static TransmissionState of(ManualTransmission transmission) {
+    return new TransmissionState(transmission.getGear(), transmission.getSpeed(),
+            transmission.getStatusCode());
+  }
+
+  /**
+   * Gets the state packed in a long by {@link TransitionTable#state(int, int, int)}.
+   * @param state the packed state.
+   * @return the state.
+   */
+  public static TransmissionState of(long state) {
+    return new TransmissionState(TransitionTable.gearOf(state), TransitionTable.speedOf(state),
+            TransmissionStatus.of(TransitionTable.statusOf(state)));
+  }
+
+  /**
+   * Gets the gear of this state.
+   * @return the gear.
+   */
+  public int getGear() {
+    return gear;
+  }
+
+  /**
+   * Gets the speed of this state.
+   * @return the speed.
+   */
+  public int getSpeed() {
+    return speed;
+  }
+
+  /**
+   * Gets the status of this state.
+   * @return the status.
+   */
+  public TransmissionStatus getStatusCode() {
+    return status;
+  }
+
+  /**
+   * Packs this state in a long, as {@link TransitionTable#state(int, int, int)} does.
+   * @return the packed state.
+   */
+  public long pack() {
+    return TransitionTable.state(gear, speed, status.ordinal());
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    } else if (!(o instanceof TransmissionState)) {
+      return false;
+    }
+    TransmissionState other = (TransmissionState) o;
+    return gear == other.gear && speed == other.speed && status == other.status;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(gear, speed, status);
+  }
+
+  @Override
+  public String toString() {
+    return "gear " + gear + ", speed " + speed + ": " + status.getMessage();
+  }
+}
@@ -0,0 +1,73 @@
+package vehicle;
+
+/**
+ * Represents the statuses a manual transmission can be in, one for each of the messages
+ * described in {@link ManualTransmission#getStatus()}. Callers can switch on these values
+ * instead of comparing the message strings.
+ */
+public enum TransmissionStatus {
+  OK_EVERYTHING_IS_OK("OK: everything is OK."),
+  OK_INCREASE_GEAR("OK: you may increase the gear."),
+  OK_DECREASE_GEAR("OK: you may decrease the gear."),
+  NO_INCREASE_SPEED("Cannot increase speed, increase gear first."),
+  NO_DECREASE_SPEED("Cannot decrease speed, decrease gear first."),
+  NO_INCREASE_GEAR("Cannot increase gear, increase speed first."),
+  NO_DECREASE_GEAR("Cannot decrease gear, decrease speed first."),
+  NO_INCREASE_SPEED_MAX("Cannot increase speed. Reached maximum speed."),
+  NO_DECREASE_SPEED_MIN("Cannot decrease speed. Reached minimum speed."),
+  NO_INCREASE_GEAR_MAX("Cannot increase gear. Reached maximum gear."),
+  NO_DECREASE_GEAR_MIN("Cannot decrease gear. Reached minimum gear.");
+
+  // values() copies the array on every call, so the lookups share this one
+  private static final TransmissionStatus[] VALUES = values();
+
+  private final String message;
+
+  TransmissionStatus(String message) {
+    this.message = message;
+  }
+
+  /**
+   * Gets the message of this status, as returned by {@link ManualTransmission#getStatus()}.
+   * @return the message of this status.
+   */
+  public String getMessage() {
+    return message;
+  }
+
+  /**
+   * Tells whether the last action was done.
+   * @return true for the "OK" statuses, false for the "Cannot" ones.
+   */
+  public boolean isOk() {
+    return this.ordinal() <= OK_DECREASE_GEAR.ordinal();
+  }
+
+  /**
+   * Gets the status with the given ordinal without copying the values.
+   * @param code the ordinal of the status.
+   * @return the status with that ordinal.
+   * @throws IllegalArgumentException if there is no status with that ordinal.
+   */
+  public static TransmissionStatus of(int code) throws IllegalArgumentException {
+    if (code < 0 || code >= VALUES.length) {
+      throw new IllegalArgumentException("unknown status code " + code);
+    }
+    return VALUES[code];
+  }
+
+  /**
+   * Gets the status with the given message.
+   * @param message the message of the status.
+   * @return the status with that message.
+   * @throws IllegalArgumentException if no status has that message.
+   */
+  public static TransmissionStatus fromMessage(String message) throws IllegalArgumentException {
+    for (TransmissionStatus status : VALUES) {
+      if (status.message.equals(message)) {
+        return status;
+      }
+    }
+    throw new IllegalArgumentException("unknown status message " + message);
+  }
+}
@@ -0,0 +1,205 @@
+package vehicle.cycle;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import vehicle.GearProfile;
+import vehicle.TransitionTable;
+
+/**
+ * Represents a reader of recorded drive cycles, which applies every command of a log to the
+ * transmission of its vehicle as it streams through the file. Only one buffer of the file is
+ * held at a time, and the commands are decoded straight from its bytes, so a log of any
+ * length is read with the memory of the buffer and of one {@link CycleSummary}.
+ *
+ * <p>A text log has one command per line: the id of the vehicle, one or more spaces or tabs,
+ * and one of {@code +S}, {@code -S}, {@code +G} or {@code -G}. Blank lines are skipped and
+ * lines may end with {@code \r\n}. A binary log is a sequence of 5-byte records, each the id
+ * of the vehicle as a big-endian int followed by the action as the byte code of
+ * {@link TransitionTable}. Every vehicle starts in gear 1 with speed 0.
+ */
+public final class CommandLogProcessor {
+
+  /** The number of bytes of a command in a binary log. */
+  public static final int RECORD_BYTES = 5;
+
+  private static final int DEFAULT_BUFFER = 1 << 20;
+  private static final int MIN_BUFFER = 64;
+
+  private final GearProfile profile;
+  private final int bufferSize;
+
+  /**
+   * Constructs a processor for vehicles with the given speed ranges, reading 1 MB at a time.
+   *
+   * @param profile the speed ranges of the gears of every vehicle.
+   */
+  public CommandLogProcessor(GearProfile profile) {
+    this(profile, DEFAULT_BUFFER);
+  }
+
+  /**
+   * Constructs a processor for vehicles with the given speed ranges.
+   *
+   * @param profile the speed ranges of the gears of every vehicle.
+   * @param bufferSize the number of bytes read at a time, which also bounds the length of a
+   *                   line of a text log.
+   * @throws IllegalArgumentException if the buffer is smaller than 64 bytes.
+   */
+  public CommandLogProcessor(GearProfile profile, int bufferSize)
+          throws IllegalArgumentException {
+    if (bufferSize < MIN_BUFFER) {
+      throw new IllegalArgumentException("the buffer must hold at least " + MIN_BUFFER
+              + " bytes");
+    }
+    this.profile = profile;
+    this.bufferSize = bufferSize;
+  }
+
+  /**
+   * Applies every command of a text log.
+   *
+   * @param file the log.
+   * @return what happened to every vehicle of the log.
+   * @throws IOException if the log cannot be read or a line is not a command.
+   */
+  public CycleSummary processText(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      return processText(channel);
+    }
+  }
+
+  /**
+   * Applies every command of a text log read from a channel, until the end of the channel.
+   *
+   * @param channel the channel of the log.
+   * @return what happened to every vehicle of the log.
+   * @throws IOException if the log cannot be read or a line is not a command.
+   */
+  public CycleSummary processText(ReadableByteChannel channel) throws IOException {
+    CycleSummary summary = new CycleSummary(profile);
+    ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
+    long line = 1;
+    boolean end = false;
+    while (!end) {
+      end = channel.read(buffer) < 0;
+      buffer.flip();
+
+      int start = buffer.position();
+      int limit = buffer.limit();
+      for (int i = start; i < limit; i++) {
+        if (buffer.get(i) == '\n') {
+          decodeLine(buffer, start, i, line++, summary);
+          start = i + 1;
+        }
+      }
+      if (end && start < limit) {
+        decodeLine(buffer, start, limit, line, summary);
+        start = limit;
+      }
+
+      buffer.position(start);
+      buffer.compact();
+      if (!end && !buffer.hasRemaining()) {
+        throw new IOException("line " + line + " is longer than the buffer");
+      }
+    }
+    return summary;
+  }
+
+  private static void decodeLine(ByteBuffer buffer, int from, int to, long line,
+                                 CycleSummary summary) throws IOException {
+    int i = skipBlanks(buffer, from, to);
+    if (i == to) {
+      return;
+    }
+
+    long vehicleId = 0;
+    int start = i;
+    for (; i < to && buffer.get(i) >= '0' && buffer.get(i) <= '9'; i++) {
+      vehicleId = vehicleId * 10 + buffer.get(i) - '0';
+      if (vehicleId >= summary.maxVehicles) {
+        throw new IOException("the vehicle id on line " + line + " is too large");
+      }
+    }
+    int command = i;
+    i = skipBlanks(buffer, i, to);
+    if (i == start || i == command || to - i < 2) {
+      throw new IOException("line " + line + " is not a command");
+    }
+
+    int action = decodeCommand(buffer.get(i), buffer.get(i + 1));
+    if (action < 0 || skipBlanks(buffer, i + 2, to) != to) {
+      throw new IOException("line " + line + " is not a command");
+    }
+    summary.apply((int) vehicleId, action);
+  }
+
+  private static int skipBlanks(ByteBuffer buffer, int from, int to) {
+    int i = from;
+    while (i < to && (buffer.get(i) == ' ' || buffer.get(i) == '\t' || buffer.get(i) == '\r')) {
+      i++;
+    }
+    return i;
+  }
+
+  private static int decodeCommand(byte sign, byte target) {
+    if (sign != '+' && sign != '-' || target != 'S' && target != 'G') {
+      return -1;
+    }
+    int action = target == 'S' ? TransitionTable.INCREASE_SPEED : TransitionTable.INCREASE_GEAR;
+    // every decrease follows its increase in the action codes
+    return sign == '+' ? action : action + 1;
+  }
+
+  /**
+   * Applies every command of a binary log.
+   *
+   * @param file the log.
+   * @return what happened to every vehicle of the log.
+   * @throws IOException if the log cannot be read or holds a record that is not a command.
+   */
+  public CycleSummary processBinary(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      return processBinary(channel);
+    }
+  }
+
+  /**
+   * Applies every command of a binary log read from a channel, until the end of the channel.
+   *
+   * @param channel the channel of the log.
+   * @return what happened to every vehicle of the log.
+   * @throws IOException if the log cannot be read or holds a record that is not a command.
+   */
+  public CycleSummary processBinary(ReadableByteChannel channel) throws IOException {
+    CycleSummary summary = new CycleSummary(profile);
+    ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
+    long record = 0;
+    boolean end = false;
+    while (!end) {
+      end = channel.read(buffer) < 0;
+      buffer.flip();
+
+      while (buffer.remaining() >= RECORD_BYTES) {
+        int vehicleId = buffer.getInt();
+        int action = buffer.get();
+        if (vehicleId < 0 || vehicleId >= summary.maxVehicles || action < 0
+                || action >= TransitionTable.ACTIONS) {
+          throw new IOException("record " + record + " is not a command");
+        }
+        summary.apply(vehicleId, action);
+        record++;
+      }
+      if (end && buffer.hasRemaining()) {
+        throw new IOException("the log ends in the middle of record " + record);
+      }
+      buffer.compact();
+    }
+    return summary;
+  }
+}
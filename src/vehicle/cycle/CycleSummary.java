@@ -0,0 +1,145 @@
+package vehicle.cycle;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import vehicle.GearProfile;
+import vehicle.TransitionTable;
+import vehicle.TransmissionStatus;
+import vehicle.fleet.StatusCounts;
+
+/**
+ * Represents what happened to every vehicle of a command log: the gear, speed and status it
+ * ended in, how many of its commands ended in each status, and how many of its commands it
+ * received in each gear. Every command is one step of time, so the last count is the time
+ * the vehicle spent in each gear. Vehicles are known by their ids, from 0 to
+ * {@link #getVehicles()} minus one; a vehicle without commands stays in its starting state.
+ */
+public final class CycleSummary {
+
+  private static final int STATUSES = TransmissionStatus.values().length;
+  private static final long START = TransitionTable.state(1, 0,
+          TransmissionStatus.OK_EVERYTHING_IS_OK.ordinal());
+
+  private final TransitionTable transitions;
+  private final int gears;
+  // the flat arrays of counts must stay within the size of an array
+  final int maxVehicles;
+  private int vehicles;
+  private long commands;
+  private long[] states;
+  private long[] statusCounts;
+  private long[] gearTicks;
+
+  CycleSummary(GearProfile profile) {
+    this.transitions = profile.getTransitions();
+    this.gears = profile.getGears();
+    this.maxVehicles = (Integer.MAX_VALUE - 8) / Math.max(STATUSES, gears);
+    this.states = new long[0];
+    this.statusCounts = new long[0];
+    this.gearTicks = new long[0];
+  }
+
+  void apply(int vehicleId, int action) {
+    if (vehicleId >= vehicles) {
+      grow(vehicleId);
+    }
+    long state = states[vehicleId];
+    gearTicks[vehicleId * gears + TransitionTable.gearOf(state) - 1]++;
+    state = transitions.next(state, action);
+    statusCounts[vehicleId * STATUSES + TransitionTable.statusOf(state)]++;
+    states[vehicleId] = state;
+    commands++;
+  }
+
+  private void grow(int vehicleId) {
+    if (vehicleId >= states.length) {
+      int capacity = (int) Math.min(maxVehicles, Math.max(vehicleId + 1L, states.length * 2L));
+      int start = states.length;
+      this.states = Arrays.copyOf(states, capacity);
+      Arrays.fill(states, start, capacity, START);
+      this.statusCounts = Arrays.copyOf(statusCounts, capacity * STATUSES);
+      this.gearTicks = Arrays.copyOf(gearTicks, capacity * gears);
+    }
+    this.vehicles = vehicleId + 1;
+  }
+
+  /**
+   * Gets the number of vehicles, which is one more than the highest id in the log.
+   * @return the number of vehicles.
+   */
+  public int getVehicles() {
+    return vehicles;
+  }
+
+  /**
+   * Gets the number of commands in the log.
+   * @return the number of commands of every vehicle.
+   */
+  public long getCommands() {
+    return commands;
+  }
+
+  /**
+   * Gets the number of commands a vehicle received.
+   * @param vehicleId the id of the vehicle.
+   * @return the number of commands of that vehicle.
+   */
+  public long getCommands(int vehicleId) {
+    int base = Objects.checkIndex(vehicleId, vehicles) * gears;
+    long total = 0;
+    for (int i = 0; i < gears; i++) {
+      total += gearTicks[base + i];
+    }
+    return total;
+  }
+
+  /**
+   * Gets the gear a vehicle ended in.
+   * @param vehicleId the id of the vehicle.
+   * @return the last gear of that vehicle.
+   */
+  public int getGear(int vehicleId) {
+    return TransitionTable.gearOf(states[Objects.checkIndex(vehicleId, vehicles)]);
+  }
+
+  /**
+   * Gets the speed a vehicle ended at.
+   * @param vehicleId the id of the vehicle.
+   * @return the last speed of that vehicle.
+   */
+  public int getSpeed(int vehicleId) {
+    return TransitionTable.speedOf(states[Objects.checkIndex(vehicleId, vehicles)]);
+  }
+
+  /**
+   * Gets the status a vehicle ended in.
+   * @param vehicleId the id of the vehicle.
+   * @return the last status of that vehicle.
+   */
+  public TransmissionStatus getStatusCode(int vehicleId) {
+    return TransmissionStatus.of(
+            TransitionTable.statusOf(states[Objects.checkIndex(vehicleId, vehicles)]));
+  }
+
+  /**
+   * Gets how many of the commands of a vehicle ended in each status.
+   * @param vehicleId the id of the vehicle.
+   * @return the number of commands of that vehicle that ended in each status.
+   */
+  public StatusCounts getStatusCounts(int vehicleId) {
+    int base = Objects.checkIndex(vehicleId, vehicles) * STATUSES;
+    return new StatusCounts(Arrays.copyOfRange(statusCounts, base, base + STATUSES));
+  }
+
+  /**
+   * Gets the number of commands a vehicle received while it was in a gear.
+   * @param vehicleId the id of the vehicle.
+   * @param gear the gear, from 1 to the number of gears.
+   * @return the time that vehicle spent in that gear, in commands.
+   */
+  public long getTicksInGear(int vehicleId, int gear) {
+    return gearTicks[Objects.checkIndex(vehicleId, vehicles) * gears
+            + Objects.checkIndex(gear - 1, gears)];
+  }
+}
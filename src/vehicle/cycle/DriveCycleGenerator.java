@@ -0,0 +1,178 @@
+package vehicle.cycle;
+
+import java.util.SplittableRandom;
+
+import vehicle.GearProfile;
+import vehicle.TransitionTable;
+import vehicle.TransmissionStatus;
+
+/**
+ * Generates drive cycles for a profile: arrays of the action codes of
+ * {@link TransitionTable}, one byte per command, for a vehicle that starts in gear 1 at speed
+ * 0. Apart from {@link Shape#RANDOM}, the commands are those of a driver who speeds up to a
+ * target, holds it and slows down again, and the generator follows the state the vehicle
+ * would be in through the transition table of the profile, so that the driver shifts when
+ * the status asks for it, as a real one would.
+ *
+ * <p>The same profile and seed give the same cycles in the same order, so different
+ * implementations can be compared on exactly the same commands, with
+ * {@link DriveCycleRunner}.
+ */
+public final class DriveCycleGenerator {
+
+  /**
+   * The kinds of drive cycles.
+   */
+  public enum Shape {
+    /** Every command is any of the four actions. */
+    RANDOM,
+    /** Short trips to low speeds, each ending with a stop. */
+    URBAN,
+    /** Long cruising at high speeds that change now and then, with few stops. */
+    HIGHWAY,
+    /** Sudden changes of speed, shifting at every chance and at times when not allowed. */
+    AGGRESSIVE
+  }
+
+  private static final long START = TransitionTable.state(1, 0,
+          TransmissionStatus.OK_EVERYTHING_IS_OK.ordinal());
+
+  private final TransitionTable transitions;
+  private final int maxSpeed;
+  private final SplittableRandom random;
+  // the cycle being generated, and the state the vehicle is in at its end
+  private byte[] commands;
+  private int size;
+  private long state;
+
+  /**
+   * Constructs a generator of drive cycles.
+   *
+   * @param profile the speed ranges of the gears of the vehicles.
+   * @param seed the seed of the random choices of the drivers.
+   */
+  public DriveCycleGenerator(GearProfile profile, long seed) {
+    this.transitions = profile.getTransitions();
+    this.maxSpeed = profile.getMaxSpeed();
+    this.random = new SplittableRandom(seed);
+  }
+
+  /**
+   * Generates a drive cycle.
+   *
+   * @param shape the kind of cycle.
+   * @param length the number of commands.
+   * @return the action code of every command.
+   * @throws IllegalArgumentException if the number of commands is negative.
+   */
+  public byte[] generate(Shape shape, int length) throws IllegalArgumentException {
+    if (length < 0) {
+      throw new IllegalArgumentException("the number of commands cannot be negative");
+    }
+    this.commands = new byte[length];
+    this.size = 0;
+    this.state = START;
+    switch (shape) {
+      case RANDOM:
+        while (!isFull()) {
+          push(random.nextInt(TransitionTable.ACTIONS));
+        }
+        break;
+      case URBAN:
+        while (!isFull()) {
+          moveTo(between(maxSpeed / 5, maxSpeed / 2), 30, 0);
+          cruise(between(10, 40));
+          moveTo(0, 30, 0);
+          // waiting at the lights, with the foot on the brake
+          for (int i = between(5, 20); i > 0 && !isFull(); i--) {
+            push(TransitionTable.DECREASE_SPEED);
+          }
+        }
+        break;
+      case HIGHWAY:
+        moveTo(between(maxSpeed * 6 / 10, maxSpeed), 10, 0);
+        while (!isFull()) {
+          cruise(between(100, 400));
+          if (random.nextInt(4) == 0) {
+            moveTo(0, 10, 0);
+          }
+          moveTo(between(maxSpeed / 2, maxSpeed), 10, 0);
+        }
+        break;
+      default:
+        while (!isFull()) {
+          moveTo(between(0, maxSpeed), 100, 15);
+          cruise(between(1, 5));
+        }
+        break;
+    }
+    byte[] cycle = commands;
+    this.commands = null;
+    return cycle;
+  }
+
+  private boolean isFull() {
+    return size == commands.length;
+  }
+
+  private int between(int low, int high) {
+    return low >= high ? low : low + random.nextInt(high - low + 1);
+  }
+
+  // adds a command if the cycle is not full, and gives the status it leaves the vehicle in
+  private int push(int action) {
+    if (!isFull()) {
+      commands[size++] = (byte) action;
+      this.state = transitions.next(state, action);
+    }
+    return TransitionTable.statusOf(state);
+  }
+
+  /*
+   * Changes the speed one step at a time until it is the target, shifting whenever the
+   * speed cannot change in the current gear. When the status says the gear may change, the
+   * driver shifts with the given chance in percent, and after every step pokes the gear
+   * lever in a random direction with the other chance. Stops early if the target cannot be
+   * reached.
+   */
+  private void moveTo(int target, int shiftChance, int pokeChance) {
+    int speed = TransitionTable.speedOf(state);
+    while (speed != target && !isFull()) {
+      boolean up = speed < target;
+      int status = push(up ? TransitionTable.INCREASE_SPEED : TransitionTable.DECREASE_SPEED);
+      int shift = up ? TransitionTable.INCREASE_GEAR : TransitionTable.DECREASE_GEAR;
+      if (status == (up ? TransmissionStatus.NO_INCREASE_SPEED
+              : TransmissionStatus.NO_DECREASE_SPEED).ordinal()) {
+        if (!TransmissionStatus.of(push(shift)).isOk()) {
+          return;
+        }
+      } else if (status == (up ? TransmissionStatus.NO_INCREASE_SPEED_MAX
+              : TransmissionStatus.NO_DECREASE_SPEED_MIN).ordinal()) {
+        return;
+      } else if (status == (up ? TransmissionStatus.OK_INCREASE_GEAR
+              : TransmissionStatus.OK_DECREASE_GEAR).ordinal()
+              && random.nextInt(100) < shiftChance) {
+        push(shift);
+      }
+      if (random.nextInt(100) < pokeChance) {
+        push(random.nextBoolean() ? TransitionTable.INCREASE_GEAR
+                : TransitionTable.DECREASE_GEAR);
+      }
+      speed = TransitionTable.speedOf(state);
+    }
+  }
+
+  // holds the speed for a number of commands, drifting one step up or down and back
+  private void cruise(int length) {
+    int speed = TransitionTable.speedOf(state);
+    for (int i = 0; i < length && !isFull(); i++) {
+      int current = TransitionTable.speedOf(state);
+      if (current != speed) {
+        moveTo(speed, 0, 0);
+      } else {
+        push(random.nextBoolean() ? TransitionTable.INCREASE_SPEED
+                : TransitionTable.DECREASE_SPEED);
+      }
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package vehicle.cycle;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+
+import vehicle.ManualTransmission;
+import vehicle.TransitionTable;
+import vehicle.TransmissionStatus;
+import vehicle.fleet.StatusCounts;
+
+/**
+ * Replays drive cycles, such as those of {@link DriveCycleGenerator}, against any
+ * implementation of {@link ManualTransmission}, and measures how fast the commands went, the
+ * status each of them ended in, and how many bytes the replaying thread allocated.
+ */
+public final class DriveCycleRunner {
+
+  private static final int STATUSES = TransmissionStatus.values().length;
+
+  private DriveCycleRunner() {
+  }
+
+  /**
+   * Replays a cycle a number of times, each time on a new transmission. The measured time
+   * and allocation include getting the transmissions, and the first runs of a cycle include
+   * compiling the loop, so a run meant for comparison should follow a warm-up run.
+   *
+   * @param factory gives the transmission, in gear 1 at speed 0, for every replay.
+   * @param cycle the action code of every command.
+   * @param repetitions how many times to replay the cycle.
+   * @return what was measured.
+   * @throws IllegalArgumentException if a command is not an action code or the number of
+   *                                  repetitions is negative.
+   */
+  public static ReplayReport run(Supplier<? extends ManualTransmission> factory, byte[] cycle,
+                                 int repetitions) throws IllegalArgumentException {
+    if (repetitions < 0) {
+      throw new IllegalArgumentException("the number of repetitions cannot be negative");
+    }
+    for (byte command : cycle) {
+      if (command < 0 || command >= TransitionTable.ACTIONS) {
+        throw new IllegalArgumentException("unknown action code " + command);
+      }
+    }
+
+    long[] counts = new long[STATUSES];
+    long allocated = allocatedBytes();
+    long start = System.nanoTime();
+    for (int i = 0; i < repetitions; i++) {
+      ManualTransmission transmission = factory.get();
+      for (byte command : cycle) {
+        switch (command) {
+          case TransitionTable.INCREASE_SPEED:
+            transmission = transmission.increaseSpeed();
+            break;
+          case TransitionTable.DECREASE_SPEED:
+            transmission = transmission.decreaseSpeed();
+            break;
+          case TransitionTable.INCREASE_GEAR:
+            transmission = transmission.increaseGear();
+            break;
+          default:
+            transmission = transmission.decreaseGear();
+            break;
+        }
+        counts[transmission.getStatusCode().ordinal()]++;
+      }
+    }
+    long wallNanos = System.nanoTime() - start;
+    long after = allocatedBytes();
+    return new ReplayReport((long) cycle.length * repetitions, wallNanos,
+            new StatusCounts(counts), allocated < 0 || after < 0 ? -1 : after - allocated);
+  }
+
+  // the bytes the current thread allocated so far, or -1 if the JVM does not count them
+  private static long allocatedBytes() {
+    if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean threads =
+              (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+      if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+        return threads.getCurrentThreadAllocatedBytes();
+      }
+    }
+    return -1;
+  }
+}
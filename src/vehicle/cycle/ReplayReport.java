@@ -0,0 +1,79 @@
+package vehicle.cycle;
+
+import vehicle.fleet.StatusCounts;
+
+/**
+ * Represents the outcome of replaying drive cycles with {@link DriveCycleRunner}: how many
+ * commands were replayed and how long they took, how many of them ended in each status, and
+ * how many bytes were allocated while replaying them.
+ */
+public final class ReplayReport {
+
+  private final long operations;
+  private final long wallNanos;
+  private final StatusCounts statuses;
+  private final long allocatedBytes;
+
+  ReplayReport(long operations, long wallNanos, StatusCounts statuses, long allocatedBytes) {
+    this.operations = operations;
+    this.wallNanos = wallNanos;
+    this.statuses = statuses;
+    this.allocatedBytes = allocatedBytes;
+  }
+
+  /**
+   * Gets the number of commands replayed.
+   * @return the number of actions.
+   */
+  public long getOperations() {
+    return operations;
+  }
+
+  /**
+   * Gets the time the replay took.
+   * @return the time of the replay, in nanoseconds.
+   */
+  public long getWallNanos() {
+    return wallNanos;
+  }
+
+  /**
+   * Gets the number of commands replayed per second.
+   * @return the throughput of the replay.
+   */
+  public double getOperationsPerSecond() {
+    return wallNanos == 0 ? 0 : operations * 1e9 / wallNanos;
+  }
+
+  /**
+   * Gets how many commands left the transmission in each status.
+   * @return the status counts.
+   */
+  public StatusCounts getStatusCounts() {
+    return statuses;
+  }
+
+  /**
+   * Gets the number of bytes allocated by the replaying thread.
+   * @return the bytes allocated, or -1 if the JVM does not count them.
+   */
+  public long getAllocatedBytes() {
+    return allocatedBytes;
+  }
+
+  /**
+   * Gets the number of bytes allocated per command.
+   * @return the bytes allocated per command, or NaN if they are not known.
+   */
+  public double getBytesPerOperation() {
+    return allocatedBytes < 0 || operations == 0 ? Double.NaN
+            : (double) allocatedBytes / operations;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%d operations in %.1f ms (%.0f ops/s, %.2f B/op), statuses %s",
+            operations, wallNanos / 1e6, getOperationsPerSecond(), getBytesPerOperation(),
+            statuses);
+  }
+}
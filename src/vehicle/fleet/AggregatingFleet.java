@@ -0,0 +1,189 @@
+package vehicle.fleet;
+
+import java.util.BitSet;
+import java.util.concurrent.atomic.LongAdder;
+
+import vehicle.TransitionTable;
+import vehicle.TransmissionStatus;
+
+/**
+ * Represents a fleet that keeps how many of its transmissions are in each gear and each
+ * status, and the sum of their speeds, up to date on every action, so that asking for them
+ * costs as much as the number of gears and statuses instead of the size of the fleet. Every
+ * action goes through to another fleet, which must not be changed other than through this
+ * one.
+ *
+ * <p>The counters are {@link LongAdder}s, so threads that do actions on different
+ * transmissions at the same time, as {@link FleetExecutor} does, never wait for each other.
+ * While actions are running, the counts read are those of some moment during the read and
+ * may not add up to the size of the fleet; once they stop, the counts are exact.
+ */
+public final class AggregatingFleet implements Fleet {
+
+  private static final int STATUSES = TransmissionStatus.values().length;
+
+  private final Fleet delegate;
+  private final TransitionTable profile;
+  // indexed by the gear, so index 0 is unused
+  private final LongAdder[] gears;
+  private final LongAdder[] statuses;
+  private final LongAdder speedSum;
+
+  /**
+   * Constructs the aggregates of a fleet, counting its transmissions once as they are now.
+   * @param delegate the fleet every action goes through to.
+   */
+  public AggregatingFleet(Fleet delegate) {
+    this.delegate = delegate;
+    this.profile = delegate.getProfile();
+    this.gears = adders(profile.getGears() + 1);
+    this.statuses = adders(STATUSES);
+    this.speedSum = new LongAdder();
+
+    long[] gearCounts = new long[gears.length];
+    long[] statusCounts = new long[STATUSES];
+    long speeds = 0;
+    for (int id = 0; id < delegate.size(); id++) {
+      gearCounts[delegate.getGear(id)]++;
+      statusCounts[delegate.getStatusCode(id).ordinal()]++;
+      speeds += delegate.getSpeed(id);
+    }
+    for (int i = 0; i < gears.length; i++) {
+      gears[i].add(gearCounts[i]);
+    }
+    for (int i = 0; i < STATUSES; i++) {
+      statuses[i].add(statusCounts[i]);
+    }
+    speedSum.add(speeds);
+  }
+
+  private static LongAdder[] adders(int count) {
+    LongAdder[] adders = new LongAdder[count];
+    for (int i = 0; i < count; i++) {
+      adders[i] = new LongAdder();
+    }
+    return adders;
+  }
+
+  @Override
+  public int size() {
+    return delegate.size();
+  }
+
+  @Override
+  public TransitionTable getProfile() {
+    return profile;
+  }
+
+  @Override
+  public int getGear(int id) {
+    return delegate.getGear(id);
+  }
+
+  @Override
+  public int getSpeed(int id) {
+    return delegate.getSpeed(id);
+  }
+
+  @Override
+  public TransmissionStatus getStatusCode(int id) {
+    return delegate.getStatusCode(id);
+  }
+
+  @Override
+  public void apply(int id, int action) {
+    int gear = delegate.getGear(id);
+    int status = delegate.getStatusCode(id).ordinal();
+    // the entry tells what the action changes, so the state is not read again after it
+    int entry = profile.entry(gear, delegate.getSpeed(id), action);
+    delegate.apply(id, action);
+
+    int gearChange = TransitionTable.gearChange(entry);
+    if (gearChange != 0) {
+      gears[gear].decrement();
+      gears[gear + gearChange].increment();
+    }
+    int speedChange = TransitionTable.speedChange(entry);
+    if (speedChange != 0) {
+      speedSum.add(speedChange);
+    }
+    int code = TransitionTable.status(entry);
+    if (code != TransitionTable.UNCHANGED && code != status) {
+      statuses[status].decrement();
+      statuses[code].increment();
+    }
+  }
+
+  @Override
+  public BitSet mayIncreaseGear() {
+    return delegate.mayIncreaseGear();
+  }
+
+  @Override
+  public BitSet mayDecreaseGear() {
+    return delegate.mayDecreaseGear();
+  }
+
+  /**
+   * Gets the number of transmissions in a gear.
+   *
+   * @param gear the gear, from 1 to the number of gears.
+   * @return the number of transmissions in that gear.
+   * @throws IllegalArgumentException if there is no such gear.
+   */
+  public long getGearCount(int gear) throws IllegalArgumentException {
+    if (gear < 1 || gear >= gears.length) {
+      throw new IllegalArgumentException("there is no gear " + gear);
+    }
+    return gears[gear].sum();
+  }
+
+  /**
+   * Gets the number of transmissions in every gear.
+   * @return the counts, where index n holds the count of gear n + 1.
+   */
+  public long[] getGearCounts() {
+    long[] counts = new long[gears.length - 1];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = gears[i + 1].sum();
+    }
+    return counts;
+  }
+
+  /**
+   * Gets the number of transmissions in a status.
+   * @param status the status.
+   * @return the number of transmissions in that status.
+   */
+  public long getStatusCount(TransmissionStatus status) {
+    return statuses[status.ordinal()].sum();
+  }
+
+  /**
+   * Gets the number of transmissions in every status.
+   * @return the counts.
+   */
+  public StatusCounts getStatusCounts() {
+    long[] counts = new long[STATUSES];
+    for (int i = 0; i < STATUSES; i++) {
+      counts[i] = statuses[i].sum();
+    }
+    return new StatusCounts(counts);
+  }
+
+  /**
+   * Gets the sum of the speeds of every transmission.
+   * @return the sum of the speeds.
+   */
+  public long getSpeedSum() {
+    return speedSum.sum();
+  }
+
+  /**
+   * Gets the mean speed of the transmissions.
+   * @return the mean speed, or 0 if the fleet is empty.
+   */
+  public double getMeanSpeed() {
+    return size() == 0 ? 0 : (double) speedSum.sum() / size();
+  }
+}
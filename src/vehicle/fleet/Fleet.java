@@ -0,0 +1,143 @@
+package vehicle.fleet;
+
+import java.util.BitSet;
+import java.util.Objects;
+
+import vehicle.ManualTransmission;
+import vehicle.TransitionTable;
+import vehicle.TransmissionStatus;
+
+/**
+ * Represents many manual transmissions that share the same speed ranges, each known by an
+ * id from 0 to the size of the fleet. The transitions follow the same rules as
+ * {@link vehicle.RegularManualTransmission}.
+ */
+public interface Fleet {
+
+  /**
+   * Gets the number of transmissions in this fleet.
+   * @return the number of transmissions.
+   */
+  int size();
+
+  /**
+   * Gets the transition table shared by every transmission in this fleet.
+   * @return the transition table of this fleet.
+   */
+  TransitionTable getProfile();
+
+  /**
+   * Gets the current gear of a transmission.
+   * @param id the id of the transmission.
+   * @return the current gear of that transmission.
+   */
+  int getGear(int id);
+
+  /**
+   * Gets the current speed of a transmission.
+   * @param id the id of the transmission.
+   * @return the current speed of that transmission.
+   */
+  int getSpeed(int id);
+
+  /**
+   * Gets the current status of a transmission.
+   * @param id the id of the transmission.
+   * @return the current status of that transmission.
+   */
+  TransmissionStatus getStatusCode(int id);
+
+  /**
+   * Does one action on one transmission.
+   *
+   * @param id the id of the transmission.
+   * @param action one of the actions of {@link TransitionTable}.
+   */
+  void apply(int id, int action);
+
+  /**
+   * Does the same action on every given transmission.
+   *
+   * @param ids the ids of the transmissions.
+   * @param action one of the actions of {@link TransitionTable}.
+   */
+  default void apply(int[] ids, int action) {
+    for (int id : ids) {
+      apply(id, action);
+    }
+  }
+
+  /**
+   * Increases the speed of every given transmission without changing gears.
+   * @param ids the ids of the transmissions.
+   */
+  default void increaseSpeed(int[] ids) {
+    apply(ids, TransitionTable.INCREASE_SPEED);
+  }
+
+  /**
+   * Decreases the speed of every given transmission without changing gears.
+   * @param ids the ids of the transmissions.
+   */
+  default void decreaseSpeed(int[] ids) {
+    apply(ids, TransitionTable.DECREASE_SPEED);
+  }
+
+  /**
+   * Increases the gear of every given transmission without changing the speed.
+   * @param ids the ids of the transmissions.
+   */
+  default void increaseGear(int[] ids) {
+    apply(ids, TransitionTable.INCREASE_GEAR);
+  }
+
+  /**
+   * Decreases the gear of every given transmission without changing the speed.
+   * @param ids the ids of the transmissions.
+   */
+  default void decreaseGear(int[] ids) {
+    apply(ids, TransitionTable.DECREASE_GEAR);
+  }
+
+  /**
+   * Gets every transmission of this fleet that would go up a gear if its gear were
+   * increased right now.
+   * @return the ids of those transmissions.
+   */
+  default BitSet mayIncreaseGear() {
+    return mayShift(TransitionTable.INCREASE_GEAR, 1);
+  }
+
+  /**
+   * Gets every transmission of this fleet that would go down a gear if its gear were
+   * decreased right now.
+   * @return the ids of those transmissions.
+   */
+  default BitSet mayDecreaseGear() {
+    return mayShift(TransitionTable.DECREASE_GEAR, -1);
+  }
+
+  private BitSet mayShift(int action, int gearChange) {
+    TransitionTable profile = getProfile();
+    BitSet ids = new BitSet(size());
+    for (int id = 0; id < size(); id++) {
+      if (TransitionTable.gearChange(profile.entry(getGear(id), getSpeed(id), action))
+              == gearChange) {
+        ids.set(id);
+      }
+    }
+    return ids;
+  }
+
+  /**
+   * Gets one transmission of this fleet as a {@link ManualTransmission}. The view holds
+   * nothing but the id, and every change made through it is made to the fleet.
+   *
+   * @param id the id of the transmission.
+   * @return a view of that transmission.
+   * @throws IndexOutOfBoundsException if there is no transmission with that id.
+   */
+  default ManualTransmission view(int id) throws IndexOutOfBoundsException {
+    return new FleetView(this, Objects.checkIndex(id, size()));
+  }
+}
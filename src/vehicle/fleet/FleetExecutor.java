@@ -0,0 +1,162 @@
+package vehicle.fleet;
+
+import java.util.Collection;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntUnaryOperator;
+
+import vehicle.ManualTransmission;
+import vehicle.TransitionTable;
+import vehicle.TransmissionStatus;
+
+/**
+ * Does one action on every transmission of a fleet in parallel. The ids are split into
+ * chunks of at least 4096 ids that start on a multiple of 64, and the chunks are run on a
+ * {@link ForkJoinPool}. Two threads can only write to the same cache line of the fleet's
+ * storage around the boundary between their chunks, which is rare next to the writes within
+ * a chunk. Every transmission only depends on its own action, so the result does not depend
+ * on the number of threads.
+ */
+public class FleetExecutor {
+
+  /** The command of a transmission that does nothing in a step. */
+  public static final byte IDLE = -1;
+
+  // chunks start on a multiple of this many ids
+  private static final int ALIGNMENT_IDS = 64;
+  private static final int MIN_CHUNK = 4096;
+  private static final int CHUNKS_PER_THREAD = 4;
+  private static final int STATUSES = TransmissionStatus.values().length;
+
+  private final ForkJoinPool pool;
+
+  /**
+   * Constructs an executor that runs on the common pool.
+   */
+  public FleetExecutor() {
+    this(ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Constructs an executor that runs on the given pool.
+   * @param pool the pool to run the steps on.
+   */
+  public FleetExecutor(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Does one command on every transmission of a fleet.
+   *
+   * @param fleet the fleet.
+   * @param commands the action of {@link TransitionTable} to do on each transmission, by id,
+   *                 or {@link #IDLE} to leave it as it is.
+   * @return how many transmissions are in each status after the step.
+   * @throws IllegalArgumentException if there is not one command per transmission or a
+   *                                  command is unknown, in which case none is done.
+   */
+  public StatusCounts step(Fleet fleet, byte[] commands) throws IllegalArgumentException {
+    checkCommands(commands, fleet.size());
+    return run(commands.length, id -> {
+      if (commands[id] != IDLE) {
+        fleet.apply(id, commands[id]);
+      }
+      return fleet.getStatusCode(id).ordinal();
+    });
+  }
+
+  /**
+   * Does one command on every given transmission.
+   *
+   * @param transmissions the transmissions, in the order of the commands.
+   * @param commands the action of {@link TransitionTable} to do on each transmission, or
+   *                 {@link #IDLE} to leave it as it is.
+   * @return how many transmissions are in each status after the step.
+   * @throws IllegalArgumentException if there is not one command per transmission or a
+   *                                  command is unknown, in which case none is done.
+   */
+  public StatusCounts step(Collection<? extends ManualTransmission> transmissions,
+                           byte[] commands) throws IllegalArgumentException {
+    checkCommands(commands, transmissions.size());
+    ManualTransmission[] cars = transmissions.toArray(new ManualTransmission[0]);
+    return run(cars.length, i -> {
+      switch (commands[i]) {
+        case TransitionTable.INCREASE_SPEED:
+          cars[i].increaseSpeed();
+          break;
+        case TransitionTable.DECREASE_SPEED:
+          cars[i].decreaseSpeed();
+          break;
+        case TransitionTable.INCREASE_GEAR:
+          cars[i].increaseGear();
+          break;
+        case TransitionTable.DECREASE_GEAR:
+          cars[i].decreaseGear();
+          break;
+        default:
+          break;
+      }
+      return cars[i].getStatusCode().ordinal();
+    });
+  }
+
+  // checked before any command is done, so that a bad one leaves every transmission as it was
+  private static void checkCommands(byte[] commands, int size) {
+    if (commands.length != size) {
+      throw new IllegalArgumentException("there must be one command per transmission");
+    }
+    for (byte command : commands) {
+      if (command != IDLE && (command < 0 || command >= TransitionTable.ACTIONS)) {
+        throw new IllegalArgumentException("unknown command " + command);
+      }
+    }
+  }
+
+  private StatusCounts run(int size, IntUnaryOperator step) {
+    int chunks = pool.getParallelism() * CHUNKS_PER_THREAD;
+    int leaf = Math.max(MIN_CHUNK, alignUp((size + chunks - 1) / chunks));
+    return new StatusCounts(pool.invoke(new StepTask(step, 0, size, leaf)));
+  }
+
+  private static int alignUp(int id) {
+    return (id + ALIGNMENT_IDS - 1) & -ALIGNMENT_IDS;
+  }
+
+  private static final class StepTask extends RecursiveTask<long[]> {
+    private static final long serialVersionUID = 1L;
+
+    private final IntUnaryOperator step;
+    private final int from;
+    private final int to;
+    private final int leaf;
+
+    private StepTask(IntUnaryOperator step, int from, int to, int leaf) {
+      this.step = step;
+      this.from = from;
+      this.to = to;
+      this.leaf = leaf;
+    }
+
+    @Override
+    protected long[] compute() {
+      if (to - from <= leaf) {
+        long[] counts = new long[STATUSES];
+        for (int id = from; id < to; id++) {
+          counts[step.applyAsInt(id)]++;
+        }
+        return counts;
+      }
+
+      // from is always a multiple of 64, and so is the middle
+      int middle = from + alignUp((to - from) / 2);
+      StepTask left = new StepTask(step, from, middle, leaf);
+      left.fork();
+      long[] counts = new StepTask(step, middle, to, leaf).compute();
+      long[] leftCounts = left.join();
+      for (int i = 0; i < STATUSES; i++) {
+        counts[i] += leftCounts[i];
+      }
+      return counts;
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package vehicle.fleet;
+
+import vehicle.ManualTransmission;
+import vehicle.TransitionTable;
+import vehicle.TransmissionStatus;
+
+/**
+ * Represents one transmission of a fleet as a {@link ManualTransmission}.
+ */
+class FleetView implements ManualTransmission {
+
+  private final Fleet fleet;
+  private final int id;
+
+  FleetView(Fleet fleet, int id) {
+    this.fleet = fleet;
+    this.id = id;
+  }
+
+  @Override
+  public String getStatus() {
+    return getStatusCode().getMessage();
+  }
+
+  @Override
+  public TransmissionStatus getStatusCode() {
+    return fleet.getStatusCode(id);
+  }
+
+  @Override
+  public int getSpeed() {
+    return fleet.getSpeed(id);
+  }
+
+  @Override
+  public int getGear() {
+    return fleet.getGear(id);
+  }
+
+  @Override
+  public ManualTransmission increaseSpeed() {
+    fleet.apply(id, TransitionTable.INCREASE_SPEED);
+    return this;
+  }
+
+  @Override
+  public ManualTransmission decreaseSpeed() {
+    fleet.apply(id, TransitionTable.DECREASE_SPEED);
+    return this;
+  }
+
+  @Override
+  public ManualTransmission increaseGear() {
+    fleet.apply(id, TransitionTable.INCREASE_GEAR);
+    return this;
+  }
+
+  @Override
+  public ManualTransmission decreaseGear() {
+    fleet.apply(id, TransitionTable.DECREASE_GEAR);
+    return this;
+  }
+}
@@ -0,0 +1,226 @@
+package vehicle.fleet;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import vehicle.GearProfile;
+import vehicle.TransitionTable;
+import vehicle.TransmissionStatus;
+
+/**
+ * Represents a fleet of transmissions kept in a memory-mapped file instead of on the heap.
+ * The file starts with a header holding the speed ranges of the fleet, followed by one
+ * fixed-size record per transmission, so the state of the fleet survives a restart and the
+ * operating system only pages in the records that are used.
+ *
+ * <p>Each record is four bytes: the gear minus one, the ordinal of the status and the speed
+ * as a short. A record of zeros is a transmission in gear 1 with speed 0, so a new file
+ * does not need to be written before it is used. Changes reach the disk when the operating
+ * system writes the pages back, or when {@link #force()} is called.
+ */
+public final class MappedTransmissionFleet implements Fleet, Closeable {
+
+  private static final int MAGIC = 0x54524D46;
+  private static final int VERSION = 1;
+  private static final int RECORD_BYTES = 4;
+  // a single mapping cannot be larger than 2 GB, so the records are split into 1 GB chunks
+  private static final int CHUNK_SHIFT = 28;
+  private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+
+  private final FileChannel channel;
+  private final TransitionTable profile;
+  private final int size;
+  private final MappedByteBuffer[] chunks;
+
+  private MappedTransmissionFleet(FileChannel channel, TransitionTable profile, int size)
+          throws IOException {
+    this.channel = channel;
+    this.profile = profile;
+    this.size = size;
+
+    long start = headerBytes(profile.getGears());
+    this.chunks = new MappedByteBuffer[(int) (((long) size + CHUNK_MASK) >>> CHUNK_SHIFT)];
+    for (int i = 0; i < chunks.length; i++) {
+      long records = Math.min(CHUNK_MASK + 1L, size - ((long) i << CHUNK_SHIFT));
+      chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+              start + ((long) i << CHUNK_SHIFT) * RECORD_BYTES, records * RECORD_BYTES);
+    }
+  }
+
+  /**
+   * Creates a new file for a fleet of transmissions that all start in gear 1 with speed 0.
+   *
+   * @param file the file to create.
+   * @param profile the transition table of the speed ranges every transmission shares.
+   * @param size the number of transmissions.
+   * @return the fleet kept in the new file.
+   * @throws IOException if the file already exists or cannot be written.
+   * @throws IllegalArgumentException if the size is negative, or the speeds or gears of
+   *                                  the profile do not fit in the records of the file.
+   */
+  public static MappedTransmissionFleet create(Path file, TransitionTable profile, int size)
+          throws IOException, IllegalArgumentException {
+    if (size < 0) {
+      throw new IllegalArgumentException("the size of a fleet cannot be negative");
+    } else if (profile.getMinSpeed() < Short.MIN_VALUE
+            || profile.getMaxSpeed() > Short.MAX_VALUE) {
+      throw new IllegalArgumentException("the speeds of the fleet must fit in a short");
+    } else if (profile.getGears() > 256) {
+      throw new IllegalArgumentException("the gears of the fleet must fit in a byte");
+    }
+
+    int gears = profile.getGears();
+    ByteBuffer header = ByteBuffer.allocate((int) headerBytes(gears));
+    header.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(gears);
+    for (int gear = 1; gear <= gears; gear++) {
+      header.putInt(profile.getLowerSpeed(gear)).putInt(profile.getHigherSpeed(gear));
+    }
+    header.clear();
+
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      while (header.hasRemaining()) {
+        channel.write(header, header.position());
+      }
+      return new MappedTransmissionFleet(channel, profile, size);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Opens the file of a fleet made by {@link #create(Path, TransitionTable, int)}, with the
+   * state every transmission had when the file was last written.
+   *
+   * @param file the file to open.
+   * @return the fleet kept in the file.
+   * @throws IOException if the file cannot be read or is not the file of a fleet.
+   */
+  public static MappedTransmissionFleet open(Path file) throws IOException {
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+    try {
+      ByteBuffer start = read(channel, 0, 16);
+      if (start.getInt() != MAGIC || start.getInt() != VERSION) {
+        throw new IOException(file + " is not a transmission fleet file");
+      }
+      int size = start.getInt();
+      int gears = start.getInt();
+      if (size < 0 || gears < 1 || gears > 256
+              || channel.size() < headerBytes(gears) + (long) size * RECORD_BYTES) {
+        throw new IOException(file + " is not a complete transmission fleet file");
+      }
+
+      ByteBuffer ranges = read(channel, 16, gears * 8);
+      int[] lowerSpeed = new int[gears];
+      int[] higherSpeed = new int[gears];
+      for (int i = 0; i < gears; i++) {
+        lowerSpeed[i] = ranges.getInt();
+        higherSpeed[i] = ranges.getInt();
+      }
+      return new MappedTransmissionFleet(channel,
+              GearProfile.of(lowerSpeed, higherSpeed).getTransitions(), size);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private static ByteBuffer read(FileChannel channel, long position, int length)
+          throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("unexpected end of the transmission fleet file");
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  // the records start on a 64-byte boundary after the header
+  private static long headerBytes(int gears) {
+    return (16 + gears * 8L + 63) & ~63L;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public TransitionTable getProfile() {
+    return profile;
+  }
+
+  private int record(int id) {
+    return chunks[id >>> CHUNK_SHIFT].getInt((id & CHUNK_MASK) * RECORD_BYTES);
+  }
+
+  @Override
+  public int getGear(int id) {
+    return (record(checkId(id)) >>> 24) + 1;
+  }
+
+  @Override
+  public int getSpeed(int id) {
+    return (short) record(checkId(id));
+  }
+
+  @Override
+  public TransmissionStatus getStatusCode(int id) {
+    return TransmissionStatus.of((record(checkId(id)) >>> 16) & 0xFF);
+  }
+
+  @Override
+  public void apply(int id, int action) {
+    int record = record(checkId(id));
+    int gear = (record >>> 24) + 1;
+    int speed = (short) record;
+    int code = (record >>> 16) & 0xFF;
+
+    int entry = profile.entry(gear, speed, action);
+    if (TransitionTable.status(entry) != TransitionTable.UNCHANGED) {
+      code = TransitionTable.status(entry);
+    }
+    gear += TransitionTable.gearChange(entry);
+    speed += TransitionTable.speedChange(entry);
+
+    chunks[id >>> CHUNK_SHIFT].putInt((id & CHUNK_MASK) * RECORD_BYTES,
+            (gear - 1) << 24 | code << 16 | (speed & 0xFFFF));
+  }
+
+  private int checkId(int id) {
+    if (id < 0 || id >= size) {
+      throw new IndexOutOfBoundsException("no transmission with id " + id);
+    }
+    return id;
+  }
+
+  /**
+   * Writes every changed record of this fleet to the disk.
+   */
+  public void force() {
+    for (MappedByteBuffer chunk : chunks) {
+      chunk.force();
+    }
+  }
+
+  /**
+   * Closes the file of this fleet. The mapped records stay readable until they are garbage
+   * collected, but should not be used after the fleet is closed.
+   *
+   * @throws IOException if the file cannot be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
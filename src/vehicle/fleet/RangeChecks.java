@@ -0,0 +1,68 @@
+package vehicle.fleet;
+
+/**
+ * Represents the check of the speed of every transmission of a fleet against a bound that
+ * depends on its gear, with the result written as one bit per transmission. This class does
+ * it one transmission at a time. When the {@code jdk.incubator.vector} module is present,
+ * {@link #INSTANCE} is instead a subclass that does it many transmissions at a time with the
+ * Vector API, unless the system property {@code vehicle.fleet.vector} is {@code false}.
+ */
+class RangeChecks {
+
+  static final RangeChecks INSTANCE = load();
+
+  private static RangeChecks load() {
+    if (Boolean.parseBoolean(System.getProperty("vehicle.fleet.vector", "true"))
+            && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+      try {
+        return (RangeChecks) Class.forName("vehicle.fleet.VectorRangeChecks")
+                .getDeclaredConstructor().newInstance();
+      } catch (ReflectiveOperationException | LinkageError e) {
+        // the shapes of this machine are not supported, so the scalar checks will do
+      }
+    }
+    return new RangeChecks();
+  }
+
+  /**
+   * Sets the bit of every transmission whose speed is at least the bound of its gear.
+   *
+   * @param gears the gear of every transmission.
+   * @param speeds the speed of every transmission.
+   * @param size the number of transmissions.
+   * @param bounds the bound of every gear, indexed by the gear.
+   * @param bits the bits to set, which must be clear.
+   */
+  void atLeast(byte[] gears, short[] speeds, int size, int[] bounds, long[] bits) {
+    atLeast(gears, speeds, 0, size, bounds, bits);
+  }
+
+  /**
+   * Sets the bit of every transmission whose speed is at most the bound of its gear.
+   *
+   * @param gears the gear of every transmission.
+   * @param speeds the speed of every transmission.
+   * @param size the number of transmissions.
+   * @param bounds the bound of every gear, indexed by the gear.
+   * @param bits the bits to set, which must be clear.
+   */
+  void atMost(byte[] gears, short[] speeds, int size, int[] bounds, long[] bits) {
+    atMost(gears, speeds, 0, size, bounds, bits);
+  }
+
+  static void atLeast(byte[] gears, short[] speeds, int from, int to, int[] bounds,
+                      long[] bits) {
+    // the sign of bound - speed - 1 is the bit, which spares a branch the speeds of a
+    // fleet would mispredict
+    for (int i = from; i < to; i++) {
+      bits[i >>> 6] |= ((long) bounds[gears[i]] - speeds[i] - 1 >>> 63) << i;
+    }
+  }
+
+  static void atMost(byte[] gears, short[] speeds, int from, int to, int[] bounds,
+                     long[] bits) {
+    for (int i = from; i < to; i++) {
+      bits[i >>> 6] |= ((long) speeds[i] - bounds[gears[i]] - 1 >>> 63) << i;
+    }
+  }
+}
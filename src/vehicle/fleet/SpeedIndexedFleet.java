@@ -0,0 +1,241 @@
+package vehicle.fleet;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntConsumer;
+
+import vehicle.TransitionTable;
+import vehicle.TransmissionStatus;
+
+/**
+ * Represents a fleet with an index of which transmissions are at each speed in each gear,
+ * kept up to date on every action, so that the transmissions of a gear within a range of
+ * speeds are found without looking at the others. Every action goes through to another
+ * fleet, which must not be changed other than through this one.
+ *
+ * <p>Every (gear, speed) has a bucket that links the ids at that state to each other, and
+ * one bit per bucket tells whether it holds any, so an action moves one id between two
+ * buckets and a query costs as much as the ids it finds plus one step per 64 speeds of its
+ * range. The index is not thread-safe: actions and queries must not run at the same time.
+ */
+public final class SpeedIndexedFleet implements Fleet {
+
+  // the buckets and their links hold an int per state and per transmission
+  private static final int MAX_STATES = 1 << 24;
+  private static final int NONE = -1;
+
+  private final Fleet delegate;
+  private final TransitionTable profile;
+  private final int minSpeed;
+  private final int maxSpeed;
+  private final int span;
+  private final int[] first;
+  private final int[] sizes;
+  private final long[] occupied;
+  private final int[] next;
+  private final int[] previous;
+
+  /**
+   * Constructs the index of a fleet, with every transmission as it is now.
+   *
+   * @param delegate the fleet every action goes through to.
+   * @throws IllegalArgumentException if the speed ranges have too many states to index.
+   */
+  public SpeedIndexedFleet(Fleet delegate) throws IllegalArgumentException {
+    this.delegate = delegate;
+    this.profile = delegate.getProfile();
+    this.minSpeed = profile.getMinSpeed();
+    this.maxSpeed = profile.getMaxSpeed();
+    long speeds = (long) maxSpeed - minSpeed + 1;
+    if (speeds * profile.getGears() > MAX_STATES) {
+      throw new IllegalArgumentException("the speed ranges have too many states to index");
+    }
+    this.span = (int) speeds;
+    int buckets = span * profile.getGears();
+    this.first = new int[buckets];
+    this.sizes = new int[buckets];
+    this.occupied = new long[(buckets + 63) >>> 6];
+    this.next = new int[delegate.size()];
+    this.previous = new int[delegate.size()];
+
+    Arrays.fill(first, NONE);
+    for (int id = delegate.size() - 1; id >= 0; id--) {
+      link(id, bucket(delegate.getGear(id), delegate.getSpeed(id)));
+    }
+  }
+
+  private int bucket(int gear, int speed) {
+    return (gear - 1) * span + (speed - minSpeed);
+  }
+
+  private void link(int id, int bucket) {
+    int head = first[bucket];
+    next[id] = head;
+    previous[id] = NONE;
+    if (head != NONE) {
+      previous[head] = id;
+    }
+    first[bucket] = id;
+    if (sizes[bucket]++ == 0) {
+      occupied[bucket >>> 6] |= 1L << bucket;
+    }
+  }
+
+  private void unlink(int id, int bucket) {
+    int before = previous[id];
+    int after = next[id];
+    if (before == NONE) {
+      first[bucket] = after;
+    } else {
+      next[before] = after;
+    }
+    if (after != NONE) {
+      previous[after] = before;
+    }
+    if (--sizes[bucket] == 0) {
+      occupied[bucket >>> 6] &= ~(1L << bucket);
+    }
+  }
+
+  @Override
+  public int size() {
+    return delegate.size();
+  }
+
+  @Override
+  public TransitionTable getProfile() {
+    return profile;
+  }
+
+  @Override
+  public int getGear(int id) {
+    return delegate.getGear(id);
+  }
+
+  @Override
+  public int getSpeed(int id) {
+    return delegate.getSpeed(id);
+  }
+
+  @Override
+  public TransmissionStatus getStatusCode(int id) {
+    return delegate.getStatusCode(id);
+  }
+
+  @Override
+  public void apply(int id, int action) {
+    int gear = delegate.getGear(id);
+    int speed = delegate.getSpeed(id);
+    int entry = profile.entry(gear, speed, action);
+    delegate.apply(id, action);
+
+    int gearChange = TransitionTable.gearChange(entry);
+    int speedChange = TransitionTable.speedChange(entry);
+    if (gearChange != 0 || speedChange != 0) {
+      unlink(id, bucket(gear, speed));
+      link(id, bucket(gear + gearChange, speed + speedChange));
+    }
+  }
+
+  @Override
+  public BitSet mayIncreaseGear() {
+    return delegate.mayIncreaseGear();
+  }
+
+  @Override
+  public BitSet mayDecreaseGear() {
+    return delegate.mayDecreaseGear();
+  }
+
+  /**
+   * Gives the id of every transmission in a gear whose speed is within a range, from the
+   * lowest speed to the highest. The order of the ids at one speed is not specified.
+   *
+   * @param gear the gear, from 1 to the number of gears.
+   * @param fromSpeed the lowest speed of the range.
+   * @param toSpeed the highest speed of the range.
+   * @param action what to do with every id.
+   * @throws IllegalArgumentException if there is no such gear.
+   */
+  public void forEachInRange(int gear, int fromSpeed, int toSpeed, IntConsumer action)
+          throws IllegalArgumentException {
+    checkGear(gear);
+    int from = Math.max(fromSpeed, minSpeed);
+    int to = Math.min(toSpeed, maxSpeed);
+    if (from > to) {
+      return;
+    }
+    int end = bucket(gear, to) + 1;
+    for (int bucket = nextOccupied(bucket(gear, from), end); bucket < end;
+         bucket = nextOccupied(bucket + 1, end)) {
+      for (int id = first[bucket]; id != NONE; id = next[id]) {
+        action.accept(id);
+      }
+    }
+  }
+
+  /**
+   * Gets the id of every transmission in a gear whose speed is within a range, from the
+   * lowest speed to the highest.
+   *
+   * @param gear the gear, from 1 to the number of gears.
+   * @param fromSpeed the lowest speed of the range.
+   * @param toSpeed the highest speed of the range.
+   * @return the ids.
+   * @throws IllegalArgumentException if there is no such gear.
+   */
+  public int[] findInRange(int gear, int fromSpeed, int toSpeed)
+          throws IllegalArgumentException {
+    int[] ids = new int[countInRange(gear, fromSpeed, toSpeed)];
+    int[] count = new int[1];
+    forEachInRange(gear, fromSpeed, toSpeed, id -> ids[count[0]++] = id);
+    return ids;
+  }
+
+  /**
+   * Gets the number of transmissions in a gear whose speed is within a range.
+   *
+   * @param gear the gear, from 1 to the number of gears.
+   * @param fromSpeed the lowest speed of the range.
+   * @param toSpeed the highest speed of the range.
+   * @return the number of transmissions.
+   * @throws IllegalArgumentException if there is no such gear.
+   */
+  public int countInRange(int gear, int fromSpeed, int toSpeed)
+          throws IllegalArgumentException {
+    checkGear(gear);
+    int from = Math.max(fromSpeed, minSpeed);
+    int to = Math.min(toSpeed, maxSpeed);
+    int count = 0;
+    if (from <= to) {
+      int end = bucket(gear, to) + 1;
+      for (int bucket = nextOccupied(bucket(gear, from), end); bucket < end;
+           bucket = nextOccupied(bucket + 1, end)) {
+        count += sizes[bucket];
+      }
+    }
+    return count;
+  }
+
+  private void checkGear(int gear) {
+    if (gear < 1 || gear > profile.getGears()) {
+      throw new IllegalArgumentException("there is no gear " + gear);
+    }
+  }
+
+  // the first bucket from the given one that holds any id, or the end if there is none
+  private int nextOccupied(int bucket, int end) {
+    if (bucket >= end) {
+      return end;
+    }
+    int word = bucket >>> 6;
+    long bits = occupied[word] & -1L << bucket;
+    while (bits == 0) {
+      if (++word << 6 >= end) {
+        return end;
+      }
+      bits = occupied[word];
+    }
+    return Math.min(end, word << 6 | Long.numberOfTrailingZeros(bits));
+  }
+}
@@ -0,0 +1,77 @@
+package vehicle.fleet;
+
+import java.util.Arrays;
+
+import vehicle.TransmissionStatus;
+
+/**
+ * Represents how many transmissions are in each status.
+ */
+public final class StatusCounts {
+
+  private final long[] counts;
+
+  /**
+   * Constructs the counts from an array indexed by the ordinal of each status.
+   *
+   * @param counts the number of transmissions in each status.
+   * @throws IllegalArgumentException if there is not one count per status.
+   */
+  public StatusCounts(long[] counts) throws IllegalArgumentException {
+    if (counts.length != TransmissionStatus.values().length) {
+      throw new IllegalArgumentException("there must be one count per status");
+    }
+    this.counts = counts.clone();
+  }
+
+  /**
+   * Gets the number of transmissions in the given status.
+   * @param status the status.
+   * @return the number of transmissions in that status.
+   */
+  public long get(TransmissionStatus status) {
+    return counts[status.ordinal()];
+  }
+
+  /**
+   * Gets the number of transmissions counted.
+   * @return the sum of the counts of every status.
+   */
+  public long total() {
+    long total = 0;
+    for (long count : counts) {
+      total += count;
+    }
+    return total;
+  }
+
+  /**
+   * Gets the counts as an array indexed by the ordinal of each status.
+   * @return a copy of the counts.
+   */
+  public long[] toArray() {
+    return counts.clone();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof StatusCounts && Arrays.equals(counts, ((StatusCounts) o).counts);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(counts);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder("{");
+    for (TransmissionStatus status : TransmissionStatus.values()) {
+      if (result.length() > 1) {
+        result.append(", ");
+      }
+      result.append(status).append('=').append(counts[status.ordinal()]);
+    }
+    return result.append('}').toString();
+  }
+}
@@ -0,0 +1,128 @@
+package vehicle.fleet;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import vehicle.TransitionTable;
+import vehicle.TransmissionStatus;
+
+/**
+ * Represents a fleet of transmissions kept on the heap. Instead of one object per
+ * transmission, the gear, speed and status of every transmission are kept in flat primitive
+ * arrays indexed by the id of the transmission, and every action goes through the one
+ * transition table of the fleet.
+ *
+ * <p>Which transmissions may shift up or down is found by comparing every speed with the
+ * lowest speed its gear shifts up from, or the highest one it shifts down from, many
+ * transmissions at a time when the Vector API is available.
+ */
+public class TransmissionFleet implements Fleet {
+
+  private final TransitionTable profile;
+  private final byte[] gear;
+  private final short[] speed;
+  private final byte[] status;
+  // the lowest speed every gear goes up from and the highest one it goes down from,
+  // indexed by the gear
+  private final int[] upFrom;
+  private final int[] downFrom;
+
+  /**
+   * Constructs a fleet of transmissions that all start in gear 1 with speed 0.
+   *
+   * @param profile the transition table of the speed ranges every transmission shares.
+   * @param size the number of transmissions.
+   * @throws IllegalArgumentException if the size is negative, or the speeds or gears of
+   *                                  the profile do not fit in the arrays of the fleet.
+   */
+  public TransmissionFleet(TransitionTable profile, int size) throws IllegalArgumentException {
+    if (size < 0) {
+      throw new IllegalArgumentException("the size of a fleet cannot be negative");
+    } else if (profile.getMinSpeed() < Short.MIN_VALUE
+            || profile.getMaxSpeed() > Short.MAX_VALUE) {
+      throw new IllegalArgumentException("the speeds of the fleet must fit in a short");
+    } else if (profile.getGears() > Byte.MAX_VALUE) {
+      throw new IllegalArgumentException("the gears of the fleet must fit in a byte");
+    }
+
+    this.profile = profile;
+    this.gear = new byte[size];
+    this.speed = new short[size];
+    this.status = new byte[size];
+    Arrays.fill(gear, (byte) 1);
+    Arrays.fill(status, (byte) TransmissionStatus.OK_EVERYTHING_IS_OK.ordinal());
+    this.upFrom = new int[profile.getGears() + 1];
+    this.downFrom = new int[profile.getGears() + 1];
+    shiftBounds(profile, upFrom, downFrom);
+  }
+
+  // a gear goes up by one when the speed reaches the lower speed of the next gear or, as the
+  // legacy check of the table also allows, the lower speed of the gear after that; it goes
+  // down when the speed is within the higher speed of the previous gear
+  private static void shiftBounds(TransitionTable profile, int[] upFrom, int[] downFrom) {
+    int gears = profile.getGears();
+    upFrom[0] = Integer.MAX_VALUE;
+    downFrom[0] = Integer.MIN_VALUE;
+    for (int g = 1; g <= gears; g++) {
+      upFrom[g] = Integer.MAX_VALUE;
+      if (g < gears) {
+        upFrom[g] = profile.getLowerSpeed(g + 1);
+      }
+      if (g + 1 < gears) {
+        upFrom[g] = Math.min(upFrom[g], profile.getLowerSpeed(g + 2));
+      }
+      downFrom[g] = g > 1 ? profile.getHigherSpeed(g - 1) : Integer.MIN_VALUE;
+    }
+  }
+
+  @Override
+  public int size() {
+    return gear.length;
+  }
+
+  @Override
+  public TransitionTable getProfile() {
+    return profile;
+  }
+
+  @Override
+  public int getGear(int id) {
+    return gear[id];
+  }
+
+  @Override
+  public int getSpeed(int id) {
+    return speed[id];
+  }
+
+  @Override
+  public TransmissionStatus getStatusCode(int id) {
+    return TransmissionStatus.of(status[id]);
+  }
+
+  @Override
+  public void apply(int id, int action) {
+    int entry = profile.entry(gear[id], speed[id], action);
+    int code = TransitionTable.status(entry);
+
+    gear[id] += TransitionTable.gearChange(entry);
+    speed[id] += TransitionTable.speedChange(entry);
+    if (code != TransitionTable.UNCHANGED) {
+      status[id] = (byte) code;
+    }
+  }
+
+  @Override
+  public BitSet mayIncreaseGear() {
+    long[] bits = new long[(size() + 63) >>> 6];
+    RangeChecks.INSTANCE.atLeast(gear, speed, size(), upFrom, bits);
+    return BitSet.valueOf(bits);
+  }
+
+  @Override
+  public BitSet mayDecreaseGear() {
+    long[] bits = new long[(size() + 63) >>> 6];
+    RangeChecks.INSTANCE.atMost(gear, speed, size(), downFrom, bits);
+    return BitSet.valueOf(bits);
+  }
+}
@@ -0,0 +1,68 @@
+package vehicle.fleet;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Represents the range checks of a fleet done with the Vector API. The gears and speeds of
+ * as many transmissions as there are int lanes are widened to ints, the bound of every lane
+ * is gathered from the bounds by its gear, and one comparison gives the bits of all of them.
+ * This class is only loaded by {@link RangeChecks} when the {@code jdk.incubator.vector}
+ * module is present.
+ */
+final class VectorRangeChecks extends RangeChecks {
+
+  private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+  private static final VectorSpecies<Byte> BYTES = VectorSpecies.of(byte.class,
+          VectorShape.forBitSize(INTS.length() * Byte.SIZE));
+  private static final VectorSpecies<Short> SHORTS = VectorSpecies.of(short.class,
+          VectorShape.forBitSize(INTS.length() * Short.SIZE));
+  // lane n holds bit n, so the lanes that pass are or-ed into their bits
+  private static final IntVector NONE = IntVector.zero(INTS);
+  private static final IntVector LANE_BITS = IntVector.broadcast(INTS, 1)
+          .lanewise(VectorOperators.LSHL, NONE.addIndex(1));
+  private static final long LANE_MASK = -1L >>> (Long.SIZE - INTS.length());
+
+  @Override
+  void atLeast(byte[] gears, short[] speeds, int size, int[] bounds, long[] bits) {
+    int done = check(gears, speeds, size, bounds, bits, false);
+    atLeast(gears, speeds, done, size, bounds, bits);
+  }
+
+  @Override
+  void atMost(byte[] gears, short[] speeds, int size, int[] bounds, long[] bits) {
+    int done = check(gears, speeds, size, bounds, bits, true);
+    atMost(gears, speeds, done, size, bounds, bits);
+  }
+
+  // checks whole vectors of transmissions and returns how many were checked; both checks
+  // compare with GE, as the comparison is only compiled to one instruction when it is a
+  // constant
+  private static int check(byte[] gears, short[] speeds, int size, int[] bounds, long[] bits,
+                           boolean atMost) {
+    int lanes = INTS.length();
+    int upper = INTS.loopBound(size);
+    int[] indexes = new int[lanes];
+
+    for (int i = 0; i < upper; i += lanes) {
+      IntVector gear = (IntVector) ByteVector.fromArray(BYTES, gears, i)
+              .convertShape(VectorOperators.B2I, INTS, 0);
+      IntVector speed = (IntVector) ShortVector.fromArray(SHORTS, speeds, i)
+              .convertShape(VectorOperators.S2I, INTS, 0);
+      gear.intoArray(indexes, 0);
+      IntVector bound = IntVector.fromArray(INTS, bounds, 0, indexes, 0);
+
+      VectorMask<Integer> passed = atMost ? bound.compare(VectorOperators.GE, speed)
+              : speed.compare(VectorOperators.GE, bound);
+      long word = NONE.blend(LANE_BITS, passed).reduceLanes(VectorOperators.OR) & LANE_MASK;
+      // the number of lanes divides 64, so the bits of a vector never span two words
+      bits[i >>> 6] |= word << (i & 63);
+    }
+    return upper;
+  }
+}
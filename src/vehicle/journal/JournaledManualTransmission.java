@@ -0,0 +1,93 @@
+package vehicle.journal;
+
+import vehicle.ManualTransmission;
+import vehicle.TransitionTable;
+import vehicle.TransmissionStatus;
+
+/**
+ * Represents a manual transmission that records every command done on it in a
+ * {@link TransmissionJournal}, after passing the command on to another transmission. The
+ * other transmission may either change itself or return a new one.
+ */
+public final class JournaledManualTransmission implements ManualTransmission {
+
+  private final TransmissionJournal journal;
+  private final int vehicleId;
+  private ManualTransmission delegate;
+
+  JournaledManualTransmission(TransmissionJournal journal, int vehicleId,
+                              ManualTransmission delegate) {
+    this.journal = journal;
+    this.vehicleId = vehicleId;
+    this.delegate = delegate;
+  }
+
+  /**
+   * Gets the id this transmission is recorded under.
+   * @return the id of the vehicle.
+   */
+  public int getVehicleId() {
+    return vehicleId;
+  }
+
+  private ManualTransmission record(int command, int argument, ManualTransmission after) {
+    this.delegate = after;
+    journal.append(vehicleId, command, argument, after);
+    return this;
+  }
+
+  @Override
+  public String getStatus() {
+    return delegate.getStatus();
+  }
+
+  @Override
+  public TransmissionStatus getStatusCode() {
+    return delegate.getStatusCode();
+  }
+
+  @Override
+  public int getSpeed() {
+    return delegate.getSpeed();
+  }
+
+  @Override
+  public int getGear() {
+    return delegate.getGear();
+  }
+
+  @Override
+  public ManualTransmission increaseSpeed() {
+    return record(TransitionTable.INCREASE_SPEED, 0, delegate.increaseSpeed());
+  }
+
+  @Override
+  public ManualTransmission decreaseSpeed() {
+    return record(TransitionTable.DECREASE_SPEED, 0, delegate.decreaseSpeed());
+  }
+
+  @Override
+  public ManualTransmission increaseGear() {
+    return record(TransitionTable.INCREASE_GEAR, 0, delegate.increaseGear());
+  }
+
+  @Override
+  public ManualTransmission decreaseGear() {
+    return record(TransitionTable.DECREASE_GEAR, 0, delegate.decreaseGear());
+  }
+
+  @Override
+  public ManualTransmission increaseSpeed(int delta) throws IllegalArgumentException {
+    return record(TransmissionJournal.INCREASE_SPEED_BY, delta, delegate.increaseSpeed(delta));
+  }
+
+  @Override
+  public ManualTransmission decreaseSpeed(int delta) throws IllegalArgumentException {
+    return record(TransmissionJournal.DECREASE_SPEED_BY, delta, delegate.decreaseSpeed(delta));
+  }
+
+  @Override
+  public ManualTransmission setSpeedClamped(int speed) {
+    return record(TransmissionJournal.SET_SPEED_CLAMPED, speed, delegate.setSpeedClamped(speed));
+  }
+}
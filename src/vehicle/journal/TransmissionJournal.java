@@ -0,0 +1,485 @@
+package vehicle.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import vehicle.ManualTransmission;
+import vehicle.TransitionTable;
+import vehicle.TransmissionState;
+import vehicle.TransmissionStatus;
+
+/**
+ * Represents an append-only record of every command done on a set of transmissions that
+ * share the same speed ranges, kept in a directory so that their states can be rebuilt after
+ * a crash.
+ *
+ * <p>The log file holds one 12-byte record per command: the id of the vehicle, the command,
+ * the status the transmission reported after it, the gear (only for {@link #STATE} records)
+ * and the argument of the command. Records are gathered in a buffer and written in batches.
+ * Every few records, the state of every vehicle is written to the snapshot file together with
+ * the length of the log at that moment, so a state is rebuilt from the latest snapshot and the
+ * records written after it rather than from the whole history. The snapshot file only holds
+ * the latest snapshot: each one is written to a temporary file that then replaces it.
+ *
+ * <p>The command that reaches a snapshot only pays for a copy of the states in memory, and
+ * the copy is written by a thread of the journal. A snapshot that is due while the last one
+ * is still being written waits for the next command.
+ *
+ * <p>The journal also follows the state of every vehicle as the records are added, so the
+ * current state of a vehicle can be read without going to the files.
+ */
+public final class TransmissionJournal implements Closeable {
+
+  /** The command that increases the speed by its argument. */
+  public static final int INCREASE_SPEED_BY = 4;
+  /** The command that decreases the speed by its argument. */
+  public static final int DECREASE_SPEED_BY = 5;
+  /** The command that moves the speed towards its argument. */
+  public static final int SET_SPEED_CLAMPED = 6;
+  /** The record of the whole state of a transmission when it is attached. */
+  public static final int STATE = 7;
+
+  private static final String LOG_FILE = "transmissions.log";
+  private static final String SNAPSHOT_FILE = "transmissions.snapshot";
+  private static final String PARTIAL_SNAPSHOT_FILE = "transmissions.snapshot.tmp";
+  private static final int RECORD_BYTES = 12;
+  private static final int ENTRY_BYTES = 12;
+  // the length of the log when the snapshot was taken, and the magic number
+  private static final int TRAILER_BYTES = 12;
+  // a file of the former layout, with the start of the last of many snapshots in its trailer,
+  // does not end with this, so its log is read from the beginning
+  private static final int MAGIC = 0x534E5032;
+  private static final int BATCH_BYTES = RECORD_BYTES * 4096;
+  // snapshots are written and read this many entries at a time
+  private static final int ENTRIES_PER_CHUNK = 4096;
+  private static final long START = TransitionTable.state(1, 0,
+          TransmissionStatus.OK_EVERYTHING_IS_OK.ordinal());
+
+  private final TransitionTable profile;
+  private final Path directory;
+  private final FileChannel log;
+  private final ByteBuffer batch;
+  private final int snapshotEvery;
+  private final States current;
+  // writes the snapshots one after the other, in the order they were taken
+  private final ExecutorService snapshotter;
+  private Future<?> pendingSnapshot;
+  private long logSize;
+  private int sinceSnapshot;
+
+  private TransmissionJournal(TransitionTable profile, Path directory, FileChannel log,
+                              int snapshotEvery) throws IOException {
+    this.profile = profile;
+    this.directory = directory;
+    this.log = log;
+    this.snapshotEvery = snapshotEvery;
+    this.batch = ByteBuffer.allocateDirect(BATCH_BYTES);
+    this.current = new States();
+    this.snapshotter = Executors.newSingleThreadExecutor(task -> {
+      Thread thread = new Thread(task, "transmission-journal-snapshots");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    // a crash can leave half a record at the end of the log
+    this.logSize = log.size() - log.size() % RECORD_BYTES;
+    log.truncate(logSize);
+    try {
+      replay(-1, current);
+    } catch (IOException | RuntimeException e) {
+      snapshotter.shutdown();
+      throw e;
+    }
+  }
+
+  /**
+   * Opens the journal kept in the given directory, or starts a new one if there is none, and
+   * rebuilds the state of every vehicle recorded in it.
+   *
+   * @param directory the directory of the journal.
+   * @param profile the transition table of the speed ranges of every vehicle.
+   * @param snapshotEvery the number of records between two snapshots.
+   * @return the journal.
+   * @throws IOException if the files of the journal cannot be read or written.
+   * @throws IllegalArgumentException if the number of records between snapshots is not
+   *                                  positive.
+   */
+  public static TransmissionJournal open(Path directory, TransitionTable profile,
+                                         int snapshotEvery)
+          throws IOException, IllegalArgumentException {
+    if (snapshotEvery <= 0) {
+      throw new IllegalArgumentException("there must be records between snapshots");
+    }
+    Files.createDirectories(directory);
+    FileChannel log = FileChannel.open(directory.resolve(LOG_FILE), StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      return new TransmissionJournal(profile, directory, log, snapshotEvery);
+    } catch (IOException | RuntimeException e) {
+      log.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Starts recording the commands done on a transmission. The current state of the
+   * transmission is recorded first, and every command done through the returned
+   * transmission is recorded after it is done.
+   *
+   * @param vehicleId the id of the vehicle, which must not be negative.
+   * @param transmission the transmission of that vehicle.
+   * @return the transmission that records its commands in this journal.
+   * @throws IllegalArgumentException if the id is negative.
+   */
+  public JournaledManualTransmission attach(int vehicleId, ManualTransmission transmission)
+          throws IllegalArgumentException {
+    if (vehicleId < 0) {
+      throw new IllegalArgumentException("the id of a vehicle cannot be negative");
+    }
+    append(vehicleId, STATE, transmission.getSpeed(), transmission);
+    return new JournaledManualTransmission(this, vehicleId, transmission);
+  }
+
+  synchronized void append(int vehicleId, int command, int argument, ManualTransmission after) {
+    try {
+      if (batch.remaining() < RECORD_BYTES) {
+        writeBatch();
+      }
+      int gear = command == STATE ? after.getGear() : 0;
+      batch.putInt(vehicleId).put((byte) command).put((byte) after.getStatusCode().ordinal())
+              .putShort((short) gear).putInt(argument);
+      current.put(vehicleId, apply(current.get(vehicleId), command, gear,
+              after.getStatusCode().ordinal(), argument));
+
+      if (++sinceSnapshot >= snapshotEvery
+              && (pendingSnapshot == null || pendingSnapshot.isDone())) {
+        awaitSnapshot();
+        startSnapshot();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private long apply(long state, int command, int gear, int status, int argument) {
+    switch (command) {
+      case STATE:
+        return TransitionTable.state(gear, argument, status);
+      case INCREASE_SPEED_BY:
+        return profile.repeat(state, TransitionTable.INCREASE_SPEED, argument);
+      case DECREASE_SPEED_BY:
+        return profile.repeat(state, TransitionTable.DECREASE_SPEED, argument);
+      case SET_SPEED_CLAMPED:
+        return profile.moveTo(state, argument);
+      default:
+        return profile.next(state, command);
+    }
+  }
+
+  /**
+   * Gets the current state of a vehicle, as followed by this journal.
+   *
+   * @param vehicleId the id of the vehicle.
+   * @return the state of that vehicle.
+   * @throws IllegalArgumentException if nothing was recorded for that vehicle.
+   */
+  public synchronized TransmissionState getState(int vehicleId) throws IllegalArgumentException {
+    if (!current.has(vehicleId)) {
+      throw new IllegalArgumentException("nothing was recorded for vehicle " + vehicleId);
+    }
+    return TransmissionState.of(current.get(vehicleId));
+  }
+
+  /**
+   * Rebuilds the state of a vehicle from the files of this journal, starting from the
+   * latest snapshot and going through the records written after it.
+   *
+   * @param vehicleId the id of the vehicle.
+   * @return the state of that vehicle.
+   * @throws IOException if the files of the journal cannot be read.
+   * @throws IllegalArgumentException if nothing was recorded for that vehicle.
+   */
+  public synchronized TransmissionState replay(int vehicleId)
+          throws IOException, IllegalArgumentException {
+    if (vehicleId < 0) {
+      throw new IllegalArgumentException("the id of a vehicle cannot be negative");
+    }
+    writeBatch();
+    States states = new States();
+    replay(vehicleId, states);
+    if (!states.has(vehicleId)) {
+      throw new IllegalArgumentException("nothing was recorded for vehicle " + vehicleId);
+    }
+    return TransmissionState.of(states.get(vehicleId));
+  }
+
+  // rebuilds one vehicle, or every vehicle when the id is negative
+  private void replay(int vehicleId, States states) throws IOException {
+    long position = readSnapshot(vehicleId, states);
+    ByteBuffer records = ByteBuffer.allocate(BATCH_BYTES);
+    while (position < logSize) {
+      records.clear().limit((int) Math.min(BATCH_BYTES, logSize - position));
+      read(log, records, position);
+      position += records.limit();
+
+      while (records.hasRemaining()) {
+        int id = records.getInt();
+        int command = records.get();
+        int status = records.get();
+        int gear = records.getShort();
+        int argument = records.getInt();
+        if (vehicleId < 0 || id == vehicleId) {
+          states.put(id, apply(states.get(id), command, gear, status, argument));
+        }
+      }
+    }
+  }
+
+  // reads the latest snapshot and returns the length of the log when it was taken
+  private long readSnapshot(int vehicleId, States states) throws IOException {
+    // a new snapshot replaces the file, and the one opened here stays as it is
+    try (FileChannel snapshots = FileChannel.open(directory.resolve(SNAPSHOT_FILE),
+            StandardOpenOption.READ)) {
+      return readSnapshot(snapshots, vehicleId, states);
+    } catch (NoSuchFileException e) {
+      return 0;
+    }
+  }
+
+  private long readSnapshot(FileChannel snapshots, int vehicleId, States states)
+          throws IOException {
+    long size = snapshots.size();
+    if (size < TRAILER_BYTES + 4) {
+      return 0;
+    }
+    ByteBuffer trailer = read(snapshots, ByteBuffer.allocate(TRAILER_BYTES),
+            size - TRAILER_BYTES);
+    long position = trailer.getLong();
+    if (trailer.getInt() != MAGIC || position > logSize) {
+      // the snapshot was not finished, so the whole log has to be read
+      return 0;
+    }
+    int count = read(snapshots, ByteBuffer.allocate(4), 0).getInt();
+    if (count < 0 || 4 + (long) count * ENTRY_BYTES + TRAILER_BYTES != size) {
+      return 0;
+    }
+
+    if (vehicleId < 0) {
+      ByteBuffer entries = ByteBuffer.allocate(ENTRIES_PER_CHUNK * ENTRY_BYTES);
+      for (int done = 0; done < count; ) {
+        int chunk = Math.min(ENTRIES_PER_CHUNK, count - done);
+        entries.clear().limit(chunk * ENTRY_BYTES);
+        read(snapshots, entries, 4 + (long) done * ENTRY_BYTES);
+        for (int i = 0; i < chunk; i++) {
+          readEntry(entries, states);
+        }
+        done += chunk;
+      }
+      return position;
+    }
+
+    // the entries are sorted by id, so one vehicle is found with a binary search
+    int low = 0;
+    int high = count - 1;
+    ByteBuffer entry = ByteBuffer.allocate(ENTRY_BYTES);
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      read(snapshots, entry.clear(), 4 + (long) middle * ENTRY_BYTES);
+      int id = entry.getInt(0);
+      if (id < vehicleId) {
+        low = middle + 1;
+      } else if (id > vehicleId) {
+        high = middle - 1;
+      } else {
+        readEntry(entry, states);
+        break;
+      }
+    }
+    return position;
+  }
+
+  private static void readEntry(ByteBuffer entries, States states) {
+    int id = entries.getInt();
+    int gear = entries.getShort();
+    int status = entries.get();
+    entries.get();
+    int speed = entries.getInt();
+    states.put(id, TransitionTable.state(gear, speed, status));
+  }
+
+  private static ByteBuffer read(FileChannel channel, ByteBuffer buffer, long position)
+          throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("unexpected end of the journal");
+      }
+    }
+    return buffer.flip();
+  }
+
+  /**
+   * Writes the state of every vehicle to the snapshot file right away, and waits until it is
+   * written. This is also done on its own every few records, as given when the journal was
+   * opened.
+   *
+   * @throws IOException if the files of the journal cannot be written.
+   */
+  public synchronized void snapshot() throws IOException {
+    awaitSnapshot();
+    startSnapshot();
+    awaitSnapshot();
+  }
+
+  // copies the states and hands them to the snapshot thread
+  private void startSnapshot() throws IOException {
+    writeBatch();
+    States states = current.copy();
+    long position = logSize;
+    pendingSnapshot = snapshotter.submit(() -> {
+      writeSnapshot(states, position);
+      return null;
+    });
+    sinceSnapshot = 0;
+  }
+
+  // waits for the snapshot being written, and throws what stopped it from being written
+  private void awaitSnapshot() throws IOException {
+    Future<?> pending = pendingSnapshot;
+    if (pending == null) {
+      return;
+    }
+    pendingSnapshot = null;
+    try {
+      pending.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("interrupted while waiting for a snapshot", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException("the snapshot could not be written", e.getCause());
+    }
+  }
+
+  private void writeSnapshot(States states, long position) throws IOException {
+    Path partial = directory.resolve(PARTIAL_SNAPSHOT_FILE);
+    try (FileChannel snapshots = FileChannel.open(partial, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer chunk = ByteBuffer.allocate(ENTRIES_PER_CHUNK * ENTRY_BYTES);
+      chunk.putInt(states.known.cardinality());
+      for (int id = states.known.nextSetBit(0); id >= 0;
+           id = states.known.nextSetBit(id + 1)) {
+        if (chunk.remaining() < ENTRY_BYTES) {
+          write(snapshots, chunk);
+        }
+        long state = states.get(id);
+        chunk.putInt(id).putShort((short) TransitionTable.gearOf(state))
+                .put((byte) TransitionTable.statusOf(state)).put((byte) 0)
+                .putInt(TransitionTable.speedOf(state));
+      }
+      if (chunk.remaining() < TRAILER_BYTES) {
+        write(snapshots, chunk);
+      }
+      chunk.putLong(position).putInt(MAGIC);
+      write(snapshots, chunk);
+      snapshots.force(false);
+    }
+    Files.move(partial, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  // writes what the buffer holds at the end of the file, and clears it
+  private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  private void writeBatch() throws IOException {
+    batch.flip();
+    while (batch.hasRemaining()) {
+      logSize += log.write(batch, logSize);
+    }
+    batch.clear();
+  }
+
+  /**
+   * Writes every buffered record, forces the log to the disk and waits for the snapshot being
+   * written.
+   *
+   * @throws IOException if the files of the journal cannot be written.
+   */
+  public synchronized void flush() throws IOException {
+    writeBatch();
+    log.force(false);
+    awaitSnapshot();
+  }
+
+  /**
+   * Writes every buffered record, waits for the snapshot being written and closes the files
+   * of this journal.
+   *
+   * @throws IOException if the files of the journal cannot be written or closed.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    try {
+      writeBatch();
+      awaitSnapshot();
+    } finally {
+      try {
+        log.close();
+      } finally {
+        snapshotter.shutdown();
+      }
+    }
+  }
+
+  /**
+   * The packed state of every vehicle, by id.
+   */
+  private static final class States {
+    private final BitSet known = new BitSet();
+    private long[] states = new long[64];
+
+    private boolean has(int id) {
+      return known.get(id);
+    }
+
+    private long get(int id) {
+      return known.get(id) ? states[id] : START;
+    }
+
+    private States copy() {
+      States copy = new States();
+      copy.known.or(known);
+      copy.states = Arrays.copyOf(states, Math.max(64, known.length()));
+      return copy;
+    }
+
+    private void put(int id, long state) {
+      if (id >= states.length) {
+        states = Arrays.copyOf(states, Math.max(id + 1, states.length * 2));
+      }
+      states[id] = state;
+      known.set(id);
+    }
+  }
+}
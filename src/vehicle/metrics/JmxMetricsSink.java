@@ -0,0 +1,129 @@
+package vehicle.metrics;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.ToLongFunction;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import vehicle.TransmissionStatus;
+
+/**
+ * Represents a sink that shows the latest snapshot published to it as an MXBean of the
+ * platform MBean server, where JConsole or any JMX client can read it. The sink also lets
+ * the client switch the counting and timing of the metrics on and off.
+ */
+public final class JmxMetricsSink implements MetricsSink, TransmissionMetricsMXBean, Closeable {
+
+  private final TransmissionMetrics metrics;
+  private final ObjectName name;
+  private final MBeanServer server;
+  private volatile MetricsSnapshot latest;
+
+  /**
+   * Registers a sink for the given metrics under the given name, and adds it to the sinks of
+   * the metrics. It shows the counters as they are now until the next snapshot is published.
+   *
+   * @param metrics the metrics to show.
+   * @param name the name to register the sink under.
+   * @throws JMException if the sink cannot be registered under that name.
+   */
+  public JmxMetricsSink(TransmissionMetrics metrics, ObjectName name) throws JMException {
+    this.metrics = metrics;
+    this.name = name;
+    this.server = ManagementFactory.getPlatformMBeanServer();
+    this.latest = metrics.snapshot();
+    server.registerMBean(this, name);
+    metrics.addSink(this);
+  }
+
+  @Override
+  public void publish(MetricsSnapshot snapshot) {
+    this.latest = snapshot;
+  }
+
+  @Override
+  public long getTotal() {
+    return latest.getTotal();
+  }
+
+  @Override
+  public Map<String, Long> getStatusCounts() {
+    MetricsSnapshot snapshot = latest;
+    Map<String, Long> counts = new TreeMap<>();
+    for (int operation = 0; operation < TransmissionMetrics.OPERATIONS; operation++) {
+      for (TransmissionStatus status : TransmissionStatus.values()) {
+        long count = snapshot.getCount(operation, status);
+        if (count != 0) {
+          counts.put(TransmissionMetrics.getOperationName(operation) + " " + status, count);
+        }
+      }
+    }
+    return counts;
+  }
+
+  private Map<String, Long> latencies(ToLongFunction<LatencySnapshot> value) {
+    MetricsSnapshot snapshot = latest;
+    Map<String, Long> latencies = new TreeMap<>();
+    for (int operation = 0; operation < TransmissionMetrics.OPERATIONS; operation++) {
+      LatencySnapshot latency = snapshot.getLatency(operation);
+      if (latency.getCount() != 0) {
+        latencies.put(TransmissionMetrics.getOperationName(operation),
+                value.applyAsLong(latency));
+      }
+    }
+    return latencies;
+  }
+
+  @Override
+  public Map<String, Long> getLatencyMedian() {
+    return latencies(latency -> latency.getPercentile(50));
+  }
+
+  @Override
+  public Map<String, Long> getLatency99thPercentile() {
+    return latencies(latency -> latency.getPercentile(99));
+  }
+
+  @Override
+  public Map<String, Long> getLatencyMax() {
+    return latencies(LatencySnapshot::getMax);
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return metrics.isEnabled();
+  }
+
+  @Override
+  public void setEnabled(boolean enabled) {
+    metrics.setEnabled(enabled);
+  }
+
+  @Override
+  public boolean isTimed() {
+    return metrics.isTimed();
+  }
+
+  @Override
+  public void setTimed(boolean timed) {
+    metrics.setTimed(timed);
+  }
+
+  /**
+   * Removes this sink from the metrics and unregisters it.
+   */
+  @Override
+  public void close() {
+    metrics.removeSink(this);
+    try {
+      server.unregisterMBean(name);
+    } catch (JMException e) {
+      // already gone
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package vehicle.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Represents the latencies of one operation, counted in fixed buckets whose width grows with
+ * the latency: every power of two is split in eight buckets, so a latency is known to within
+ * an eighth of itself, as in HdrHistogram. Any thread can record into it.
+ */
+public final class LatencyHistogram {
+
+  static final int SUB_BITS = 3;
+  static final int SUB_BUCKETS = 1 << SUB_BITS;
+  static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+  private final LongAdder[] buckets;
+
+  /**
+   * Constructs an empty histogram.
+   */
+  public LatencyHistogram() {
+    this.buckets = new LongAdder[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) {
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  static int bucketOf(long nanos) {
+    if (nanos < SUB_BUCKETS) {
+      return (int) Math.max(0, nanos);
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+    int sub = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+  }
+
+  static long lowerBound(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int exponent = bucket / SUB_BUCKETS + SUB_BITS - 1;
+    return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BITS);
+  }
+
+  /**
+   * Counts one latency.
+   * @param nanos the latency in nanoseconds.
+   */
+  public void record(long nanos) {
+    buckets[bucketOf(nanos)].increment();
+  }
+
+  /**
+   * Gets the latencies counted so far.
+   * @return the snapshot of the histogram.
+   */
+  public LatencySnapshot snapshot() {
+    long[] counts = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = buckets[i].sum();
+    }
+    return new LatencySnapshot(counts);
+  }
+
+  /**
+   * Sets every bucket back to zero.
+   */
+  public void reset() {
+    for (LongAdder bucket : buckets) {
+      bucket.reset();
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package vehicle.metrics;
+
+/**
+ * Represents the latencies of one operation at one moment, in the buckets of the histogram
+ * they were recorded in. Every value is the lower bound of its bucket, so it is at most an
+ * eighth below the latency that was measured.
+ */
+public final class LatencySnapshot {
+
+  private final long[] buckets;
+  private final long count;
+
+  LatencySnapshot(long[] buckets) {
+    this.buckets = buckets;
+    long total = 0;
+    for (long bucket : buckets) {
+      total += bucket;
+    }
+    this.count = total;
+  }
+
+  /**
+   * Gets the number of latencies recorded.
+   * @return the number of timed calls.
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * Gets the latency that the given fraction of the calls did not exceed.
+   *
+   * @param percentile the percentile, from 0 to 100.
+   * @return the latency at that percentile in nanoseconds, or 0 if nothing was recorded.
+   * @throws IllegalArgumentException if the percentile is not between 0 and 100.
+   */
+  public long getPercentile(double percentile) throws IllegalArgumentException {
+    if (!(percentile >= 0 && percentile <= 100)) {
+      throw new IllegalArgumentException("the percentile must be between 0 and 100");
+    }
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+    long seen = 0;
+    for (int i = 0; i < buckets.length; i++) {
+      seen += buckets[i];
+      if (seen >= rank) {
+        return LatencyHistogram.lowerBound(i);
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Gets the highest latency recorded.
+   * @return the highest latency in nanoseconds, or 0 if nothing was recorded.
+   */
+  public long getMax() {
+    for (int i = buckets.length - 1; i >= 0; i--) {
+      if (buckets[i] != 0) {
+        return LatencyHistogram.lowerBound(i);
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Gets the mean of the latencies recorded.
+   * @return the mean latency in nanoseconds, or 0 if nothing was recorded.
+   */
+  public double getMean() {
+    if (count == 0) {
+      return 0;
+    }
+    double total = 0;
+    for (int i = 0; i < buckets.length; i++) {
+      total += (double) buckets[i] * LatencyHistogram.lowerBound(i);
+    }
+    return total / count;
+  }
+
+  @Override
+  public String toString() {
+    return "count " + count + ", p50 " + getPercentile(50) + " ns, p99 " + getPercentile(99)
+            + " ns, max " + getMax() + " ns";
+  }
+}
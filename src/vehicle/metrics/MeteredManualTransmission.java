@@ -0,0 +1,119 @@
+package vehicle.metrics;
+
+import vehicle.ManualTransmission;
+import vehicle.TransmissionStatus;
+
+/**
+ * Represents a manual transmission that counts every call made on it in a
+ * {@link TransmissionMetrics}, after passing the call on to another transmission. The other
+ * transmission may either change itself or return a new one.
+ */
+public final class MeteredManualTransmission implements ManualTransmission {
+
+  private final TransmissionMetrics metrics;
+  private ManualTransmission delegate;
+
+  /**
+   * Constructs a transmission that counts the calls made on the given one.
+   *
+   * @param delegate the transmission to count the calls of.
+   * @param metrics the metrics the calls are counted in.
+   */
+  public MeteredManualTransmission(ManualTransmission delegate, TransmissionMetrics metrics) {
+    this.delegate = delegate;
+    this.metrics = metrics;
+  }
+
+  private ManualTransmission run(int operation, int argument) {
+    if (!metrics.isEnabled()) {
+      this.delegate = call(operation, argument);
+      return this;
+    }
+    if (!metrics.isTimed()) {
+      this.delegate = call(operation, argument);
+      metrics.record(operation, delegate.getStatusCode());
+      return this;
+    }
+
+    long start = System.nanoTime();
+    ManualTransmission after = call(operation, argument);
+    long nanos = System.nanoTime() - start;
+    this.delegate = after;
+    metrics.record(operation, after.getStatusCode(), nanos);
+    return this;
+  }
+
+  private ManualTransmission call(int operation, int argument) {
+    switch (operation) {
+      case TransmissionMetrics.INCREASE_SPEED:
+        return delegate.increaseSpeed();
+      case TransmissionMetrics.DECREASE_SPEED:
+        return delegate.decreaseSpeed();
+      case TransmissionMetrics.INCREASE_GEAR:
+        return delegate.increaseGear();
+      case TransmissionMetrics.DECREASE_GEAR:
+        return delegate.decreaseGear();
+      case TransmissionMetrics.INCREASE_SPEED_BY:
+        return delegate.increaseSpeed(argument);
+      case TransmissionMetrics.DECREASE_SPEED_BY:
+        return delegate.decreaseSpeed(argument);
+      default:
+        return delegate.setSpeedClamped(argument);
+    }
+  }
+
+  @Override
+  public String getStatus() {
+    return delegate.getStatus();
+  }
+
+  @Override
+  public TransmissionStatus getStatusCode() {
+    return delegate.getStatusCode();
+  }
+
+  @Override
+  public int getSpeed() {
+    return delegate.getSpeed();
+  }
+
+  @Override
+  public int getGear() {
+    return delegate.getGear();
+  }
+
+  @Override
+  public ManualTransmission increaseSpeed() {
+    return run(TransmissionMetrics.INCREASE_SPEED, 0);
+  }
+
+  @Override
+  public ManualTransmission decreaseSpeed() {
+    return run(TransmissionMetrics.DECREASE_SPEED, 0);
+  }
+
+  @Override
+  public ManualTransmission increaseGear() {
+    return run(TransmissionMetrics.INCREASE_GEAR, 0);
+  }
+
+  @Override
+  public ManualTransmission decreaseGear() {
+    return run(TransmissionMetrics.DECREASE_GEAR, 0);
+  }
+
+  @Override
+  public ManualTransmission increaseSpeed(int delta) throws IllegalArgumentException {
+    return run(TransmissionMetrics.INCREASE_SPEED_BY, delta);
+  }
+
+  @Override
+  public ManualTransmission decreaseSpeed(int delta) throws IllegalArgumentException {
+    return run(TransmissionMetrics.DECREASE_SPEED_BY, delta);
+  }
+
+  @Override
+  public ManualTransmission setSpeedClamped(int speed) {
+    return run(TransmissionMetrics.SET_SPEED_CLAMPED, speed);
+  }
+}
@@ -0,0 +1,14 @@
+package vehicle.metrics;
+
+/**
+ * Represents a destination of the counters of {@link TransmissionMetrics}, such as a
+ * monitoring system or a log.
+ */
+public interface MetricsSink {
+
+  /**
+   * Receives the counters as they were when they were published.
+   * @param snapshot the snapshot of the counters.
+   */
+  void publish(MetricsSnapshot snapshot);
+}
@@ -0,0 +1,106 @@
+package vehicle.metrics;
+
+import vehicle.TransmissionStatus;
+
+/**
+ * Represents the counters of {@link TransmissionMetrics} at one moment: how many calls of
+ * each operation ended in each status, and the latencies of the timed calls.
+ */
+public final class MetricsSnapshot {
+
+  private static final int STATUSES = TransmissionMetrics.STATUSES;
+
+  private final long[] counts;
+  private final LatencySnapshot[] latencies;
+
+  MetricsSnapshot(long[] counts, LatencySnapshot[] latencies) {
+    this.counts = counts;
+    this.latencies = latencies;
+  }
+
+  private static int checkOperation(int operation) {
+    TransmissionMetrics.getOperationName(operation);
+    return operation;
+  }
+
+  /**
+   * Gets the number of calls of an operation that ended in the given status.
+   *
+   * @param operation the operation, such as {@link TransmissionMetrics#INCREASE_SPEED}.
+   * @param status the status.
+   * @return the number of those calls.
+   * @throws IllegalArgumentException if there is no such operation.
+   */
+  public long getCount(int operation, TransmissionStatus status)
+          throws IllegalArgumentException {
+    return counts[checkOperation(operation) * STATUSES + status.ordinal()];
+  }
+
+  /**
+   * Gets the number of calls of an operation.
+   *
+   * @param operation the operation.
+   * @return the number of calls of that operation.
+   * @throws IllegalArgumentException if there is no such operation.
+   */
+  public long getCount(int operation) throws IllegalArgumentException {
+    int base = checkOperation(operation) * STATUSES;
+    long total = 0;
+    for (int i = 0; i < STATUSES; i++) {
+      total += counts[base + i];
+    }
+    return total;
+  }
+
+  /**
+   * Gets the number of calls of any operation that ended in the given status.
+   *
+   * @param status the status.
+   * @return the number of those calls.
+   */
+  public long getCount(TransmissionStatus status) {
+    long total = 0;
+    for (int operation = 0; operation < TransmissionMetrics.OPERATIONS; operation++) {
+      total += counts[operation * STATUSES + status.ordinal()];
+    }
+    return total;
+  }
+
+  /**
+   * Gets the number of calls counted.
+   * @return the number of calls of every operation.
+   */
+  public long getTotal() {
+    long total = 0;
+    for (long count : counts) {
+      total += count;
+    }
+    return total;
+  }
+
+  /**
+   * Gets the latencies of the timed calls of an operation.
+   *
+   * @param operation the operation.
+   * @return the latencies of that operation.
+   * @throws IllegalArgumentException if there is no such operation.
+   */
+  public LatencySnapshot getLatency(int operation) throws IllegalArgumentException {
+    return latencies[checkOperation(operation)];
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder text = new StringBuilder();
+    for (int operation = 0; operation < TransmissionMetrics.OPERATIONS; operation++) {
+      for (TransmissionStatus status : TransmissionStatus.values()) {
+        long count = counts[operation * STATUSES + status.ordinal()];
+        if (count != 0) {
+          text.append(TransmissionMetrics.getOperationName(operation)).append(' ')
+                  .append(status).append(": ").append(count).append('\n');
+        }
+      }
+    }
+    return text.toString();
+  }
+}
@@ -0,0 +1,188 @@
+package vehicle.metrics;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+import vehicle.ManualTransmission;
+import vehicle.TransitionTable;
+import vehicle.TransmissionStatus;
+
+/**
+ * Represents the counters of the operations done on a set of transmissions: how many calls
+ * of each operation ended in each status, and optionally how long they took. The counters
+ * are striped {@link LongAdder}s, so many transmissions on many threads can share one set
+ * of metrics. Counting and timing can each be switched off, which leaves a single read of a
+ * flag on every call.
+ *
+ * <p>The metrics are read with {@link #snapshot()}, or handed to every {@link MetricsSink}
+ * added to them with {@link #publish()}.
+ */
+public final class TransmissionMetrics {
+
+  /** The operation that increases the speed by one. */
+  public static final int INCREASE_SPEED = TransitionTable.INCREASE_SPEED;
+  /** The operation that decreases the speed by one. */
+  public static final int DECREASE_SPEED = TransitionTable.DECREASE_SPEED;
+  /** The operation that increases the gear by one. */
+  public static final int INCREASE_GEAR = TransitionTable.INCREASE_GEAR;
+  /** The operation that decreases the gear by one. */
+  public static final int DECREASE_GEAR = TransitionTable.DECREASE_GEAR;
+  /** The operation that increases the speed by a given change. */
+  public static final int INCREASE_SPEED_BY = 4;
+  /** The operation that decreases the speed by a given change. */
+  public static final int DECREASE_SPEED_BY = 5;
+  /** The operation that moves the speed towards a given speed. */
+  public static final int SET_SPEED_CLAMPED = 6;
+  /** The number of different operations. */
+  public static final int OPERATIONS = 7;
+
+  static final int STATUSES = TransmissionStatus.values().length;
+  private static final String[] NAMES = {"increaseSpeed", "decreaseSpeed", "increaseGear",
+    "decreaseGear", "increaseSpeedBy", "decreaseSpeedBy", "setSpeedClamped"};
+
+  private final LongAdder[] counts;
+  private final LatencyHistogram[] latencies;
+  private final List<MetricsSink> sinks;
+  private volatile boolean enabled;
+  private volatile boolean timed;
+
+  /**
+   * Constructs metrics that count every call, without timing them.
+   */
+  public TransmissionMetrics() {
+    this.counts = new LongAdder[OPERATIONS * STATUSES];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = new LongAdder();
+    }
+    this.latencies = new LatencyHistogram[OPERATIONS];
+    for (int i = 0; i < OPERATIONS; i++) {
+      latencies[i] = new LatencyHistogram();
+    }
+    this.sinks = new CopyOnWriteArrayList<>();
+    this.enabled = true;
+  }
+
+  /**
+   * Gets the name of an operation, as the method of {@link ManualTransmission} it counts.
+   *
+   * @param operation the operation.
+   * @return the name of that operation.
+   * @throws IllegalArgumentException if there is no such operation.
+   */
+  public static String getOperationName(int operation) throws IllegalArgumentException {
+    if (operation < 0 || operation >= OPERATIONS) {
+      throw new IllegalArgumentException("unknown operation " + operation);
+    }
+    return NAMES[operation];
+  }
+
+  /**
+   * Gets a transmission that counts every call made on it in these metrics.
+   *
+   * @param transmission the transmission to count the calls of.
+   * @return the counted transmission.
+   */
+  public MeteredManualTransmission wrap(ManualTransmission transmission) {
+    return new MeteredManualTransmission(transmission, this);
+  }
+
+  /**
+   * Tells whether the calls are counted.
+   * @return true if the calls are counted.
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Switches the counting of calls, and with it their timing, on or off.
+   * @param enabled whether the calls are counted.
+   */
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  /**
+   * Tells whether the calls that are counted are also timed.
+   * @return true if the latencies are recorded.
+   */
+  public boolean isTimed() {
+    return timed;
+  }
+
+  /**
+   * Switches the timing of calls on or off. Timing a call reads the clock twice.
+   * @param timed whether the latencies are recorded.
+   */
+  public void setTimed(boolean timed) {
+    this.timed = timed;
+  }
+
+  void record(int operation, TransmissionStatus status) {
+    counts[operation * STATUSES + status.ordinal()].increment();
+  }
+
+  void record(int operation, TransmissionStatus status, long nanos) {
+    counts[operation * STATUSES + status.ordinal()].increment();
+    latencies[operation].record(nanos);
+  }
+
+  /**
+   * Gets the counters as they are now. Calls made while the snapshot is taken may or may
+   * not be in it.
+   *
+   * @return the snapshot of the counters.
+   */
+  public MetricsSnapshot snapshot() {
+    long[] values = new long[counts.length];
+    for (int i = 0; i < counts.length; i++) {
+      values[i] = counts[i].sum();
+    }
+    LatencySnapshot[] histograms = new LatencySnapshot[OPERATIONS];
+    for (int i = 0; i < OPERATIONS; i++) {
+      histograms[i] = latencies[i].snapshot();
+    }
+    return new MetricsSnapshot(values, histograms);
+  }
+
+  /**
+   * Sets every counter back to zero.
+   */
+  public void reset() {
+    for (LongAdder count : counts) {
+      count.reset();
+    }
+    for (LatencyHistogram latency : latencies) {
+      latency.reset();
+    }
+  }
+
+  /**
+   * Adds a sink that every later {@link #publish()} hands the snapshot to.
+   * @param sink the sink.
+   */
+  public void addSink(MetricsSink sink) {
+    sinks.add(sink);
+  }
+
+  /**
+   * Removes a sink added with {@link #addSink(MetricsSink)}.
+   * @param sink the sink.
+   */
+  public void removeSink(MetricsSink sink) {
+    sinks.remove(sink);
+  }
+
+  /**
+   * Takes a snapshot of the counters and hands it to every sink.
+   * @return the snapshot that was published.
+   */
+  public MetricsSnapshot publish() {
+    MetricsSnapshot snapshot = snapshot();
+    for (MetricsSink sink : sinks) {
+      sink.publish(snapshot);
+    }
+    return snapshot;
+  }
+}
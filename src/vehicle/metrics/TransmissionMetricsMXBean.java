@@ -0,0 +1,67 @@
+package vehicle.metrics;
+
+import java.util.Map;
+
+/**
+ * Represents the management interface of the counters of {@link TransmissionMetrics}, as
+ * registered by {@link JmxMetricsSink}. The counts are keyed by the name of the operation
+ * and the status, as in {@code "increaseSpeed NO_INCREASE_SPEED"}, and the latencies by the
+ * name of the operation, in nanoseconds.
+ */
+public interface TransmissionMetricsMXBean {
+
+  /**
+   * Gets the number of calls counted in the latest snapshot.
+   * @return the number of calls.
+   */
+  long getTotal();
+
+  /**
+   * Gets the number of calls of each operation that ended in each status, leaving out the
+   * ones that never happened.
+   * @return the counts by operation and status.
+   */
+  Map<String, Long> getStatusCounts();
+
+  /**
+   * Gets the median latency of each operation that was timed.
+   * @return the median latencies by operation.
+   */
+  Map<String, Long> getLatencyMedian();
+
+  /**
+   * Gets the 99th percentile of the latency of each operation that was timed.
+   * @return the 99th percentiles by operation.
+   */
+  Map<String, Long> getLatency99thPercentile();
+
+  /**
+   * Gets the highest latency of each operation that was timed.
+   * @return the highest latencies by operation.
+   */
+  Map<String, Long> getLatencyMax();
+
+  /**
+   * Tells whether the calls are counted.
+   * @return true if the calls are counted.
+   */
+  boolean isEnabled();
+
+  /**
+   * Switches the counting of calls on or off.
+   * @param enabled whether the calls are counted.
+   */
+  void setEnabled(boolean enabled);
+
+  /**
+   * Tells whether the calls are timed.
+   * @return true if the latencies are recorded.
+   */
+  boolean isTimed();
+
+  /**
+   * Switches the timing of calls on or off.
+   * @param timed whether the latencies are recorded.
+   */
+  void setTimed(boolean timed);
+}
@@ -0,0 +1,23 @@
+package vehicle.sim;
+
+/**
+ * Represents where the commands of a {@link ShardedSimulation} come from: the action every
+ * vehicle does at every tick. The action may depend on the id and the tick only, not on the
+ * state of any vehicle, so the commands of a tick can be sent to the shards without waiting
+ * for them, and a run gives the same commands wherever the vehicles are.
+ */
+@FunctionalInterface
+public interface CommandSource {
+
+  /** The action of a vehicle that does nothing at a tick. */
+  int NONE = -1;
+
+  /**
+   * Gets the action a vehicle does at a tick.
+   *
+   * @param vehicle the id of the vehicle.
+   * @param tick the tick, counted from 0.
+   * @return the code of the action, as in {@link vehicle.TransitionTable}, or {@link #NONE}.
+   */
+  int action(int vehicle, long tick);
+}
@@ -0,0 +1,84 @@
+package vehicle.sim;
+
+import vehicle.ManualTransmission;
+import vehicle.TransmissionStatus;
+
+/**
+ * Represents the transmission a driver of a shard is handed: it passes every call on to the
+ * transmission of the vehicle being driven and counts the actions. One instance serves
+ * every vehicle of a shard, so waking a driver allocates nothing.
+ */
+final class CountingTransmission implements ManualTransmission {
+
+  ManualTransmission delegate;
+  long operations;
+
+  @Override
+  public String getStatus() {
+    return delegate.getStatus();
+  }
+
+  @Override
+  public TransmissionStatus getStatusCode() {
+    return delegate.getStatusCode();
+  }
+
+  @Override
+  public int getSpeed() {
+    return delegate.getSpeed();
+  }
+
+  @Override
+  public int getGear() {
+    return delegate.getGear();
+  }
+
+  @Override
+  public ManualTransmission increaseSpeed() {
+    operations++;
+    this.delegate = delegate.increaseSpeed();
+    return this;
+  }
+
+  @Override
+  public ManualTransmission decreaseSpeed() {
+    operations++;
+    this.delegate = delegate.decreaseSpeed();
+    return this;
+  }
+
+  @Override
+  public ManualTransmission increaseGear() {
+    operations++;
+    this.delegate = delegate.increaseGear();
+    return this;
+  }
+
+  @Override
+  public ManualTransmission decreaseGear() {
+    operations++;
+    this.delegate = delegate.decreaseGear();
+    return this;
+  }
+
+  @Override
+  public ManualTransmission increaseSpeed(int delta) throws IllegalArgumentException {
+    operations++;
+    this.delegate = delegate.increaseSpeed(delta);
+    return this;
+  }
+
+  @Override
+  public ManualTransmission decreaseSpeed(int delta) throws IllegalArgumentException {
+    operations++;
+    this.delegate = delegate.decreaseSpeed(delta);
+    return this;
+  }
+
+  @Override
+  public ManualTransmission setSpeedClamped(int speed) {
+    operations++;
+    this.delegate = delegate.setSpeedClamped(speed);
+    return this;
+  }
+}
@@ -0,0 +1,181 @@
+package vehicle.sim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntFunction;
+
+import vehicle.ManualTransmission;
+import vehicle.metrics.LatencyHistogram;
+
+/**
+ * Represents a simulation of many vehicles, each with its own {@link Driver}, against a
+ * simulated clock. Every vehicle runs its own loop of waking up its driver and waiting for
+ * as long as the driver asks, but the waiting is done by the clock rather than by a thread:
+ * the vehicles are split in one shard per thread of a {@link ForkJoinPool}, and each shard
+ * keeps a queue of the next wake-up of each of its vehicles, in the order of the clock.
+ * A million vehicles then take a million queue entries rather than a million threads.
+ *
+ * <p>The vehicles of a shard are woken up in the order of the clock, and of their ids at the
+ * same moment, so a run with drivers that do not share state ends the same way for any
+ * number of threads.
+ */
+public final class DriveSimulation {
+
+  // a wake-up is packed in a long, with the time above the index of the vehicle in its shard
+  private static final int INDEX_BITS = 31;
+  private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+  private static final long MAX_DURATION = (1L << 32) - 1;
+
+  private final ForkJoinPool pool;
+
+  /**
+   * Constructs a simulation that runs on the common pool.
+   */
+  public DriveSimulation() {
+    this(ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Constructs a simulation that runs on the given pool, with one shard per thread.
+   * @param pool the pool to run on.
+   */
+  public DriveSimulation(ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Drives every vehicle from time 0 until the simulated clock reaches the given time. Every
+   * driver is first woken up at time 0. At the end, each element of the array holds the
+   * transmission of its vehicle after the last action, which is the same one unless it
+   * returns a new transmission for every action.
+   *
+   * @param vehicles the transmission of every vehicle, by id.
+   * @param drivers the driver of every vehicle, by id.
+   * @param durationMillis the time to simulate, in milliseconds.
+   * @return the report of the run.
+   * @throws IllegalArgumentException if the time is negative or longer than 2^32 ms.
+   */
+  public SimulationReport run(ManualTransmission[] vehicles, IntFunction<Driver> drivers,
+                              long durationMillis) throws IllegalArgumentException {
+    if (durationMillis < 0 || durationMillis > MAX_DURATION) {
+      throw new IllegalArgumentException("the duration must be between 0 and " + MAX_DURATION
+              + " ms");
+    }
+    int count = Math.max(1, Math.min(pool.getParallelism(), vehicles.length));
+    LatencyHistogram latency = new LatencyHistogram();
+    List<Shard> shards = new ArrayList<>();
+    for (int shard = 0; shard < count; shard++) {
+      shards.add(new Shard(vehicles, drivers, shard, count, durationMillis, latency));
+    }
+
+    long start = System.nanoTime();
+    pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(shards)));
+    long wallNanos = System.nanoTime() - start;
+
+    long steps = 0;
+    long operations = 0;
+    for (Shard shard : shards) {
+      steps += shard.steps;
+      operations += shard.transmission.operations;
+    }
+    return new SimulationReport(vehicles.length, steps, operations, durationMillis, wallNanos,
+            latency.snapshot());
+  }
+
+  /**
+   * The vehicles whose id is the index of the shard modulo the number of shards, and the
+   * queue of their next wake-ups.
+   */
+  private static final class Shard extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final transient ManualTransmission[] vehicles;
+    private final transient Driver[] drivers;
+    private final int first;
+    private final int stride;
+    private final long duration;
+    private final transient LatencyHistogram latency;
+    private final transient CountingTransmission transmission;
+    private final long[] queue;
+    private int size;
+    private long steps;
+
+    private Shard(ManualTransmission[] vehicles, IntFunction<Driver> drivers, int first,
+                  int stride, long duration, LatencyHistogram latency) {
+      this.vehicles = vehicles;
+      this.first = first;
+      this.stride = stride;
+      this.duration = duration;
+      this.latency = latency;
+      this.transmission = new CountingTransmission();
+
+      int count = (vehicles.length - first + stride - 1) / stride;
+      this.drivers = new Driver[count];
+      this.queue = new long[count];
+      for (int i = 0; i < count; i++) {
+        this.drivers[i] = drivers.apply(first + i * stride);
+        // every vehicle starts at time 0, in order, which is already a heap
+        this.queue[i] = i;
+      }
+      this.size = count;
+    }
+
+    @Override
+    protected void compute() {
+      while (size > 0) {
+        long next = poll();
+        long now = next >>> INDEX_BITS;
+        int index = (int) (next & INDEX_MASK);
+        int id = first + index * stride;
+
+        transmission.delegate = vehicles[id];
+        long start = System.nanoTime();
+        long pause = drivers[index].act(transmission, now);
+        latency.record(System.nanoTime() - start);
+        vehicles[id] = transmission.delegate;
+        steps++;
+
+        if (pause >= 0 && pause <= duration - now) {
+          offer((now + pause) << INDEX_BITS | index);
+        }
+      }
+    }
+
+    private void offer(long value) {
+      int i = size++;
+      while (i > 0) {
+        int parent = (i - 1) >>> 1;
+        if (queue[parent] <= value) {
+          break;
+        }
+        queue[i] = queue[parent];
+        i = parent;
+      }
+      queue[i] = value;
+    }
+
+    private long poll() {
+      long head = queue[0];
+      long last = queue[--size];
+      int i = 0;
+      while (true) {
+        int child = 2 * i + 1;
+        if (child >= size) {
+          break;
+        } else if (child + 1 < size && queue[child + 1] < queue[child]) {
+          child++;
+        }
+        if (last <= queue[child]) {
+          break;
+        }
+        queue[i] = queue[child];
+        i = child;
+      }
+      queue[i] = last;
+      return head;
+    }
+  }
+}
@@ -0,0 +1,23 @@
+package vehicle.sim;
+
+import vehicle.ManualTransmission;
+
+/**
+ * Represents the driver of one vehicle in a {@link DriveSimulation}. A driver is woken up
+ * at moments of the simulated clock, does the inputs of that moment on the transmission of
+ * its vehicle, and tells how long it waits before the next ones, as a driver that sleeps
+ * between pedal and shift inputs would. A driver is only ever called by one thread at a
+ * time, so it may keep its own state.
+ */
+public interface Driver {
+
+  /**
+   * Does the inputs of one moment.
+   *
+   * @param transmission the transmission of the vehicle.
+   * @param now the time of the simulated clock, in milliseconds.
+   * @return the number of milliseconds until the next inputs, or a negative number if the
+   *         driver stops.
+   */
+  long act(ManualTransmission transmission, long now);
+}
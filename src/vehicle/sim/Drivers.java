@@ -0,0 +1,96 @@
+package vehicle.sim;
+
+import java.util.SplittableRandom;
+
+import vehicle.ManualTransmission;
+import vehicle.TransmissionStatus;
+
+/**
+ * Provides drivers to simulate.
+ */
+public final class Drivers {
+
+  private Drivers() {
+  }
+
+  /**
+   * Gets a driver that does one random action at a time, waiting a random time between 1
+   * and the given number of milliseconds after each. The same seed gives the same actions.
+   *
+   * @param seed the seed of the random actions.
+   * @param maxPause the longest wait between two actions, in milliseconds.
+   * @return the driver.
+   * @throws IllegalArgumentException if the longest wait is not positive.
+   */
+  public static Driver random(long seed, int maxPause) throws IllegalArgumentException {
+    if (maxPause <= 0) {
+      throw new IllegalArgumentException("the pause must be positive");
+    }
+    SplittableRandom random = new SplittableRandom(seed);
+    return (transmission, now) -> {
+      switch (random.nextInt(4)) {
+        case 0:
+          transmission.increaseSpeed();
+          break;
+        case 1:
+          transmission.decreaseSpeed();
+          break;
+        case 2:
+          transmission.increaseGear();
+          break;
+        default:
+          transmission.decreaseGear();
+          break;
+      }
+      return 1 + random.nextInt(maxPause);
+    };
+  }
+
+  /**
+   * Gets a driver that speeds up to a cruising speed, shifting up whenever the transmission
+   * asks for it, cruises for a while, then slows down to a stop, shifting down whenever the
+   * transmission asks for it, and starts again.
+   *
+   * @param cruiseSpeed the speed to cruise at.
+   * @param cruiseTime how long to cruise, in milliseconds.
+   * @param pause the time between two inputs, in milliseconds.
+   * @return the driver.
+   * @throws IllegalArgumentException if the cruising speed is negative or a time is not
+   *                                  positive.
+   */
+  public static Driver commuter(int cruiseSpeed, long cruiseTime, long pause)
+          throws IllegalArgumentException {
+    if (cruiseSpeed < 0 || cruiseTime <= 0 || pause <= 0) {
+      throw new IllegalArgumentException("the speed and the times of a commuter must be "
+              + "positive");
+    }
+    return new Driver() {
+      private boolean braking;
+
+      @Override
+      public long act(ManualTransmission transmission, long now) {
+        if (!braking && transmission.getSpeed() >= cruiseSpeed) {
+          this.braking = true;
+          return cruiseTime;
+        } else if (braking && transmission.getSpeed() == 0) {
+          this.braking = false;
+        }
+
+        if (braking) {
+          TransmissionStatus status = transmission.decreaseSpeed().getStatusCode();
+          if (status == TransmissionStatus.NO_DECREASE_SPEED
+                  || status == TransmissionStatus.OK_DECREASE_GEAR) {
+            transmission.decreaseGear();
+          }
+        } else {
+          TransmissionStatus status = transmission.increaseSpeed().getStatusCode();
+          if (status == TransmissionStatus.NO_INCREASE_SPEED
+                  || status == TransmissionStatus.OK_INCREASE_GEAR) {
+            transmission.increaseGear();
+          }
+        }
+        return pause;
+      }
+    };
+  }
+}
@@ -0,0 +1,112 @@
+package vehicle.sim;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The binary protocol between a {@link ShardedSimulation} and its {@link ShardWorker}s. Every
+ * message is a frame of a type byte, the big-endian int length of the payload and the
+ * payload:
+ *
+ * <ul>
+ *   <li>HELLO: the number of vehicles of the shard and a {@link vehicle.TransmissionCodec}
+ *   header with the speed ranges; every vehicle starts in gear 1 at speed 0. The worker
+ *   answers with an empty HELLO once it holds the vehicles.</li>
+ *   <li>COMMANDS: the tick, then 5-byte records of the index of a vehicle in the shard and an
+ *   action code, as in the binary logs of {@link vehicle.cycle.CommandLogProcessor}.</li>
+ *   <li>TICK: the tick, after its last COMMANDS; the worker answers with ACK.</li>
+ *   <li>ACK: the tick, the number of commands of the tick and the number of vehicles in
+ *   every status after it.</li>
+ *   <li>SNAPSHOT: no payload; the worker answers with STATES until every vehicle is sent.</li>
+ *   <li>STATES: codec records of the next vehicles of the shard, in order.</li>
+ *   <li>ERROR: a UTF-8 message, after which the worker closes the connection.</li>
+ *   <li>BYE: no payload; the worker closes the connection.</li>
+ * </ul>
+ */
+final class ShardProtocol {
+
+  static final byte HELLO = 1;
+  static final byte COMMANDS = 2;
+  static final byte TICK = 3;
+  static final byte ACK = 4;
+  static final byte SNAPSHOT = 5;
+  static final byte STATES = 6;
+  static final byte ERROR = 7;
+  static final byte BYE = 8;
+
+  static final int HEADER_BYTES = 1 + Integer.BYTES;
+  static final int RECORD_BYTES = Integer.BYTES + 1;
+  // the largest payload, which is also the size of a batch of commands
+  static final int MAX_PAYLOAD = 1 << 16;
+
+  private ShardProtocol() {
+  }
+
+  static ByteBuffer buffer() {
+    return ByteBuffer.allocateDirect(HEADER_BYTES + MAX_PAYLOAD);
+  }
+
+  // clears the buffer and starts a frame of the given type, whose payload comes next
+  static ByteBuffer begin(ByteBuffer buffer, byte type) {
+    buffer.clear();
+    buffer.put(type).putInt(0);
+    return buffer;
+  }
+
+  // writes the frame started by begin with everything put in the buffer since
+  static void send(SocketChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.putInt(1, buffer.position() - HEADER_BYTES).flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+  }
+
+  static void send(SocketChannel channel, ByteBuffer buffer, byte type) throws IOException {
+    send(channel, begin(buffer, type));
+  }
+
+  static void sendError(SocketChannel channel, ByteBuffer buffer, String message)
+          throws IOException {
+    byte[] text = message.getBytes(StandardCharsets.UTF_8);
+    begin(buffer, ERROR).put(text, 0, Math.min(text.length, MAX_PAYLOAD));
+    send(channel, buffer);
+  }
+
+  // reads the next frame, leaving its payload between the position and the limit
+  static byte receive(SocketChannel channel, ByteBuffer buffer) throws IOException {
+    buffer.clear().limit(HEADER_BYTES);
+    fill(channel, buffer);
+    byte type = buffer.get(0);
+    int length = buffer.getInt(1);
+    if (length < 0 || length > MAX_PAYLOAD) {
+      throw new IOException("a frame cannot hold " + length + " bytes");
+    }
+    buffer.clear().limit(length);
+    fill(channel, buffer);
+    buffer.flip();
+    return type;
+  }
+
+  // reads a frame of the given type, or fails with the message of an ERROR
+  static void expect(SocketChannel channel, ByteBuffer buffer, byte type) throws IOException {
+    byte received = receive(channel, buffer);
+    if (received == ERROR) {
+      byte[] text = new byte[buffer.remaining()];
+      buffer.get(text);
+      throw new IOException("the worker failed: " + new String(text, StandardCharsets.UTF_8));
+    } else if (received != type) {
+      throw new IOException("expected a message of type " + type + " but got " + received);
+    }
+  }
+
+  private static void fill(SocketChannel channel, ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer) < 0) {
+        throw new EOFException("the connection was closed");
+      }
+    }
+  }
+}
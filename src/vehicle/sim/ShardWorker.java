@@ -0,0 +1,196 @@
+package vehicle.sim;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import vehicle.TransitionTable;
+import vehicle.TransmissionCodec;
+import vehicle.TransmissionStatus;
+import vehicle.fleet.AggregatingFleet;
+import vehicle.fleet.Fleet;
+import vehicle.fleet.TransmissionFleet;
+
+/**
+ * Represents a worker that holds one shard of the vehicles of a {@link ShardedSimulation}.
+ * It listens on a socket, and for every simulation that connects to it keeps the state of
+ * the vehicles of its shard in a {@link TransmissionFleet}, applies the commands it is sent
+ * and answers every tick with how many vehicles are in each status. One simulation is served
+ * at a time, on the thread that runs the worker. A worker can run in its own process:
+ *
+ * <pre>
+ *   java -cp transmission.jar vehicle.sim.ShardWorker [port]
+ * </pre>
+ */
+public final class ShardWorker implements Runnable, Closeable {
+
+  private static final int STATUSES = TransmissionStatus.values().length;
+
+  private final ServerSocketChannel server;
+
+  /**
+   * Constructs a worker that listens on the given address.
+   *
+   * @param address the address to listen on, with port 0 for any free port.
+   * @throws IOException if the address cannot be bound.
+   */
+  public ShardWorker(InetSocketAddress address) throws IOException {
+    this.server = ServerSocketChannel.open();
+    try {
+      server.bind(address);
+    } catch (IOException e) {
+      server.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Gets the address the worker listens on.
+   * @return the address, with the port that was bound.
+   * @throws IOException if the worker is closed.
+   */
+  public InetSocketAddress getAddress() throws IOException {
+    return (InetSocketAddress) server.getLocalAddress();
+  }
+
+  /**
+   * Serves simulations one after the other until the worker is closed. A simulation that
+   * sends something the worker cannot do is sent the reason and disconnected.
+   */
+  @Override
+  public void run() {
+    while (server.isOpen()) {
+      try (SocketChannel channel = server.accept()) {
+        // the frames are small and every one is waited for
+        channel.socket().setTcpNoDelay(true);
+        serve(channel);
+      } catch (ClosedChannelException e) {
+        return;
+      } catch (IOException e) {
+        // the simulation went away, and the next one is waited for
+      }
+    }
+  }
+
+  /**
+   * Stops listening. A simulation being served is served until it disconnects.
+   * @throws IOException if the socket cannot be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    server.close();
+  }
+
+  private static void serve(SocketChannel channel) throws IOException {
+    ByteBuffer in = ShardProtocol.buffer();
+    ByteBuffer out = ShardProtocol.buffer();
+    Shard shard = null;
+    try {
+      while (true) {
+        byte type = ShardProtocol.receive(channel, in);
+        if (type == ShardProtocol.BYE) {
+          return;
+        } else if (type == ShardProtocol.HELLO) {
+          int vehicles = in.getInt();
+          shard = new Shard(TransmissionCodec.readHeader(in), vehicles);
+          ShardProtocol.send(channel, out, ShardProtocol.HELLO);
+        } else if (shard == null) {
+          throw new IllegalArgumentException("the first message must be a hello");
+        } else if (type == ShardProtocol.COMMANDS) {
+          shard.apply(in);
+        } else if (type == ShardProtocol.TICK) {
+          shard.endTick(in.getLong(), ShardProtocol.begin(out, ShardProtocol.ACK));
+          ShardProtocol.send(channel, out);
+        } else if (type == ShardProtocol.SNAPSHOT) {
+          shard.snapshot(channel, out);
+        } else {
+          throw new IllegalArgumentException("unknown message type " + type);
+        }
+      }
+    } catch (RuntimeException e) {
+      // bad speed ranges, ids, actions or ticks, or a payload too short for its type
+      ShardProtocol.sendError(channel, out, String.valueOf(e.getMessage()));
+    }
+  }
+
+  /**
+   * The vehicles of one shard and the tick they are at.
+   */
+  private static final class Shard {
+    private final TransmissionCodec codec;
+    private final AggregatingFleet fleet;
+    private long tick;
+    private long commands;
+
+    private Shard(TransmissionCodec codec, int vehicles) {
+      this.codec = codec;
+      this.fleet = new AggregatingFleet(new TransmissionFleet(
+              codec.getProfile().getTransitions(), vehicles));
+    }
+
+    private void apply(ByteBuffer in) {
+      checkTick(in.getLong());
+      Fleet vehicles = fleet;
+      while (in.hasRemaining()) {
+        int id = in.getInt();
+        int action = in.get();
+        if (id < 0 || id >= vehicles.size()) {
+          throw new IllegalArgumentException("there is no vehicle " + id + " in the shard");
+        } else if (action < 0 || action >= TransitionTable.ACTIONS) {
+          throw new IllegalArgumentException("unknown action code " + action);
+        }
+        vehicles.apply(id, action);
+        commands++;
+      }
+    }
+
+    private void endTick(long ended, ByteBuffer out) {
+      checkTick(ended);
+      out.putLong(ended).putLong(commands);
+      for (int status = 0; status < STATUSES; status++) {
+        out.putLong(fleet.getStatusCount(TransmissionStatus.of(status)));
+      }
+      this.tick = ended + 1;
+      this.commands = 0;
+    }
+
+    private void checkTick(long received) {
+      if (received != tick) {
+        throw new IllegalArgumentException("expected tick " + tick + " but got " + received);
+      }
+    }
+
+    private void snapshot(SocketChannel channel, ByteBuffer out) throws IOException {
+      long[] states = new long[ShardProtocol.MAX_PAYLOAD / codec.getRecordBytes()];
+      int size = fleet.size();
+      for (int id = 0; id < size; ) {
+        int count = Math.min(states.length, size - id);
+        for (int i = 0; i < count; i++) {
+          states[i] = TransitionTable.state(fleet.getGear(id + i), fleet.getSpeed(id + i),
+                  fleet.getStatusCode(id + i).ordinal());
+        }
+        codec.encodeStates(states, 0, count, ShardProtocol.begin(out, ShardProtocol.STATES));
+        ShardProtocol.send(channel, out);
+        id += count;
+      }
+    }
+  }
+
+  /**
+   * Runs a worker until its process is stopped.
+   * @param args the port to listen on, or none for any free port, which is printed.
+   * @throws IOException if the port cannot be bound.
+   */
+  public static void main(String[] args) throws IOException {
+    int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+    try (ShardWorker worker = new ShardWorker(new InetSocketAddress(port))) {
+      System.out.println("listening on " + worker.getAddress().getPort());
+      System.out.flush();
+      worker.run();
+    }
+  }
+}
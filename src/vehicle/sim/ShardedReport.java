@@ -0,0 +1,81 @@
+package vehicle.sim;
+
+import vehicle.fleet.StatusCounts;
+
+/**
+ * Represents the outcome of a run of a {@link ShardedSimulation}: how many ticks and
+ * commands were run, how long they took, and how many vehicles were in each status after
+ * the last tick.
+ */
+public final class ShardedReport {
+
+  private final int shards;
+  private final long ticks;
+  private final long operations;
+  private final long wallNanos;
+  private final StatusCounts statuses;
+
+  ShardedReport(int shards, long ticks, long operations, long wallNanos,
+                StatusCounts statuses) {
+    this.shards = shards;
+    this.ticks = ticks;
+    this.operations = operations;
+    this.wallNanos = wallNanos;
+    this.statuses = statuses;
+  }
+
+  /**
+   * Gets the number of shards the vehicles were split in.
+   * @return the number of workers.
+   */
+  public int getShards() {
+    return shards;
+  }
+
+  /**
+   * Gets the number of ticks run.
+   * @return the number of ticks.
+   */
+  public long getTicks() {
+    return ticks;
+  }
+
+  /**
+   * Gets the number of actions done on the vehicles.
+   * @return the number of actions.
+   */
+  public long getOperations() {
+    return operations;
+  }
+
+  /**
+   * Gets the time the run took.
+   * @return the time of the run, in nanoseconds.
+   */
+  public long getWallNanos() {
+    return wallNanos;
+  }
+
+  /**
+   * Gets the number of actions done per second of the run.
+   * @return the throughput of the run.
+   */
+  public double getOperationsPerSecond() {
+    return wallNanos == 0 ? 0 : operations * 1e9 / wallNanos;
+  }
+
+  /**
+   * Gets how many vehicles were in each status after the last tick.
+   * @return the status counts of every shard together.
+   */
+  public StatusCounts getStatusCounts() {
+    return statuses;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%d shards, %d ticks, %d operations in %.1f ms (%.0f ops/s), "
+            + "statuses %s", shards, ticks, operations, wallNanos / 1e6,
+            getOperationsPerSecond(), statuses);
+  }
+}
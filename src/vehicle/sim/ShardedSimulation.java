@@ -0,0 +1,240 @@
+package vehicle.sim;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.List;
+
+import vehicle.GearProfile;
+import vehicle.TransitionTable;
+import vehicle.TransmissionCodec;
+import vehicle.TransmissionStatus;
+import vehicle.fleet.StatusCounts;
+
+/**
+ * Represents a simulation of more vehicles than one process can hold, split in shards that
+ * {@link ShardWorker}s hold, each in its own process or on its own machine. Vehicle n
+ * belongs to shard n modulo the number of shards. Every vehicle starts in gear 1 at speed 0.
+ *
+ * <p>Time goes in ticks. At every tick the simulation asks a {@link CommandSource} for the
+ * action of every vehicle, sends them to the shards in batches, and then sends every shard
+ * the end of the tick and waits for all of them to answer before the next tick starts. Each
+ * vehicle gets its actions in the order of the ticks, so the vehicles end in exactly the
+ * state one {@link vehicle.fleet.TransmissionFleet} given the same actions would be in, for
+ * any number of shards.
+ *
+ * <p>A simulation is driven by one thread. After an exception, the shards may be in the
+ * middle of a tick and the simulation should be closed.
+ */
+public final class ShardedSimulation implements Closeable {
+
+  private static final int STATUSES = TransmissionStatus.values().length;
+
+  private final TransmissionCodec codec;
+  private final int vehicles;
+  private final SocketChannel[] channels;
+  // the batch of commands being filled for every shard
+  private final ByteBuffer[] batches;
+  private final ByteBuffer in;
+  // the number of vehicles in every status after the last tick
+  private final long[] counts;
+  private long tick;
+
+  /**
+   * Constructs a simulation of vehicles with the given speed ranges, split between the given
+   * workers, which must be running.
+   *
+   * @param profile the speed ranges of the gears of every vehicle.
+   * @param vehicles the number of vehicles.
+   * @param workers the address of the worker of every shard.
+   * @throws IllegalArgumentException if there are no workers, the number of vehicles is
+   *                                  negative or the state of a vehicle cannot be sent.
+   * @throws IOException if a worker cannot be connected to or cannot hold its vehicles.
+   */
+  public ShardedSimulation(GearProfile profile, int vehicles, List<InetSocketAddress> workers)
+          throws IllegalArgumentException, IOException {
+    if (workers.isEmpty()) {
+      throw new IllegalArgumentException("a simulation needs at least one worker");
+    } else if (vehicles < 0) {
+      throw new IllegalArgumentException("the number of vehicles cannot be negative");
+    }
+    this.codec = new TransmissionCodec(profile);
+    this.vehicles = vehicles;
+    this.channels = new SocketChannel[workers.size()];
+    this.batches = new ByteBuffer[workers.size()];
+    this.in = ShardProtocol.buffer();
+    this.counts = new long[STATUSES];
+    counts[TransmissionStatus.OK_EVERYTHING_IS_OK.ordinal()] = vehicles;
+
+    try {
+      for (int shard = 0; shard < channels.length; shard++) {
+        channels[shard] = SocketChannel.open(workers.get(shard));
+        channels[shard].socket().setTcpNoDelay(true);
+        batches[shard] = ShardProtocol.buffer();
+        ShardProtocol.begin(batches[shard], ShardProtocol.HELLO).putInt(size(shard));
+        codec.writeHeader(batches[shard]);
+        ShardProtocol.send(channels[shard], batches[shard]);
+      }
+      for (SocketChannel channel : channels) {
+        ShardProtocol.expect(channel, in, ShardProtocol.HELLO);
+      }
+    } catch (IOException | RuntimeException e) {
+      close();
+      throw e;
+    }
+  }
+
+  // the number of vehicles of a shard
+  private int size(int shard) {
+    return (int) ((vehicles + (long) channels.length - 1 - shard) / channels.length);
+  }
+
+  /**
+   * Gets the number of shards.
+   * @return the number of workers.
+   */
+  public int getShards() {
+    return channels.length;
+  }
+
+  /**
+   * Gets the number of vehicles.
+   * @return the number of vehicles of every shard together.
+   */
+  public int getVehicles() {
+    return vehicles;
+  }
+
+  /**
+   * Gets the tick the next run starts at.
+   * @return the number of ticks run so far.
+   */
+  public long getTick() {
+    return tick;
+  }
+
+  /**
+   * Runs a number of ticks, from where the last run stopped.
+   *
+   * @param source the action of every vehicle at every tick.
+   * @param ticks the number of ticks to run.
+   * @return the report of the run.
+   * @throws IllegalArgumentException if the number of ticks is negative or the source gives
+   *                                  an unknown action.
+   * @throws IOException if a worker cannot be reached or fails.
+   */
+  public ShardedReport run(CommandSource source, long ticks)
+          throws IllegalArgumentException, IOException {
+    if (ticks < 0) {
+      throw new IllegalArgumentException("the number of ticks cannot be negative");
+    }
+    int shards = channels.length;
+    long operations = 0;
+
+    long start = System.nanoTime();
+    for (long end = tick + ticks; tick < end; tick++) {
+      for (int shard = 0; shard < shards; shard++) {
+        ShardProtocol.begin(batches[shard], ShardProtocol.COMMANDS).putLong(tick);
+      }
+      for (int id = 0; id < vehicles; id++) {
+        int action = source.action(id, tick);
+        if (action == CommandSource.NONE) {
+          continue;
+        } else if (action < 0 || action >= TransitionTable.ACTIONS) {
+          throw new IllegalArgumentException("unknown action code " + action);
+        }
+        int shard = id % shards;
+        ByteBuffer batch = batches[shard];
+        if (batch.remaining() < ShardProtocol.RECORD_BYTES) {
+          ShardProtocol.send(channels[shard], batch);
+          ShardProtocol.begin(batch, ShardProtocol.COMMANDS).putLong(tick);
+        }
+        batch.putInt(id / shards).put((byte) action);
+      }
+
+      // the barrier: every shard is told the tick ended, then every one must answer
+      for (int shard = 0; shard < shards; shard++) {
+        ByteBuffer batch = batches[shard];
+        if (batch.position() > ShardProtocol.HEADER_BYTES + Long.BYTES) {
+          ShardProtocol.send(channels[shard], batch);
+        }
+        ShardProtocol.begin(batch, ShardProtocol.TICK).putLong(tick);
+        ShardProtocol.send(channels[shard], batch);
+      }
+      Arrays.fill(counts, 0);
+      for (int shard = 0; shard < shards; shard++) {
+        ShardProtocol.expect(channels[shard], in, ShardProtocol.ACK);
+        if (in.getLong() != tick) {
+          throw new IOException("shard " + shard + " answered another tick");
+        }
+        operations += in.getLong();
+        for (int status = 0; status < STATUSES; status++) {
+          counts[status] += in.getLong();
+        }
+      }
+    }
+    return new ShardedReport(shards, ticks, operations, System.nanoTime() - start,
+            new StatusCounts(counts));
+  }
+
+  /**
+   * Gets the state of every vehicle from the shards.
+   *
+   * @return the state of every vehicle by id, packed as by
+   *         {@link TransitionTable#state(int, int, int)}.
+   * @throws IOException if a worker cannot be reached, fails or sends a state outside of the
+   *                     speed ranges.
+   */
+  public long[] getStates() throws IOException {
+    int shards = channels.length;
+    for (int shard = 0; shard < shards; shard++) {
+      ShardProtocol.send(channels[shard], batches[shard], ShardProtocol.SNAPSHOT);
+    }
+    long[] states = new long[vehicles];
+    long[] received = new long[ShardProtocol.MAX_PAYLOAD / codec.getRecordBytes()];
+    for (int shard = 0; shard < shards; shard++) {
+      int size = size(shard);
+      for (int index = 0; index < size; ) {
+        ShardProtocol.expect(channels[shard], in, ShardProtocol.STATES);
+        int count;
+        try {
+          count = codec.decodeStates(in, received, 0, Math.min(received.length, size - index));
+        } catch (IllegalArgumentException e) {
+          throw new IOException("shard " + shard + " sent a state outside of the ranges", e);
+        }
+        for (int i = 0; i < count; i++) {
+          states[(index + i) * shards + shard] = received[i];
+        }
+        index += count;
+      }
+    }
+    return states;
+  }
+
+  /**
+   * Disconnects from every worker, which keeps running for the next simulation.
+   * @throws IOException if a connection cannot be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    IOException failure = null;
+    for (int shard = 0; shard < channels.length; shard++) {
+      if (channels[shard] == null) {
+        continue;
+      }
+      try (SocketChannel channel = channels[shard]) {
+        if (channel.isConnected()) {
+          ShardProtocol.send(channel, ShardProtocol.buffer(), ShardProtocol.BYE);
+        }
+      } catch (IOException e) {
+        failure = failure == null ? e : failure;
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package vehicle.sim;
+
+import vehicle.metrics.LatencySnapshot;
+
+/**
+ * Represents the outcome of a run of a {@link DriveSimulation}: how many vehicles were
+ * driven, how many times their drivers were woken up and how many actions they did, how
+ * long the run took, and how long each wake-up of a driver took.
+ */
+public final class SimulationReport {
+
+  private final int vehicles;
+  private final long steps;
+  private final long operations;
+  private final long simulatedMillis;
+  private final long wallNanos;
+  private final LatencySnapshot latency;
+
+  SimulationReport(int vehicles, long steps, long operations, long simulatedMillis,
+                   long wallNanos, LatencySnapshot latency) {
+    this.vehicles = vehicles;
+    this.steps = steps;
+    this.operations = operations;
+    this.simulatedMillis = simulatedMillis;
+    this.wallNanos = wallNanos;
+    this.latency = latency;
+  }
+
+  /**
+   * Gets the number of vehicles driven.
+   * @return the number of vehicles.
+   */
+  public int getVehicles() {
+    return vehicles;
+  }
+
+  /**
+   * Gets the number of times a driver was woken up.
+   * @return the number of steps of every driver.
+   */
+  public long getSteps() {
+    return steps;
+  }
+
+  /**
+   * Gets the number of actions done on the transmissions.
+   * @return the number of actions.
+   */
+  public long getOperations() {
+    return operations;
+  }
+
+  /**
+   * Gets the time of the simulated clock that was simulated.
+   * @return the simulated time, in milliseconds.
+   */
+  public long getSimulatedMillis() {
+    return simulatedMillis;
+  }
+
+  /**
+   * Gets the time the run took.
+   * @return the time of the run, in nanoseconds.
+   */
+  public long getWallNanos() {
+    return wallNanos;
+  }
+
+  /**
+   * Gets the number of actions done per second of the run.
+   * @return the throughput of the run.
+   */
+  public double getOperationsPerSecond() {
+    return wallNanos == 0 ? 0 : operations * 1e9 / wallNanos;
+  }
+
+  /**
+   * Gets how long each wake-up of a driver took.
+   * @return the latencies of the steps.
+   */
+  public LatencySnapshot getLatency() {
+    return latency;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%d vehicles, %d steps, %d operations in %.1f ms (%.0f ops/s), "
+            + "latency %s", vehicles, steps, operations, wallNanos / 1e6,
+            getOperationsPerSecond(), latency);
+  }
+}
@@ -0,0 +1,121 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import vehicle.ManualTransmission;
+import vehicle.TransitionTable;
+import vehicle.TransmissionStatus;
+import vehicle.fleet.AggregatingFleet;
+import vehicle.fleet.Fleet;
+import vehicle.fleet.FleetExecutor;
+import vehicle.fleet.TransmissionFleet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests that the aggregates of a fleet always match counting every transmission.
+ */
+public class AggregatingFleetTest {
+
+  private TransitionTable profile;
+  private AggregatingFleet fleet;
+
+  @Before
+  public void setup() {
+    this.profile = new TransitionTable(new int[]{0, 5, 15, 25, 35},
+            new int[]{10, 20, 30, 40, 50});
+    this.fleet = new AggregatingFleet(new TransmissionFleet(profile, 500));
+  }
+
+  private static void assertAggregates(AggregatingFleet fleet) {
+    long[] gears = new long[fleet.getProfile().getGears()];
+    long[] statuses = new long[TransmissionStatus.values().length];
+    long speeds = 0;
+    for (int id = 0; id < fleet.size(); id++) {
+      gears[fleet.getGear(id) - 1]++;
+      statuses[fleet.getStatusCode(id).ordinal()]++;
+      speeds += fleet.getSpeed(id);
+    }
+    assertArrayEquals(gears, fleet.getGearCounts());
+    assertArrayEquals(statuses, fleet.getStatusCounts().toArray());
+    assertEquals(speeds, fleet.getSpeedSum());
+    assertEquals((double) speeds / fleet.size(), fleet.getMeanSpeed(), 1e-9);
+  }
+
+  @Test
+  public void testStartOfFleet() {
+    assertEquals(500, fleet.getGearCount(1));
+    assertEquals(0, fleet.getGearCount(5));
+    assertEquals(500, fleet.getStatusCount(TransmissionStatus.OK_EVERYTHING_IS_OK));
+    assertEquals(0.0, fleet.getMeanSpeed(), 0.0);
+  }
+
+  @Test
+  public void testRandomActions() {
+    Random random = new Random(8);
+    for (int i = 0; i < 200000; i++) {
+      fleet.apply(random.nextInt(fleet.size()), random.nextInt(TransitionTable.ACTIONS));
+      if (i % 20000 == 0) {
+        assertAggregates(fleet);
+      }
+    }
+    assertAggregates(fleet);
+  }
+
+  // batches and views go through the aggregates too
+  @Test
+  public void testBatchesAndViews() {
+    int[] ids = {1, 2, 3};
+    for (int i = 0; i < 8; i++) {
+      fleet.increaseSpeed(ids);
+    }
+    fleet.increaseGear(ids);
+    ManualTransmission car = fleet.view(4);
+    car.increaseSpeed(12);
+    car.increaseGear();
+
+    assertEquals(4, fleet.getGearCount(2));
+    assertEquals(3 * 8 + 10, fleet.getSpeedSum());
+    assertAggregates(fleet);
+  }
+
+  // a fleet that has already moved is counted as it is when wrapped
+  @Test
+  public void testWrapMovedFleet() {
+    TransmissionFleet cars = new TransmissionFleet(profile, 100);
+    Random random = new Random(9);
+    for (int i = 0; i < 20000; i++) {
+      cars.apply(random.nextInt(100), random.nextInt(TransitionTable.ACTIONS));
+    }
+    assertAggregates(new AggregatingFleet(cars));
+  }
+
+  // threads stepping different transmissions leave exact counts behind
+  @Test
+  public void testParallelSteps() {
+    AggregatingFleet big = new AggregatingFleet(new TransmissionFleet(profile, 50000));
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      FleetExecutor executor = new FleetExecutor(pool);
+      Random random = new Random(10);
+      byte[] commands = new byte[big.size()];
+      for (int tick = 0; tick < 40; tick++) {
+        for (int id = 0; id < commands.length; id++) {
+          commands[id] = (byte) (random.nextInt(TransitionTable.ACTIONS + 1) - 1);
+        }
+        assertEquals(executor.step((Fleet) big, commands), big.getStatusCounts());
+      }
+    } finally {
+      pool.shutdown();
+    }
+    assertAggregates(big);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoSuchGear() {
+    fleet.getGearCount(6);
+  }
+}
@@ -0,0 +1,192 @@
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import vehicle.GearProfile;
+import vehicle.ManualTransmission;
+import vehicle.RegularManualTransmission;
+import vehicle.TransitionTable;
+import vehicle.TransmissionStatus;
+import vehicle.cycle.CommandLogProcessor;
+import vehicle.cycle.CycleSummary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests the processor of recorded drive cycles against transmissions driven one command at
+ * a time.
+ */
+public class CommandLogProcessorTest {
+
+  private static final String[] COMMANDS = {"+S", "-S", "+G", "-G"};
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private GearProfile profile;
+  private int[] ids;
+  private int[] actions;
+
+  @Before
+  public void setup() {
+    this.profile = GearProfile.of(new int[]{0, 5, 15, 25, 35}, new int[]{10, 20, 30, 40, 50});
+    Random random = new Random(31);
+    this.ids = new int[20000];
+    this.actions = new int[ids.length];
+    for (int i = 0; i < ids.length; i++) {
+      // mostly speeding up, so that the vehicles go through every gear
+      ids[i] = random.nextInt(300);
+      actions[i] = random.nextInt(10) < 4 ? TransitionTable.INCREASE_SPEED
+              : random.nextInt(TransitionTable.ACTIONS);
+    }
+  }
+
+  private byte[] text(String separator, String newline) {
+    StringBuilder log = new StringBuilder();
+    for (int i = 0; i < ids.length; i++) {
+      log.append(ids[i]).append(separator).append(COMMANDS[actions[i]]).append(newline);
+      if (i % 1000 == 0) {
+        log.append(newline);
+      }
+    }
+    return log.toString().getBytes(StandardCharsets.US_ASCII);
+  }
+
+  private byte[] binary() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    for (int i = 0; i < ids.length; i++) {
+      out.writeInt(ids[i]);
+      out.writeByte(actions[i]);
+    }
+    return bytes.toByteArray();
+  }
+
+  private void checkSummary(CycleSummary summary) {
+    int vehicles = 0;
+    for (int id : ids) {
+      vehicles = Math.max(vehicles, id + 1);
+    }
+    ManualTransmission[] cars = new ManualTransmission[vehicles];
+    long[][] statuses = new long[vehicles][TransmissionStatus.values().length];
+    long[][] ticks = new long[vehicles][5];
+    for (int id = 0; id < vehicles; id++) {
+      cars[id] = new RegularManualTransmission(profile);
+    }
+    for (int i = 0; i < ids.length; i++) {
+      ManualTransmission car = cars[ids[i]];
+      ticks[ids[i]][car.getGear() - 1]++;
+      switch (actions[i]) {
+        case TransitionTable.INCREASE_SPEED:
+          car.increaseSpeed();
+          break;
+        case TransitionTable.DECREASE_SPEED:
+          car.decreaseSpeed();
+          break;
+        case TransitionTable.INCREASE_GEAR:
+          car.increaseGear();
+          break;
+        default:
+          car.decreaseGear();
+          break;
+      }
+      statuses[ids[i]][car.getStatusCode().ordinal()]++;
+    }
+
+    assertEquals(vehicles, summary.getVehicles());
+    assertEquals(ids.length, summary.getCommands());
+    for (int id = 0; id < vehicles; id++) {
+      assertEquals(cars[id].getGear(), summary.getGear(id));
+      assertEquals(cars[id].getSpeed(), summary.getSpeed(id));
+      assertSame(cars[id].getStatusCode(), summary.getStatusCode(id));
+      for (int s = 0; s < statuses[id].length; s++) {
+        assertEquals(statuses[id][s], summary.getStatusCounts(id).get(TransmissionStatus.of(s)));
+      }
+      for (int gear = 1; gear <= 5; gear++) {
+        assertEquals(ticks[id][gear - 1], summary.getTicksInGear(id, gear));
+      }
+      assertEquals(summary.getStatusCounts(id).total(), summary.getCommands(id));
+    }
+  }
+
+  // a buffer of 64 bytes splits lines and records across almost every read
+  @Test
+  public void testTextFile() throws IOException {
+    Path file = folder.getRoot().toPath().resolve("cycle.txt");
+    Files.write(file, text(" ", "\n"));
+    checkSummary(new CommandLogProcessor(profile, 64).processText(file));
+    checkSummary(new CommandLogProcessor(profile).processText(file));
+  }
+
+  @Test
+  public void testTextWithTabsAndCarriageReturns() throws IOException {
+    byte[] log = text("\t ", "\r\n");
+    checkSummary(new CommandLogProcessor(profile, 100)
+            .processText(Channels.newChannel(new ByteArrayInputStream(log))));
+  }
+
+  @Test
+  public void testBinaryFile() throws IOException {
+    Path file = folder.getRoot().toPath().resolve("cycle.bin");
+    Files.write(file, binary());
+    checkSummary(new CommandLogProcessor(profile, 64).processBinary(file));
+    checkSummary(new CommandLogProcessor(profile).processBinary(file));
+  }
+
+  @Test
+  public void testLastLineWithoutNewline() throws IOException {
+    byte[] log = "0 +S\n0 +S\n3 +S".getBytes(StandardCharsets.US_ASCII);
+    CycleSummary summary = new CommandLogProcessor(profile)
+            .processText(Channels.newChannel(new ByteArrayInputStream(log)));
+    assertEquals(4, summary.getVehicles());
+    assertEquals(2, summary.getSpeed(0));
+    assertEquals(0, summary.getSpeed(2));
+    assertEquals(0, summary.getCommands(2));
+    assertEquals(1, summary.getSpeed(3));
+  }
+
+  @Test(expected = IOException.class)
+  public void testUnknownCommand() throws IOException {
+    byte[] log = "0 +S\n1 +X\n".getBytes(StandardCharsets.US_ASCII);
+    new CommandLogProcessor(profile).processText(Channels.newChannel(
+            new ByteArrayInputStream(log)));
+  }
+
+  @Test(expected = IOException.class)
+  public void testMissingSeparator() throws IOException {
+    byte[] log = "12+S\n".getBytes(StandardCharsets.US_ASCII);
+    new CommandLogProcessor(profile).processText(Channels.newChannel(
+            new ByteArrayInputStream(log)));
+  }
+
+  @Test(expected = IOException.class)
+  public void testNegativeVehicle() throws IOException {
+    byte[] log = "-1 +S\n".getBytes(StandardCharsets.US_ASCII);
+    new CommandLogProcessor(profile).processText(Channels.newChannel(
+            new ByteArrayInputStream(log)));
+  }
+
+  @Test(expected = IOException.class)
+  public void testTruncatedRecord() throws IOException {
+    byte[] log = {0, 0, 0, 1, 0, 0, 0};
+    new CommandLogProcessor(profile).processBinary(Channels.newChannel(
+            new ByteArrayInputStream(log)));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSmallBuffer() {
+    new CommandLogProcessor(profile, 8);
+  }
+}
@@ -0,0 +1,158 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import vehicle.ConcurrentManualTransmission;
+import vehicle.ManualTransmission;
+import vehicle.RegularManualTransmission;
+import vehicle.SynchronizedManualTransmission;
+import vehicle.TransmissionStatus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the lock-free transmission, alone and shared between threads.
+ */
+public class ConcurrentManualTransmissionTest {
+
+  private static final int[] LOWER = {0, 5, 15, 25, 35};
+  private static final int[] HIGHER = {10, 20, 30, 40, 50};
+
+  private ConcurrentManualTransmission car;
+
+  @Before
+  public void setup() {
+    this.car = new ConcurrentManualTransmission(0, 10, 5, 20, 15, 30, 25, 40, 35, 50);
+  }
+
+  private static void apply(ManualTransmission car, int action) {
+    switch (action) {
+      case 0:
+        car.increaseSpeed();
+        break;
+      case 1:
+        car.decreaseSpeed();
+        break;
+      case 2:
+        car.increaseGear();
+        break;
+      case 3:
+        car.decreaseGear();
+        break;
+      case 4:
+        car.increaseSpeed(7);
+        break;
+      case 5:
+        car.decreaseSpeed(7);
+        break;
+      default:
+        car.setSpeedClamped(action * 3 - 20);
+        break;
+    }
+  }
+
+  // on one thread it follows the same rules as RegularManualTransmission
+  @Test
+  public void testMatchesRegularTransmission() {
+    ManualTransmission expected = new RegularManualTransmission(0, 10, 5, 20, 15,
+            30, 25, 40, 35, 50);
+    Random random = new Random(7);
+    for (int i = 0; i < 50000; i++) {
+      int action = random.nextInt(30);
+      apply(expected, action);
+      apply(car, action);
+
+      assertEquals(expected.getGear(), car.getGear());
+      assertEquals(expected.getSpeed(), car.getSpeed());
+      assertSame(expected.getStatusCode(), car.getStatusCode());
+    }
+  }
+
+  @Test
+  public void testPackedState() {
+    car.increaseSpeed(10);
+    car.increaseGear();
+    long state = car.getState();
+
+    assertEquals(2, ConcurrentManualTransmission.gearOf(state));
+    assertEquals(10, ConcurrentManualTransmission.speedOf(state));
+    assertSame(TransmissionStatus.OK_EVERYTHING_IS_OK,
+            ConcurrentManualTransmission.statusOf(state));
+  }
+
+  // readers never see the speed of one state with the gear of another
+  @Test
+  public void testReadersSeeConsistentStates() throws InterruptedException {
+    AtomicBoolean done = new AtomicBoolean();
+    AtomicBoolean torn = new AtomicBoolean();
+    List<Thread> threads = new ArrayList<>();
+
+    for (int t = 0; t < 4; t++) {
+      Random random = new Random(t);
+      threads.add(new Thread(() -> {
+        for (int i = 0; i < 200000; i++) {
+          apply(car, random.nextInt(30));
+        }
+      }));
+    }
+    Thread reader = new Thread(() -> {
+      while (!done.get()) {
+        long state = car.getState();
+        int gear = ConcurrentManualTransmission.gearOf(state);
+        int speed = ConcurrentManualTransmission.speedOf(state);
+        if (gear < 1 || gear > 5 || speed < LOWER[gear - 1] && gear > 1
+                || speed < 0 || speed > HIGHER[gear - 1]) {
+          torn.set(true);
+        }
+      }
+    });
+
+    reader.start();
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    done.set(true);
+    reader.join();
+
+    assertFalse(torn.get());
+  }
+
+  // no speed increase is lost when many threads accelerate at once
+  @Test
+  public void testNoLostUpdates() throws InterruptedException {
+    ConcurrentManualTransmission truck = new ConcurrentManualTransmission(0, 100000, 0,
+            100000, 0, 100000, 0, 100000, 0, 100000);
+    ManualTransmission locked = new SynchronizedManualTransmission(
+            new RegularManualTransmission(0, 100000, 0, 100000, 0, 100000, 0, 100000, 0,
+                    100000));
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      threads.add(new Thread(() -> {
+        for (int i = 0; i < 20000; i++) {
+          truck.increaseSpeed();
+          locked.increaseSpeed();
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertEquals(80000, truck.getSpeed());
+    assertEquals(80000, locked.getSpeed());
+    assertTrue(truck.getStatusCode().isOk());
+  }
+}
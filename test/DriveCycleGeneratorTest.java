@@ -0,0 +1,135 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+import vehicle.ConcurrentManualTransmission;
+import vehicle.GearProfile;
+import vehicle.ImmutableManualTransmission;
+import vehicle.ManualTransmission;
+import vehicle.RegularManualTransmission;
+import vehicle.SynchronizedManualTransmission;
+import vehicle.TransitionTable;
+import vehicle.TransmissionStatus;
+import vehicle.cycle.DriveCycleGenerator;
+import vehicle.cycle.DriveCycleGenerator.Shape;
+import vehicle.cycle.DriveCycleRunner;
+import vehicle.cycle.ReplayReport;
+import vehicle.fleet.StatusCounts;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the generated drive cycles and their replay against every implementation.
+ */
+public class DriveCycleGeneratorTest {
+
+  private GearProfile profile;
+
+  @Before
+  public void setup() {
+    this.profile = GearProfile.of(new int[]{0, 5, 15, 25, 35}, new int[]{10, 20, 30, 40, 50});
+  }
+
+  // the highest speed and gear a cycle gets to, and how many of its commands are at a stop
+  private int[] drive(byte[] cycle) {
+    TransitionTable table = profile.getTransitions();
+    long state = TransitionTable.state(1, 0, 0);
+    int[] result = new int[3];
+    for (byte command : cycle) {
+      state = table.next(state, command);
+      result[0] = Math.max(result[0], TransitionTable.speedOf(state));
+      result[1] = Math.max(result[1], TransitionTable.gearOf(state));
+      result[2] += TransitionTable.speedOf(state) == 0 ? 1 : 0;
+    }
+    return result;
+  }
+
+  @Test
+  public void testSameSeedSameCycles() {
+    DriveCycleGenerator first = new DriveCycleGenerator(profile, 7);
+    DriveCycleGenerator second = new DriveCycleGenerator(profile, 7);
+    for (Shape shape : Shape.values()) {
+      byte[] cycle = first.generate(shape, 5000);
+      assertEquals(5000, cycle.length);
+      assertArrayEquals(cycle, second.generate(shape, 5000));
+      for (byte command : cycle) {
+        assertTrue(command >= 0 && command < TransitionTable.ACTIONS);
+      }
+    }
+    assertFalse(Arrays.equals(first.generate(Shape.URBAN, 5000),
+            new DriveCycleGenerator(profile, 8).generate(Shape.URBAN, 5000)));
+    assertEquals(0, first.generate(Shape.HIGHWAY, 0).length);
+  }
+
+  @Test
+  public void testShapes() {
+    DriveCycleGenerator generator = new DriveCycleGenerator(profile, 11);
+    int[] urban = drive(generator.generate(Shape.URBAN, 20000));
+    // at most half the top speed, and one more while cruising
+    assertTrue(urban[0] <= 26);
+    assertTrue(urban[2] > 1000);
+
+    int[] highway = drive(generator.generate(Shape.HIGHWAY, 20000));
+    assertEquals(50, highway[0]);
+    assertEquals(5, highway[1]);
+    assertTrue(highway[2] < urban[2]);
+
+    int[] aggressive = drive(generator.generate(Shape.AGGRESSIVE, 20000));
+    assertEquals(5, aggressive[1]);
+  }
+
+  // refused shifts are what sets an aggressive driver apart
+  @Test
+  public void testAggressiveShiftsMore() {
+    DriveCycleGenerator generator = new DriveCycleGenerator(profile, 3);
+    Supplier<ManualTransmission> cars = () -> new RegularManualTransmission(profile);
+    StatusCounts urban = DriveCycleRunner.run(cars, generator.generate(Shape.URBAN, 20000), 1)
+            .getStatusCounts();
+    StatusCounts aggressive = DriveCycleRunner.run(cars,
+            generator.generate(Shape.AGGRESSIVE, 20000), 1).getStatusCounts();
+    assertEquals(0, urban.get(TransmissionStatus.NO_INCREASE_GEAR));
+    assertTrue(aggressive.get(TransmissionStatus.NO_INCREASE_GEAR) > 100);
+    assertTrue(aggressive.get(TransmissionStatus.NO_DECREASE_GEAR) > 100);
+  }
+
+  @Test
+  public void testEveryImplementationAgrees() {
+    TransitionTable table = profile.getTransitions();
+    byte[] cycle = new DriveCycleGenerator(profile, 5).generate(Shape.AGGRESSIVE, 10000);
+    long[] expected = new long[TransmissionStatus.values().length];
+    long state = TransitionTable.state(1, 0, 0);
+    for (byte command : cycle) {
+      state = table.next(state, command);
+      expected[TransitionTable.statusOf(state)] += 3;
+    }
+
+    Supplier<?>[] factories = {
+        () -> new RegularManualTransmission(profile),
+        () -> new ConcurrentManualTransmission(table),
+        () -> ImmutableManualTransmission.start(table),
+        () -> new SynchronizedManualTransmission(new RegularManualTransmission(profile))};
+    for (Supplier<?> factory : factories) {
+      @SuppressWarnings("unchecked")
+      ReplayReport report = DriveCycleRunner.run((Supplier<ManualTransmission>) factory, cycle,
+              3);
+      assertEquals(30000, report.getOperations());
+      assertEquals(new StatusCounts(expected), report.getStatusCounts());
+      assertTrue(report.getWallNanos() > 0);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownAction() {
+    DriveCycleRunner.run(() -> new RegularManualTransmission(profile), new byte[]{0, 4}, 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeLength() {
+    new DriveCycleGenerator(profile, 1).generate(Shape.RANDOM, -1);
+  }
+}
@@ -0,0 +1,140 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import vehicle.GearProfile;
+import vehicle.ImmutableManualTransmission;
+import vehicle.ManualTransmission;
+import vehicle.RegularManualTransmission;
+import vehicle.sim.DriveSimulation;
+import vehicle.sim.Driver;
+import vehicle.sim.Drivers;
+import vehicle.sim.SimulationReport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the simulation of many drivers against the same drivers run one vehicle at a time.
+ */
+public class DriveSimulationTest {
+
+  private static final long DURATION = 60000;
+
+  private GearProfile profile;
+
+  @Before
+  public void setup() {
+    this.profile = GearProfile.of(new int[]{0, 5, 15, 25, 35}, new int[]{10, 20, 30, 40, 50});
+  }
+
+  private ManualTransmission[] cars(int count) {
+    ManualTransmission[] cars = new ManualTransmission[count];
+    for (int id = 0; id < count; id++) {
+      cars[id] = new RegularManualTransmission(profile);
+    }
+    return cars;
+  }
+
+  private static Driver driver(int id) {
+    return id % 3 == 0 ? Drivers.commuter(10 + id % 40, 2000, 100 + id % 7)
+            : Drivers.random(id, 500);
+  }
+
+  // the driver of one vehicle on its own, with the clock moved by hand
+  private static long[] driveAlone(ManualTransmission car, Driver driver) {
+    long steps = 0;
+    for (long now = 0; now <= DURATION; ) {
+      long pause = driver.act(car, now);
+      steps++;
+      if (pause < 0) {
+        break;
+      }
+      now += pause;
+    }
+    return new long[]{car.getGear(), car.getSpeed(), steps};
+  }
+
+  @Test
+  public void testMatchesDrivingAlone() {
+    ManualTransmission[] cars = cars(1000);
+    SimulationReport report = new DriveSimulation().run(cars, DriveSimulationTest::driver,
+            DURATION);
+
+    long steps = 0;
+    for (int id = 0; id < cars.length; id++) {
+      long[] expected = driveAlone(new RegularManualTransmission(profile), driver(id));
+      assertEquals(expected[0], cars[id].getGear());
+      assertEquals(expected[1], cars[id].getSpeed());
+      steps += expected[2];
+    }
+    assertEquals(1000, report.getVehicles());
+    assertEquals(steps, report.getSteps());
+    assertEquals(steps, report.getLatency().getCount());
+    assertTrue(report.getOperations() >= steps);
+    assertTrue(report.getOperationsPerSecond() > 0);
+  }
+
+  @Test
+  public void testSameForAnyThreads() {
+    ManualTransmission[] single = cars(500);
+    ManualTransmission[] many = cars(500);
+    ForkJoinPool one = new ForkJoinPool(1);
+    ForkJoinPool four = new ForkJoinPool(4);
+    try {
+      SimulationReport first = new DriveSimulation(one).run(single,
+              DriveSimulationTest::driver, DURATION);
+      SimulationReport second = new DriveSimulation(four).run(many,
+              DriveSimulationTest::driver, DURATION);
+      assertEquals(first.getSteps(), second.getSteps());
+      assertEquals(first.getOperations(), second.getOperations());
+      for (int id = 0; id < single.length; id++) {
+        assertEquals(single[id].getGear(), many[id].getGear());
+        assertEquals(single[id].getSpeed(), many[id].getSpeed());
+        assertEquals(single[id].getStatusCode(), many[id].getStatusCode());
+      }
+    } finally {
+      one.shutdown();
+      four.shutdown();
+    }
+  }
+
+  @Test
+  public void testImmutableTransmissions() {
+    ManualTransmission[] cars = new ManualTransmission[100];
+    for (int id = 0; id < cars.length; id++) {
+      cars[id] = ImmutableManualTransmission.start(profile.getTransitions());
+    }
+    new DriveSimulation().run(cars, id -> Drivers.commuter(45, 100000, 10), 5000);
+    for (ManualTransmission car : cars) {
+      assertEquals(45, car.getSpeed());
+      assertEquals(5, car.getGear());
+    }
+  }
+
+  @Test
+  public void testDriversThatStop() {
+    ManualTransmission[] cars = cars(10);
+    SimulationReport report = new DriveSimulation().run(cars, id -> (car, now) -> {
+      car.increaseSpeed();
+      return now < id * 10 ? 10 : -1;
+    }, DURATION);
+    for (int id = 0; id < cars.length; id++) {
+      assertEquals(Math.min(id + 1, 10), cars[id].getSpeed());
+    }
+    assertEquals(55, report.getOperations());
+  }
+
+  @Test
+  public void testNoVehicles() {
+    SimulationReport report = new DriveSimulation().run(new ManualTransmission[0],
+            DriveSimulationTest::driver, DURATION);
+    assertEquals(0, report.getSteps());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeDuration() {
+    new DriveSimulation().run(cars(1), DriveSimulationTest::driver, -1);
+  }
+}
@@ -0,0 +1,145 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import vehicle.ConcurrentManualTransmission;
+import vehicle.DriveResult;
+import vehicle.GearProfile;
+import vehicle.ImmutableManualTransmission;
+import vehicle.ManualTransmission;
+import vehicle.RegularManualTransmission;
+import vehicle.SynchronizedManualTransmission;
+import vehicle.TransmissionState;
+import vehicle.TransmissionStatus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests that driving to a speed in one call ends where the single actions would, in every
+ * implementation.
+ */
+public class DriveToTest {
+
+  private GearProfile car;
+
+  @Before
+  public void setup() {
+    this.car = GearProfile.of(new int[]{0, 5, 15, 25, 35}, new int[]{10, 20, 30, 40, 50});
+  }
+
+  // what a cruise control does with the single actions, counting its calls
+  private static long singleSteps(ManualTransmission transmission, int target) {
+    long steps = 0;
+    while (transmission.getSpeed() != target) {
+      boolean up = transmission.getSpeed() < target;
+      int speed = transmission.getSpeed();
+      TransmissionStatus status = (up ? transmission.increaseSpeed()
+              : transmission.decreaseSpeed()).getStatusCode();
+      steps++;
+      if (transmission.getSpeed() == speed) {
+        if (status != TransmissionStatus.NO_INCREASE_SPEED
+                && status != TransmissionStatus.NO_DECREASE_SPEED) {
+          break;
+        }
+        int gear = transmission.getGear();
+        if (up) {
+          transmission.increaseGear();
+        } else {
+          transmission.decreaseGear();
+        }
+        steps++;
+        if (transmission.getGear() == gear) {
+          break;
+        }
+      }
+    }
+    return steps;
+  }
+
+  @Test
+  public void testUpAndDown() {
+    RegularManualTransmission transmission = new RegularManualTransmission(car);
+    DriveResult result = transmission.driveTo(50);
+    assertSame(transmission, result.getTransmission());
+    assertEquals(new TransmissionState(5, 50, TransmissionStatus.OK_EVERYTHING_IS_OK),
+            result.getState());
+    // every speed, and a refused step and a shift for every gear after the first
+    assertEquals(50 + 4 * 2, result.getSteps());
+
+    result = transmission.driveTo(0);
+    assertEquals(1, result.getState().getGear());
+    assertEquals(0, transmission.getSpeed());
+    assertEquals(50 + 4 * 2, result.getSteps());
+    assertEquals(0, transmission.driveTo(0).getSteps());
+  }
+
+  @Test
+  public void testStopsAtLimits() {
+    ManualTransmission transmission = new RegularManualTransmission(car);
+    DriveResult result = transmission.driveTo(80);
+    assertEquals(new TransmissionState(5, 50, TransmissionStatus.NO_INCREASE_SPEED_MAX),
+            result.getState());
+    assertEquals(50 + 4 * 2 + 1, result.getSteps());
+
+    result = transmission.driveTo(-5);
+    assertEquals(new TransmissionState(1, 0, TransmissionStatus.NO_DECREASE_SPEED_MIN),
+            result.getState());
+  }
+
+  @Test
+  public void testImmutableGivesNewTransmission() {
+    ManualTransmission start = ImmutableManualTransmission.start(car.getTransitions());
+    DriveResult result = start.driveTo(30);
+    assertEquals(0, start.getSpeed());
+    assertEquals(30, result.getTransmission().getSpeed());
+    assertEquals(result.getState(), TransmissionState.of(result.getTransmission()));
+  }
+
+  // few profiles driven many times, to keep most of the shared profile cache for other tests
+  @Test
+  public void testEveryImplementationAgrees() {
+    Random random = new Random(24);
+    for (int i = 0; i < 30; i++) {
+      int gears = 1 + random.nextInt(6);
+      int[] lows = new int[gears];
+      int[] highs = new int[gears];
+      highs[0] = 1 + random.nextInt(20);
+      for (int g = 1; g < gears; g++) {
+        lows[g] = random.nextInt(highs[g - 1] + 1);
+        highs[g] = Math.max(highs[g - 1], lows[g] + random.nextInt(20));
+      }
+      GearProfile profile = GearProfile.of(lows, highs);
+      ManualTransmission reference = new RegularManualTransmission(profile);
+      ManualTransmission[] transmissions = {new RegularManualTransmission(profile),
+          new ConcurrentManualTransmission(profile.getTransitions()),
+          ImmutableManualTransmission.start(profile.getTransitions()),
+          new SynchronizedManualTransmission(new RegularManualTransmission(profile))};
+      for (int drive = 0; drive < 100; drive++) {
+        int target = random.nextInt(profile.getMaxSpeed() + 10) - 5;
+        long steps = singleSteps(reference, target);
+        for (int t = 0; t < transmissions.length; t++) {
+          DriveResult result = transmissions[t].driveTo(target);
+          transmissions[t] = result.getTransmission();
+          assertEquals(profile + " to " + target, TransmissionState.of(reference),
+                  result.getState());
+          assertEquals(result.getState(), TransmissionState.of(transmissions[t]));
+          assertEquals(steps, result.getSteps());
+        }
+      }
+    }
+  }
+
+  // one call for a drive over a wide range, where the single steps would take millions
+  @Test(timeout = 1000)
+  public void testWideRange() {
+    GearProfile wide = GearProfile.of(new int[]{0, 400000, 900000},
+            new int[]{500000, 1000000, 2000000});
+    RegularManualTransmission transmission = new RegularManualTransmission(wide);
+    DriveResult result = transmission.driveTo(1500000);
+    assertEquals(new TransmissionState(3, 1500000, TransmissionStatus.OK_EVERYTHING_IS_OK),
+            result.getState());
+    assertEquals(1500000 + 2 * 2, result.getSteps());
+  }
+}
@@ -0,0 +1,141 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import vehicle.ManualTransmission;
+import vehicle.RegularManualTransmission;
+import vehicle.TransitionTable;
+import vehicle.TransmissionStatus;
+import vehicle.fleet.FleetExecutor;
+import vehicle.fleet.StatusCounts;
+import vehicle.fleet.TransmissionFleet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests that stepping a fleet in parallel gives the same result with any number of threads.
+ */
+public class FleetExecutorTest {
+
+  private static final TransitionTable PROFILE = new TransitionTable(
+          new int[]{0, 5, 15, 25, 35}, new int[]{10, 20, 30, 40, 50});
+
+  private static byte[][] commands(int ticks, int size) {
+    Random random = new Random(6);
+    byte[][] commands = new byte[ticks][size];
+    for (byte[] tick : commands) {
+      for (int id = 0; id < size; id++) {
+        tick[id] = (byte) (random.nextInt(TransitionTable.ACTIONS + 1) - 1);
+      }
+    }
+    return commands;
+  }
+
+  private static TransmissionFleet run(int threads, byte[][] commands, List<StatusCounts> out) {
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    try {
+      TransmissionFleet fleet = new TransmissionFleet(PROFILE, commands[0].length);
+      FleetExecutor executor = new FleetExecutor(pool);
+      for (byte[] tick : commands) {
+        out.add(executor.step(fleet, tick));
+      }
+      return fleet;
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  // the counts and the final states are the same with 1, 2, 3 and 8 threads
+  @Test
+  public void testSameResultWithAnyThreadCount() {
+    byte[][] commands = commands(40, 20011);
+    List<StatusCounts> expected = new ArrayList<>();
+    TransmissionFleet single = run(1, commands, expected);
+
+    for (int threads : new int[]{2, 3, 8}) {
+      List<StatusCounts> counts = new ArrayList<>();
+      TransmissionFleet fleet = run(threads, commands, counts);
+
+      assertEquals(expected, counts);
+      for (int id = 0; id < fleet.size(); id++) {
+        assertEquals(single.getGear(id), fleet.getGear(id));
+        assertEquals(single.getSpeed(id), fleet.getSpeed(id));
+        assertEquals(single.getStatusCode(id), fleet.getStatusCode(id));
+      }
+    }
+  }
+
+  // separate transmission objects give the same counts as the fleet
+  @Test
+  public void testTransmissionsMatchFleet() {
+    byte[][] commands = commands(30, 9000);
+    List<StatusCounts> expected = new ArrayList<>();
+    run(2, commands, expected);
+
+    List<ManualTransmission> cars = new ArrayList<>();
+    for (int i = 0; i < 9000; i++) {
+      cars.add(new RegularManualTransmission(0, 10, 5, 20, 15, 30, 25, 40, 35, 50));
+    }
+    FleetExecutor executor = new FleetExecutor();
+    for (int tick = 0; tick < commands.length; tick++) {
+      assertEquals(expected.get(tick), executor.step(cars, commands[tick]));
+    }
+  }
+
+  @Test
+  public void testIdleFleet() {
+    TransmissionFleet fleet = new TransmissionFleet(PROFILE, 100);
+    byte[] idle = new byte[100];
+    Arrays.fill(idle, FleetExecutor.IDLE);
+
+    StatusCounts counts = new FleetExecutor().step(fleet, idle);
+    assertEquals(100, counts.get(TransmissionStatus.OK_EVERYTHING_IS_OK));
+    assertEquals(100, counts.total());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWrongNumberOfCommands() {
+    new FleetExecutor().step(new TransmissionFleet(PROFILE, 10), new byte[9]);
+  }
+
+  // a bad command is found before any is done, so the fleet is left as it was
+  @Test
+  public void testUnknownCommandForFleet() {
+    TransmissionFleet fleet = new TransmissionFleet(PROFILE, 100);
+    byte[] commands = new byte[100];
+    Arrays.fill(commands, (byte) TransitionTable.INCREASE_SPEED);
+    commands[70] = 7;
+    try {
+      new FleetExecutor().step(fleet, commands);
+      fail("command 7 is unknown");
+    } catch (IllegalArgumentException e) {
+      for (int id = 0; id < fleet.size(); id++) {
+        assertEquals(0, fleet.getSpeed(id));
+      }
+    }
+  }
+
+  @Test
+  public void testUnknownCommandForTransmissions() {
+    List<ManualTransmission> cars = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      cars.add(new RegularManualTransmission(0, 10, 5, 20, 15, 30, 25, 40, 35, 50));
+    }
+    byte[] commands = new byte[100];
+    Arrays.fill(commands, (byte) TransitionTable.INCREASE_SPEED);
+    commands[30] = -2;
+    try {
+      new FleetExecutor().step(cars, commands);
+      fail("command -2 is unknown");
+    } catch (IllegalArgumentException e) {
+      for (ManualTransmission car : cars) {
+        assertEquals(0, car.getSpeed());
+      }
+    }
+  }
+}
@@ -0,0 +1,233 @@
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import vehicle.GearProfile;
+import vehicle.ManualTransmission;
+import vehicle.RegularManualTransmission;
+import vehicle.TransitionTable;
+import vehicle.TransmissionStatus;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests the speed ranges of transmissions with any number of gears.
+ */
+public class GearProfileTest {
+
+  // an 18-speed truck, where each gear overlaps the next by a few speeds
+  private static GearProfile truck() {
+    int[] lows = new int[18];
+    int[] highs = new int[18];
+    for (int i = 0; i < 18; i++) {
+      lows[i] = i * 6;
+      highs[i] = i * 6 + 9;
+    }
+    return GearProfile.of(lows, highs);
+  }
+
+  private static int[] gearsByScan(GearProfile profile, int speed) {
+    return IntStream.rangeClosed(1, profile.getGears())
+            .filter(g -> profile.getLowerSpeed(g) <= speed && speed <= profile.getHigherSpeed(g))
+            .toArray();
+  }
+
+  @Test
+  public void testBounds() {
+    GearProfile profile = truck();
+    assertEquals(18, profile.getGears());
+    assertEquals(0, profile.getLowerSpeed(1));
+    assertEquals(111, profile.getHigherSpeed(18));
+    assertEquals(0, profile.getMinSpeed());
+    assertEquals(111, profile.getMaxSpeed());
+  }
+
+  @Test
+  public void testCopiesRanges() {
+    int[] lows = {0, 5};
+    int[] highs = {10, 20};
+    GearProfile profile = GearProfile.of(lows, highs);
+    lows[1] = 50;
+    highs[1] = 0;
+    assertEquals(5, profile.getLowerSpeed(2));
+    assertEquals(20, profile.getHigherSpeed(2));
+  }
+
+  @Test
+  public void testGearsForSpeed() {
+    GearProfile profile = truck();
+    assertArrayEquals(new int[]{1}, profile.gearsForSpeed(0));
+    assertArrayEquals(new int[]{1, 2}, profile.gearsForSpeed(6));
+    assertArrayEquals(new int[]{17, 18}, profile.gearsForSpeed(105));
+    assertArrayEquals(new int[]{18}, profile.gearsForSpeed(111));
+    assertArrayEquals(new int[0], profile.gearsForSpeed(112));
+    assertArrayEquals(new int[0], profile.gearsForSpeed(-1));
+    assertArrayEquals(new int[0], profile.gearsForSpeed(Integer.MIN_VALUE));
+    assertArrayEquals(new int[0], profile.gearsForSpeed(Integer.MAX_VALUE));
+  }
+
+  // the binary search and the scan for bounds that go down agree with checking every gear
+  @Test
+  public void testGearsForSpeedMatchesScan() {
+    GearProfile[] profiles = {
+      truck(),
+      GearProfile.of(new int[]{0, 5, 15, 25, 35}, new int[]{10, 20, 30, 40, 50}),
+      GearProfile.of(new int[]{0, 0, 0, 0, 0}, new int[]{50, 50, 50, 50, 50}),
+      GearProfile.of(new int[]{0, -5, 2, 1, 0}, new int[]{10, 3, 20, 8, 20}),
+      GearProfile.of(new int[]{0, 8, 4, 25, 35}, new int[]{10, 5, 30, 40, 50})
+    };
+    for (GearProfile profile : profiles) {
+      for (int speed = profile.getMinSpeed() - 2; speed <= profile.getMaxSpeed() + 2; speed++) {
+        assertArrayEquals(profile + " at " + speed, gearsByScan(profile, speed),
+                profile.gearsForSpeed(speed));
+      }
+    }
+  }
+
+  @Test
+  public void testTruckDrive() {
+    GearProfile profile = truck();
+    ManualTransmission truck = new RegularManualTransmission(profile);
+    for (int gear = 1; gear <= 18; gear++) {
+      assertEquals(gear, truck.getGear());
+      truck.increaseSpeed(profile.getHigherSpeed(gear) - truck.getSpeed());
+      if (gear < 18) {
+        truck.increaseGear();
+      }
+    }
+    assertEquals(111, truck.getSpeed());
+    truck.increaseSpeed();
+    assertSame(TransmissionStatus.NO_INCREASE_SPEED_MAX, truck.getStatusCode());
+    truck.increaseGear();
+    assertSame(TransmissionStatus.NO_INCREASE_GEAR_MAX, truck.getStatusCode());
+    assertEquals(18, truck.getGear());
+  }
+
+  // the bulk changes of speed stop where the single steps would, in any gear of the truck
+  @Test
+  public void testTruckBulkMatchesSteps() {
+    GearProfile profile = truck();
+    TransitionTable table = new TransitionTable(profile);
+    Random random = new Random(29);
+    ManualTransmission truck = new RegularManualTransmission(profile);
+    long state = TransitionTable.state(1, 0, TransmissionStatus.OK_EVERYTHING_IS_OK.ordinal());
+    for (int i = 0; i < 5000; i++) {
+      int delta = random.nextInt(12);
+      switch (random.nextInt(4)) {
+        case 0:
+          truck.increaseSpeed(delta);
+          state = table.repeat(state, TransitionTable.INCREASE_SPEED, delta);
+          break;
+        case 1:
+          truck.decreaseSpeed(delta);
+          state = table.repeat(state, TransitionTable.DECREASE_SPEED, delta);
+          break;
+        case 2:
+          truck.increaseGear();
+          state = table.next(state, TransitionTable.INCREASE_GEAR);
+          break;
+        default:
+          truck.decreaseGear();
+          state = table.next(state, TransitionTable.DECREASE_GEAR);
+          break;
+      }
+      assertEquals(TransitionTable.gearOf(state), truck.getGear());
+      assertEquals(TransitionTable.speedOf(state), truck.getSpeed());
+      assertEquals(TransitionTable.statusOf(state), truck.getStatusCode().ordinal());
+    }
+  }
+
+  // counted from after the first lookup, as earlier tests may have cached the ranges already
+  @Test
+  public void testCanonical() {
+    int[] lows = {0, 7, 17, 27, 37, 47};
+    int[] highs = {11, 21, 31, 41, 51, 61};
+    GearProfile first = GearProfile.of(lows, highs);
+    long hits = GearProfile.getCacheHits();
+    long misses = GearProfile.getCacheMisses();
+
+    GearProfile second = GearProfile.of(lows.clone(), highs.clone());
+    assertSame(first, second);
+    assertSame(first.getTransitions(), second.getTransitions());
+    assertEquals(misses, GearProfile.getCacheMisses());
+    assertEquals(hits + 1, GearProfile.getCacheHits());
+  }
+
+  // transmissions built from the same bounds share one validated profile and table
+  @Test
+  public void testSharedByTransmissions() {
+    GearProfile profile = GearProfile.of(new int[]{0, 6, 16, 26, 36},
+            new int[]{12, 22, 32, 42, 52});
+    long misses = GearProfile.getCacheMisses();
+    for (int i = 0; i < 1000; i++) {
+      new RegularManualTransmission(0, 12, 6, 22, 16, 32, 26, 42, 36, 52);
+    }
+    assertEquals(misses, GearProfile.getCacheMisses());
+    assertSame(profile, GearProfile.of(new int[]{0, 6, 16, 26, 36},
+            new int[]{12, 22, 32, 42, 52}));
+  }
+
+  // a full cache drops the profiles that are not used, and still keeps the new ones
+  @Test
+  public void testCacheEvictsUnusedProfiles() {
+    GearProfile kept = GearProfile.of(new int[]{0, 3}, new int[]{9, 99991});
+    GearProfile dropped = GearProfile.of(new int[]{0, 3}, new int[]{9, 99992});
+    for (int i = 0; i < 300; i++) {
+      GearProfile.of(new int[]{0, 3}, new int[]{9, 100000 + i});
+      assertSame(kept, GearProfile.of(new int[]{0, 3}, new int[]{9, 99991}));
+    }
+    long misses = GearProfile.getCacheMisses();
+    GearProfile last = GearProfile.of(new int[]{0, 3}, new int[]{9, 100299});
+    assertEquals(misses, GearProfile.getCacheMisses());
+    assertSame(last, GearProfile.of(new int[]{0, 3}, new int[]{9, 100299}));
+
+    GearProfile again = GearProfile.of(new int[]{0, 3}, new int[]{9, 99992});
+    assertEquals(misses + 1, GearProfile.getCacheMisses());
+    assertNotSame(dropped, again);
+    assertEquals(dropped, again);
+  }
+
+  @Test
+  public void testEquals() {
+    GearProfile profile = GearProfile.of(new int[]{0, 5}, new int[]{10, 20});
+    assertEquals(profile, GearProfile.of(new int[]{0, 5}, new int[]{10, 20}));
+    assertEquals(profile.hashCode(), GearProfile.of(new int[]{0, 5}, new int[]{10, 20})
+            .hashCode());
+    assertNotEquals(profile, GearProfile.of(new int[]{0, 5}, new int[]{10, 21}));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoGears() {
+    GearProfile.of(new int[0], new int[0]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMismatchedGears() {
+    GearProfile.of(new int[]{0, 5}, new int[]{10});
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNotOverlapping() {
+    int[] lows = new int[8];
+    int[] highs = new int[8];
+    Arrays.setAll(lows, i -> i * 10);
+    Arrays.setAll(highs, i -> i * 10 + 9);
+    GearProfile.of(lows, highs);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testHigherThanTop() {
+    GearProfile.of(new int[]{0, 5, 10}, new int[]{10, 30, 20});
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNotStartingAtZero() {
+    GearProfile.of(new int[]{1, 5, 10}, new int[]{10, 20, 30});
+  }
+}
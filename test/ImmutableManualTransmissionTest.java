@@ -0,0 +1,115 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import vehicle.ImmutableManualTransmission;
+import vehicle.ManualTransmission;
+import vehicle.RegularManualTransmission;
+import vehicle.TransitionTable;
+import vehicle.TransmissionStatus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests the transmission whose actions return shared, unchanging states.
+ */
+public class ImmutableManualTransmissionTest {
+
+  private ImmutableManualTransmission start;
+
+  @Before
+  public void setup() {
+    this.start = ImmutableManualTransmission.start(0, 10, 5, 20, 15, 30, 25, 40, 35, 50);
+  }
+
+  // the actions give the same states as RegularManualTransmission
+  @Test
+  public void testMatchesRegularTransmission() {
+    ManualTransmission expected = new RegularManualTransmission(0, 10, 5, 20, 15,
+            30, 25, 40, 35, 50);
+    ManualTransmission car = start;
+    Random random = new Random(9);
+    for (int i = 0; i < 50000; i++) {
+      int action = random.nextInt(6);
+      switch (action) {
+        case 0:
+          expected.increaseSpeed();
+          car = car.increaseSpeed();
+          break;
+        case 1:
+          expected.decreaseSpeed();
+          car = car.decreaseSpeed();
+          break;
+        case 2:
+          expected.increaseGear();
+          car = car.increaseGear();
+          break;
+        case 3:
+          expected.decreaseGear();
+          car = car.decreaseGear();
+          break;
+        case 4:
+          expected.increaseSpeed(6);
+          car = car.increaseSpeed(6);
+          break;
+        default:
+          expected.decreaseSpeed(6);
+          car = car.decreaseSpeed(6);
+          break;
+      }
+
+      assertEquals(expected.getGear(), car.getGear());
+      assertEquals(expected.getSpeed(), car.getSpeed());
+      assertSame(expected.getStatusCode(), car.getStatusCode());
+    }
+  }
+
+  @Test
+  public void testActionsDoNotChangeTheTransmission() {
+    ManualTransmission faster = start.increaseSpeed(4);
+
+    assertEquals(0, start.getSpeed());
+    assertEquals(4, faster.getSpeed());
+    assertNotSame(start, faster);
+  }
+
+  // reaching the same state again gives the same instance
+  @Test
+  public void testStatesAreShared() {
+    assertSame(start, start.increaseSpeed().decreaseSpeed());
+    assertSame(start.increaseSpeed(10), start.increaseSpeed(3).increaseSpeed(7));
+    assertSame(start.decreaseGear(), start.decreaseGear().decreaseGear());
+  }
+
+  @Test
+  public void testStartsFromOneTableAreEqual() {
+    TransitionTable table = new TransitionTable(new int[]{0, 5, 15, 25, 35},
+            new int[]{10, 20, 30, 40, 50});
+    ImmutableManualTransmission first = ImmutableManualTransmission.start(table);
+    ImmutableManualTransmission second = ImmutableManualTransmission.start(table);
+
+    assertEquals(first.increaseSpeed(2), second.increaseSpeed(2));
+    assertEquals(first.hashCode(), second.hashCode());
+    assertSame(TransmissionStatus.OK_EVERYTHING_IS_OK, first.getStatusCode());
+  }
+
+  // the states of a profile are built once and shared by every transmission started from it
+  @Test
+  public void testStartsShareStates() {
+    TransitionTable table = new TransitionTable(new int[]{0, 5, 15, 25, 35},
+            new int[]{10, 20, 30, 40, 50});
+    ImmutableManualTransmission first = ImmutableManualTransmission.start(table);
+    ImmutableManualTransmission second = ImmutableManualTransmission.start(table);
+    assertSame(first, second);
+    assertSame(first.increaseSpeed(12), second.increaseSpeed(12));
+    assertSame(start, ImmutableManualTransmission.start(0, 10, 5, 20, 15, 30, 25, 40, 35, 50));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTooManyStates() {
+    ImmutableManualTransmission.start(0, 10, 5, 20, 15, 30, 25, 40, 35, 1000000);
+  }
+}
@@ -0,0 +1,129 @@
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import vehicle.ManualTransmission;
+import vehicle.TransitionTable;
+import vehicle.TransmissionStatus;
+import vehicle.fleet.MappedTransmissionFleet;
+import vehicle.fleet.TransmissionFleet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests the fleet of transmissions kept in a memory-mapped file.
+ */
+public class MappedTransmissionFleetTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private TransitionTable profile;
+  private Path file;
+
+  @Before
+  public void setup() throws IOException {
+    this.profile = new TransitionTable(new int[]{0, 5, 15, 25, 35},
+            new int[]{10, 20, 30, 40, 50});
+    this.file = folder.getRoot().toPath().resolve("fleet.bin");
+  }
+
+  @Test
+  public void testStartOfFleet() throws IOException {
+    try (MappedTransmissionFleet fleet = MappedTransmissionFleet.create(file, profile, 1000)) {
+      assertEquals(1000, fleet.size());
+      for (int id = 0; id < fleet.size(); id++) {
+        assertEquals(1, fleet.getGear(id));
+        assertEquals(0, fleet.getSpeed(id));
+        assertSame(TransmissionStatus.OK_EVERYTHING_IS_OK, fleet.getStatusCode(id));
+      }
+    }
+  }
+
+  // the mapped records go through the same transitions as the fleet on the heap
+  @Test
+  public void testMatchesHeapFleet() throws IOException {
+    TransmissionFleet expected = new TransmissionFleet(profile, 200);
+    try (MappedTransmissionFleet fleet = MappedTransmissionFleet.create(file, profile, 200)) {
+      Random random = new Random(5);
+      for (int i = 0; i < 100000; i++) {
+        int id = random.nextInt(200);
+        int action = random.nextInt(TransitionTable.ACTIONS);
+        expected.apply(id, action);
+        fleet.apply(id, action);
+      }
+
+      for (int id = 0; id < 200; id++) {
+        assertEquals(expected.getGear(id), fleet.getGear(id));
+        assertEquals(expected.getSpeed(id), fleet.getSpeed(id));
+        assertSame(expected.getStatusCode(id), fleet.getStatusCode(id));
+      }
+    }
+  }
+
+  // the state of every transmission is still there after the file is opened again
+  @Test
+  public void testSurvivesReopen() throws IOException {
+    try (MappedTransmissionFleet fleet = MappedTransmissionFleet.create(file, profile, 50)) {
+      ManualTransmission car = fleet.view(7);
+      car.increaseSpeed(12);
+      car.increaseGear();
+      car.increaseSpeed(3);
+      fleet.increaseSpeed(new int[]{8});
+      fleet.force();
+    }
+
+    try (MappedTransmissionFleet fleet = MappedTransmissionFleet.open(file)) {
+      assertEquals(50, fleet.size());
+      assertEquals(20, fleet.getProfile().getHigherSpeed(2));
+      assertEquals(2, fleet.getGear(7));
+      assertEquals(13, fleet.getSpeed(7));
+      assertSame(TransmissionStatus.OK_EVERYTHING_IS_OK, fleet.getStatusCode(7));
+      assertEquals(1, fleet.getSpeed(8));
+      assertEquals(0, fleet.getSpeed(9));
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testCreateDoesNotOverwrite() throws IOException {
+    Files.write(file, new byte[]{1, 2, 3});
+    MappedTransmissionFleet.create(file, profile, 10);
+  }
+
+  @Test(expected = IOException.class)
+  public void testOpenOtherFile() throws IOException {
+    Files.write(file, new byte[64]);
+    MappedTransmissionFleet.open(file);
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testIdOutsideFleet() throws IOException {
+    try (MappedTransmissionFleet fleet = MappedTransmissionFleet.create(file, profile, 10)) {
+      fleet.getGear(10);
+    }
+  }
+
+  // the default shift checks of a fleet agree with the batch checks of the heap fleet
+  @Test
+  public void testMayShiftMatchesHeapFleet() throws IOException {
+    try (MappedTransmissionFleet fleet = MappedTransmissionFleet.create(file, profile, 300)) {
+      TransmissionFleet cars = new TransmissionFleet(profile, 300);
+      Random random = new Random(7);
+      for (int i = 0; i < 50000; i++) {
+        int id = random.nextInt(300);
+        int action = random.nextInt(TransitionTable.ACTIONS);
+        cars.apply(id, action);
+        fleet.apply(id, action);
+      }
+      assertEquals(cars.mayIncreaseGear(), fleet.mayIncreaseGear());
+      assertEquals(cars.mayDecreaseGear(), fleet.mayDecreaseGear());
+    }
+  }
+}
@@ -0,0 +1,173 @@
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import vehicle.GearProfile;
+import vehicle.ProfileReport;
+import vehicle.ProfileVerifier;
+import vehicle.TransitionTable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that the verifier of profiles finds the states that cannot be reached or left, and
+ * the transitions that disagree with their status.
+ */
+public class ProfileVerifierTest {
+
+  private static final ProfileVerifier VERIFIER = new ProfileVerifier();
+
+  private static boolean isState(GearProfile profile, int gear, int speed) {
+    return gear >= 1 && gear <= profile.getGears() && speed >= profile.getLowerSpeed(gear)
+            && speed <= profile.getHigherSpeed(gear);
+  }
+
+  // whether a state can reach the target, or be reached from the start, one state at a time
+  private static boolean[][] search(GearProfile profile, boolean forward) {
+    TransitionTable table = profile.getTransitions();
+    int gears = profile.getGears();
+    int top = profile.getMaxSpeed();
+    boolean[][] seen = new boolean[gears + 1][top + 1];
+    ArrayDeque<int[]> queue = new ArrayDeque<>();
+    for (int gear = 1; gear <= gears; gear++) {
+      if (forward ? gear == 1 : isState(profile, gear, 0)) {
+        seen[gear][0] = true;
+        queue.add(new int[]{gear, 0});
+      }
+    }
+    while (!queue.isEmpty()) {
+      int[] state = queue.poll();
+      for (int gear = 1; gear <= gears; gear++) {
+        for (int speed = profile.getLowerSpeed(gear); speed <= profile.getHigherSpeed(gear);
+             speed++) {
+          if (seen[gear][speed]) {
+            continue;
+          }
+          int[] from = forward ? state : new int[]{gear, speed};
+          int[] to = forward ? new int[]{gear, speed} : state;
+          for (int action = 0; action < TransitionTable.ACTIONS; action++) {
+            int entry = table.entry(from[0], from[1], action);
+            if (from[0] + TransitionTable.gearChange(entry) == to[0]
+                    && from[1] + TransitionTable.speedChange(entry) == to[1]) {
+              seen[gear][speed] = true;
+              queue.add(new int[]{gear, speed});
+              break;
+            }
+          }
+        }
+      }
+    }
+    return seen;
+  }
+
+  @Test
+  public void testCarIsValid() {
+    ProfileReport report = VERIFIER.verify(GearProfile.of(new int[]{0, 5, 15, 25, 35},
+            new int[]{10, 20, 30, 40, 50}));
+    assertTrue(report.toString(), report.isValid());
+    assertEquals(11 + 16 + 16 + 16 + 16, report.getStates());
+    assertTrue(report.getProblems().isEmpty());
+    assertTrue(report.isReachable(5, 50));
+    assertTrue(report.canReturnToZero(5, 35));
+    assertFalse(report.isReachable(5, 34));
+  }
+
+  // gear 3 only holds speed 0, which gear 2 never gets down to, so gear 4 is cut off too
+  @Test
+  public void testUnreachableStates() {
+    ProfileReport report = VERIFIER.verify(GearProfile.of(new int[]{0, 1, 0, 0},
+            new int[]{3, 4, 0, 7}));
+    assertEquals(9, report.getUnreachableCount());
+    assertEquals(0, report.getDeadEndCount());
+    assertFalse(report.isReachable(3, 0));
+    assertFalse(report.isReachable(4, 7));
+    assertTrue(report.getProblems().contains("gear 3 at speed 0 cannot be reached"));
+  }
+
+  // the only ways out of gears 3 and 4 lead outside of the speed ranges
+  @Test
+  public void testDeadEnds() {
+    ProfileReport report = VERIFIER.verify(GearProfile.of(new int[]{0, 6, 2, 4},
+            new int[]{7, 10, 4, 15}));
+    assertEquals(15, report.getDeadEndCount());
+    assertFalse(report.canReturnToZero(4, 15));
+    assertTrue(report.canReturnToZero(2, 10));
+    assertTrue(report.getProblems().contains("gear 3 at speed 2 cannot get back to speed 0"));
+    assertTrue(report.getProblems().contains(
+            "decreasing the gear in gear 3 at speed 2 leads outside of the speed ranges"));
+  }
+
+  // shifting up from gear 1 lands in gear 2, whose only speed is 0
+  @Test
+  public void testTransitionsOutsideRanges() {
+    ProfileReport report = VERIFIER.verify(GearProfile.of(new int[]{0, 0, 0, 5},
+            new int[]{3, 0, 5, 16}));
+    assertEquals(3, report.getInconsistentCount());
+    assertEquals("increasing the gear in gear 1 at speed 1 leads outside of the speed ranges",
+            report.getProblems().get(0));
+  }
+
+  // the parallel walks agree with a plain search, with one thread or several
+  @Test
+  public void testMatchesPlainSearch() {
+    Random random = new Random(13);
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      ProfileVerifier[] verifiers = {new ProfileVerifier(new ForkJoinPool(1)),
+          new ProfileVerifier(pool)};
+      for (int i = 0; i < 200; i++) {
+        int gears = 2 + random.nextInt(4);
+        int[] lows = new int[gears];
+        int[] highs = new int[gears];
+        highs[0] = 1 + random.nextInt(10);
+        for (int g = 1; g < gears; g++) {
+          lows[g] = random.nextInt(highs[g - 1] + 1);
+          highs[g] = Math.max(highs[g - 1], lows[g] + random.nextInt(12));
+        }
+        GearProfile profile = GearProfile.of(lows, highs);
+        boolean[][] reached = search(profile, true);
+        boolean[][] returns = search(profile, false);
+        for (ProfileVerifier verifier : verifiers) {
+          ProfileReport report = verifier.verify(profile);
+          for (int gear = 1; gear <= gears; gear++) {
+            for (int speed = 0; speed <= profile.getMaxSpeed(); speed++) {
+              boolean state = isState(profile, gear, speed);
+              assertEquals(state && reached[gear][speed], report.isReachable(gear, speed));
+              assertEquals(state && returns[gear][speed], report.canReturnToZero(gear, speed));
+            }
+          }
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  // 64 gears of up to 65535 speeds are millions of states to walk
+  @Test(timeout = 10000)
+  public void testWideProfile() {
+    int[] lows = new int[64];
+    int[] highs = new int[64];
+    for (int i = 0; i < 64; i++) {
+      lows[i] = i * 1000;
+      highs[i] = i == 63 ? 65535 : i * 1000 + 1500;
+    }
+    ProfileReport report = VERIFIER.verify(GearProfile.of(lows, highs));
+    assertTrue(report.toString(), report.isValid());
+    assertTrue(report.isReachable(64, 65535));
+  }
+
+  // 300 gears of 65536 speeds are more states than the verifier takes
+  @Test(expected = IllegalArgumentException.class)
+  public void testTooManyStates() {
+    int[] lows = new int[300];
+    int[] highs = new int[300];
+    Arrays.fill(highs, 65535);
+    VERIFIER.verify(GearProfile.of(lows, highs));
+  }
+}
@@ -3,8 +3,13 @@ import org.junit.Test;
 
 import vehicle.ManualTransmission;
 import vehicle.RegularManualTransmission;
+import vehicle.TransmissionStatus;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 /**
@@ -50,6 +55,18 @@ public class RegularManualTransmissionTest {
   }
 
 
+  // drives a new car to the top of the given gear using single steps
+  private ManualTransmission carInGear(int gear) {
+    ManualTransmission car = new RegularManualTransmission(0, 10, 5, 20, 15,
+            30, 25, 40, 35, 50);
+    for (int i = 1; i < gear; i++) {
+      changeSpeed(car, 10);
+      car.increaseGear();
+    }
+    return car;
+  }
+
+
   @Before
   public void setup() {
     this.everythingIsOkay = "OK: everything is OK.";
@@ -470,6 +487,174 @@ public class RegularManualTransmissionTest {
   }
 
 
+  // bulk speed changes give the same result as the same number of single steps
+  @Test
+  public void testBulkSpeedChangeMatchesSingleSteps() {
+    for (int gear = 1; gear <= 5; gear++) {
+      for (int start = -15; start <= 15; start++) {
+        for (int delta = -60; delta <= 60; delta++) {
+          ManualTransmission single = carInGear(gear);
+          ManualTransmission bulk = carInGear(gear);
+          changeSpeed(single, start);
+          changeSpeed(bulk, start);
+
+          changeSpeed(single, delta);
+          if (delta >= 0) {
+            bulk.increaseSpeed(delta);
+          } else {
+            bulk.decreaseSpeed(-delta);
+          }
+
+          assertEquals(single.getGear(), bulk.getGear());
+          assertEquals(single.getSpeed(), bulk.getSpeed());
+          assertEquals(single.getStatus(), bulk.getStatus());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testBulkIncreaseSpeedStopsAtGearLimit() {
+    goodCar.increaseSpeed(Integer.MAX_VALUE);
+
+    assertEquals(10, goodCar.getSpeed());
+    assertEquals(1, goodCar.getGear());
+    assertEquals(cannotIncreaseSpeedIncreaseGear, goodCar.getStatus());
+  }
+
+  @Test
+  public void testBulkIncreaseSpeedReachedMaximum() {
+    ManualTransmission car = carInGear(5);
+    car.increaseSpeed(1000);
+
+    assertEquals(50, car.getSpeed());
+    assertEquals(cannotIncreaseSpeedMax, car.getStatus());
+  }
+
+  @Test
+  public void testBulkDecreaseSpeedReachedMinimum() {
+    goodCar.increaseSpeed(7);
+    goodCar.decreaseSpeed(Integer.MAX_VALUE);
+
+    assertEquals(0, goodCar.getSpeed());
+    assertEquals(cannotDecreaseSpeedMin, goodCar.getStatus());
+  }
+
+  @Test
+  public void testBulkDecreaseSpeedDecreaseGearFirst() {
+    ManualTransmission car = carInGear(3);
+    car.decreaseSpeed(100);
+
+    assertEquals(15, car.getSpeed());
+    assertEquals(3, car.getGear());
+    assertEquals(cannotDecreaseSpeedDecreaseGear, car.getStatus());
+  }
+
+  @Test
+  public void testSetSpeedClamped() {
+    goodCar.setSpeedClamped(4);
+    assertEquals(4, goodCar.getSpeed());
+    assertEquals(everythingIsOkay, goodCar.getStatus());
+
+    goodCar.setSpeedClamped(25);
+    assertEquals(10, goodCar.getSpeed());
+    assertEquals(cannotIncreaseSpeedIncreaseGear, goodCar.getStatus());
+
+    goodCar.increaseGear();
+    goodCar.setSpeedClamped(0);
+    assertEquals(5, goodCar.getSpeed());
+    assertEquals(cannotDecreaseSpeedDecreaseGear, goodCar.getStatus());
+  }
+
+  // the status code always matches the status message
+  @Test
+  public void testStatusCodeMatchesStatus() {
+    assertSame(TransmissionStatus.OK_EVERYTHING_IS_OK, goodCar.getStatusCode());
+
+    changeSpeed(goodCar, 10);
+    assertSame(TransmissionStatus.OK_INCREASE_GEAR, goodCar.getStatusCode());
+    assertEquals(increaseGear, goodCar.getStatusCode().getMessage());
+
+    goodCar.increaseSpeed();
+    assertSame(TransmissionStatus.NO_INCREASE_SPEED, goodCar.getStatusCode());
+    assertEquals(goodCar.getStatus(), goodCar.getStatusCode().getMessage());
+
+    goodCar.decreaseGear();
+    assertSame(TransmissionStatus.NO_DECREASE_GEAR_MIN, goodCar.getStatusCode());
+    assertFalse(goodCar.getStatusCode().isOk());
+  }
+
+  @Test
+  public void testStatusFromMessage() {
+    for (TransmissionStatus status : TransmissionStatus.values()) {
+      assertSame(status, TransmissionStatus.fromMessage(status.getMessage()));
+      assertSame(status, TransmissionStatus.of(status.ordinal()));
+    }
+    assertTrue(TransmissionStatus.fromMessage(everythingIsOkay).isOk());
+    assertSame(TransmissionStatus.NO_INCREASE_SPEED_MAX,
+            TransmissionStatus.fromMessage(cannotIncreaseSpeedMax));
+    assertSame(TransmissionStatus.NO_DECREASE_SPEED_MIN,
+            TransmissionStatus.fromMessage(cannotDecreaseSpeedMin));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testStatusFromUnknownMessage() {
+    TransmissionStatus.fromMessage("OK");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBulkIncreaseSpeedNegative() {
+    goodCar.increaseSpeed(-1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBulkDecreaseSpeedNegative() {
+    goodCar.decreaseSpeed(-1);
+  }
+
+  @Test
+  public void testStatusHistory() {
+    RegularManualTransmission car = new RegularManualTransmission(0, 10, 5, 20, 15,
+            30, 25, 40, 35, 50);
+    assertEquals(0, car.getStatusHistory(10).length);
+    car.increaseGear();
+    car.increaseSpeed(5);
+    car.decreaseSpeed(0);
+    car.decreaseSpeed();
+    assertArrayEquals(new byte[]{(byte) TransmissionStatus.NO_INCREASE_GEAR.ordinal(),
+        (byte) TransmissionStatus.OK_INCREASE_GEAR.ordinal(),
+        (byte) TransmissionStatus.OK_EVERYTHING_IS_OK.ordinal()}, car.getStatusHistory(10));
+    assertArrayEquals(new byte[]{(byte) TransmissionStatus.OK_EVERYTHING_IS_OK.ordinal()},
+            car.getStatusHistory(1));
+    assertEquals(0, car.getStatusHistory(0).length);
+  }
+
+  // only the last statuses are kept, and they always agree with the status of the car
+  @Test
+  public void testStatusHistoryWraps() {
+    RegularManualTransmission car = new RegularManualTransmission(0, 10, 5, 20, 15,
+            30, 25, 40, 35, 50);
+    byte[] expected = new byte[RegularManualTransmission.STATUS_HISTORY];
+    for (int i = 0; i < 200; i++) {
+      if (i % 3 == 0) {
+        car.increaseGear();
+      } else {
+        car.increaseSpeed();
+      }
+      assertEquals(car.getStatusCode().getMessage(), car.getStatus());
+      System.arraycopy(expected, 1, expected, 0, expected.length - 1);
+      expected[expected.length - 1] = (byte) car.getStatusCode().ordinal();
+    }
+    assertArrayEquals(expected, car.getStatusHistory(Integer.MAX_VALUE));
+    assertEquals(TransmissionStatus.NO_INCREASE_SPEED_MAX, car.getStatusCode());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testStatusHistoryNegative() {
+    new RegularManualTransmission(0, 10, 5, 20, 15, 30, 25, 40, 35, 50).getStatusHistory(-1);
+  }
+
+
 
 
 
@@ -0,0 +1,197 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import vehicle.GearProfile;
+import vehicle.TransitionTable;
+import vehicle.TransmissionStatus;
+import vehicle.fleet.AggregatingFleet;
+import vehicle.fleet.TransmissionFleet;
+import vehicle.sim.CommandSource;
+import vehicle.sim.ShardWorker;
+import vehicle.sim.ShardedReport;
+import vehicle.sim.ShardedSimulation;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the simulation split between workers over loopback sockets against the same
+ * commands run in one fleet.
+ */
+public class ShardedSimulationTest {
+
+  private GearProfile profile;
+  private List<ShardWorker> workers;
+
+  @Before
+  public void setup() throws IOException {
+    this.profile = GearProfile.of(new int[]{0, 5, 15, 25, 35}, new int[]{10, 20, 30, 40, 50});
+    this.workers = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      ShardWorker worker = new ShardWorker(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+              0));
+      workers.add(worker);
+      Thread thread = new Thread(worker, "shard-" + i);
+      thread.setDaemon(true);
+      thread.start();
+    }
+  }
+
+  @After
+  public void teardown() throws IOException {
+    for (ShardWorker worker : workers) {
+      worker.close();
+    }
+  }
+
+  private List<InetSocketAddress> addresses(int count) throws IOException {
+    List<InetSocketAddress> addresses = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      addresses.add(workers.get(i).getAddress());
+    }
+    return addresses;
+  }
+
+  // mostly speeding up, so that the vehicles go through every gear, and now and then nothing
+  private static int action(int id, long tick) {
+    long x = id * 0x9E3779B97F4A7C15L ^ tick * 0xC2B2AE3D27D4EB4FL;
+    x ^= x >>> 29;
+    x *= 0xBF58476D1CE4E5B9L;
+    x ^= x >>> 32;
+    int roll = (int) ((x & Integer.MAX_VALUE) % 10);
+    return roll < 1 ? CommandSource.NONE : roll < 5 ? TransitionTable.INCREASE_SPEED
+            : roll < 7 ? TransitionTable.DECREASE_SPEED : roll < 9 ? TransitionTable.INCREASE_GEAR
+            : TransitionTable.DECREASE_GEAR;
+  }
+
+  // the same ticks run in one fleet, in one process
+  private AggregatingFleet reference(int vehicles, long ticks) {
+    AggregatingFleet fleet = new AggregatingFleet(new TransmissionFleet(
+            profile.getTransitions(), vehicles));
+    for (long tick = 0; tick < ticks; tick++) {
+      for (int id = 0; id < vehicles; id++) {
+        int action = action(id, tick);
+        if (action != CommandSource.NONE) {
+          fleet.apply(id, action);
+        }
+      }
+    }
+    return fleet;
+  }
+
+  private static long[] states(AggregatingFleet fleet) {
+    long[] states = new long[fleet.size()];
+    for (int id = 0; id < states.length; id++) {
+      states[id] = TransitionTable.state(fleet.getGear(id), fleet.getSpeed(id),
+              fleet.getStatusCode(id).ordinal());
+    }
+    return states;
+  }
+
+  private void assertSameAsOneProcess(List<InetSocketAddress> addresses, int vehicles)
+          throws IOException {
+    try (ShardedSimulation simulation = new ShardedSimulation(profile, vehicles, addresses)) {
+      ShardedReport first = simulation.run(ShardedSimulationTest::action, 120);
+      ShardedReport second = simulation.run(ShardedSimulationTest::action, 80);
+      assertEquals(200, simulation.getTick());
+      assertEquals(vehicles, second.getStatusCounts().total());
+
+      AggregatingFleet fleet = reference(vehicles, 200);
+      assertArrayEquals(states(fleet), simulation.getStates());
+      assertEquals(fleet.getStatusCounts(), second.getStatusCounts());
+      long operations = 0;
+      for (long tick = 0; tick < 200; tick++) {
+        for (int id = 0; id < vehicles; id++) {
+          operations += action(id, tick) == CommandSource.NONE ? 0 : 1;
+        }
+      }
+      assertEquals(operations, first.getOperations() + second.getOperations());
+    }
+  }
+
+  @Test
+  public void testSameAsOneProcess() throws IOException {
+    // more commands in a tick than fit in one batch
+    assertSameAsOneProcess(addresses(3), 40001);
+    assertSameAsOneProcess(addresses(1), 500);
+  }
+
+  @Test
+  public void testMoreShardsThanVehicles() throws IOException {
+    assertSameAsOneProcess(addresses(3), 2);
+    assertSameAsOneProcess(addresses(2), 0);
+  }
+
+  // a worker serves the next simulation from the start once the last one is closed
+  @Test
+  public void testWorkersAreReused() throws IOException {
+    try (ShardedSimulation simulation = new ShardedSimulation(profile, 100, addresses(2))) {
+      simulation.run((id, tick) -> TransitionTable.INCREASE_SPEED, 5);
+      assertEquals(5, TransitionTable.speedOf(simulation.getStates()[99]));
+    }
+    try (ShardedSimulation simulation = new ShardedSimulation(profile, 100, addresses(2))) {
+      ShardedReport report = simulation.run((id, tick) -> CommandSource.NONE, 3);
+      assertEquals(0, report.getOperations());
+      assertEquals(100, report.getStatusCounts().get(TransmissionStatus.OK_EVERYTHING_IS_OK));
+      assertEquals(0, TransitionTable.speedOf(simulation.getStates()[99]));
+    }
+  }
+
+  @Test
+  public void testWorkerRefusesProfile() throws IOException {
+    GearProfile wide = GearProfile.of(new int[]{0, 5}, new int[]{10, 40000});
+    try (ShardedSimulation simulation = new ShardedSimulation(wide, 10, addresses(1))) {
+      fail("a shard cannot hold speeds beyond a short");
+    } catch (IOException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("short"));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownAction() throws IOException {
+    try (ShardedSimulation simulation = new ShardedSimulation(profile, 10, addresses(2))) {
+      simulation.run((id, tick) -> 4, 1);
+    }
+  }
+
+  // the workers run in processes of their own, as they would on other machines
+  @Test(timeout = 60000)
+  public void testWorkerProcesses() throws Exception {
+    String java = System.getProperty("java.home") + File.separator + "bin" + File.separator
+            + "java";
+    String classes = new File(ShardWorker.class.getProtectionDomain().getCodeSource()
+            .getLocation().toURI()).getPath();
+    List<Process> processes = new ArrayList<>();
+    try {
+      List<InetSocketAddress> addresses = new ArrayList<>();
+      for (int i = 0; i < 2; i++) {
+        Process process = new ProcessBuilder(java, "-cp", classes, ShardWorker.class.getName())
+                .redirectErrorStream(true).start();
+        processes.add(process);
+        String line = new BufferedReader(new InputStreamReader(process.getInputStream(),
+                StandardCharsets.UTF_8)).readLine();
+        assertTrue(line, line != null && line.startsWith("listening on "));
+        addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                Integer.parseInt(line.substring("listening on ".length()))));
+      }
+      assertSameAsOneProcess(addresses, 10001);
+    } finally {
+      for (Process process : processes) {
+        process.destroy();
+      }
+    }
+  }
+}
@@ -0,0 +1,174 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import vehicle.GearProfile;
+import vehicle.ImmutableManualTransmission;
+import vehicle.ManualTransmission;
+import vehicle.RegularManualTransmission;
+import vehicle.ShiftPlanner;
+import vehicle.TransitionTable;
+import vehicle.TransmissionStatus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the planner of the shortest ways between gears and speeds against a search done
+ * here with the transition table.
+ */
+public class ShiftPlannerTest {
+
+  private GearProfile profile;
+
+  @Before
+  public void setup() {
+    this.profile = GearProfile.of(new int[]{0, 5, 15, 25, 35}, new int[]{10, 20, 30, 40, 50});
+  }
+
+  // the number of actions from a state to every state that can be reached from it
+  private static Map<Long, Integer> distances(GearProfile profile, int gear, int speed) {
+    TransitionTable table = profile.getTransitions();
+    Map<Long, Integer> distances = new HashMap<>();
+    ArrayDeque<Long> queue = new ArrayDeque<>();
+    long start = TransitionTable.state(gear, speed, 0);
+    distances.put(start, 0);
+    queue.add(start);
+    while (!queue.isEmpty()) {
+      long state = queue.poll();
+      for (int action = 0; action < TransitionTable.ACTIONS; action++) {
+        long next = TransitionTable.state(TransitionTable.gearOf(table.next(state, action)),
+                TransitionTable.speedOf(table.next(state, action)), 0);
+        if (!distances.containsKey(next)) {
+          distances.put(next, distances.get(state) + 1);
+          queue.add(next);
+        }
+      }
+    }
+    return distances;
+  }
+
+  // a transmission in the given gear and speed, driven there by the planner from the start
+  private static ManualTransmission carAt(GearProfile profile, int gear, int speed) {
+    return profile.getPlanner().drive(new RegularManualTransmission(profile), gear, speed);
+  }
+
+  private static void checkPlans(GearProfile profile, int gear, int speed) {
+    ShiftPlanner planner = profile.getPlanner();
+    for (Map.Entry<Long, Integer> entry : distances(profile, gear, speed).entrySet()) {
+      int targetGear = TransitionTable.gearOf(entry.getKey());
+      int targetSpeed = TransitionTable.speedOf(entry.getKey());
+      byte[] plan = planner.plan(gear, speed, targetGear, targetSpeed);
+      assertEquals((int) entry.getValue(), plan.length);
+
+      ManualTransmission car = ShiftPlanner.execute(carAt(profile, gear, speed), plan);
+      assertEquals(targetGear, car.getGear());
+      assertEquals(targetSpeed, car.getSpeed());
+    }
+  }
+
+  @Test
+  public void testShortestFromEveryState() {
+    for (Map.Entry<Long, Integer> entry : distances(profile, 1, 0).entrySet()) {
+      checkPlans(profile, TransitionTable.gearOf(entry.getKey()),
+              TransitionTable.speedOf(entry.getKey()));
+    }
+  }
+
+  // a profile with too many states for the table searches on every plan
+  @Test
+  public void testShortestWithoutTable() {
+    GearProfile wide = GearProfile.of(new int[]{0, 100, 200, 300, 400},
+            new int[]{150, 250, 350, 450, 550});
+    Random random = new Random(41);
+    for (int i = 0; i < 5; i++) {
+      int gear = random.nextInt(5) + 1;
+      checkPlans(wide, gear, wide.getLowerSpeed(gear) + random.nextInt(50));
+    }
+  }
+
+  @Test
+  public void testPlanToSpeed() {
+    ShiftPlanner planner = profile.getPlanner();
+    for (int speed = 0; speed <= 50; speed++) {
+      byte[] plan = planner.planToSpeed(1, 0, speed);
+      assertEquals(speed, ShiftPlanner.execute(new RegularManualTransmission(profile), plan)
+              .getSpeed());
+
+      Map<Long, Integer> distances = distances(profile, 1, 0);
+      int shortest = Integer.MAX_VALUE;
+      for (int gear = 1; gear <= 5; gear++) {
+        Integer distance = distances.get(TransitionTable.state(gear, speed, 0));
+        if (distance != null) {
+          shortest = Math.min(shortest, distance);
+        }
+      }
+      assertEquals(shortest, plan.length);
+    }
+  }
+
+  @Test
+  public void testDriveImmutable() {
+    ManualTransmission start = ImmutableManualTransmission.start(profile.getTransitions());
+    ManualTransmission end = profile.getPlanner().drive(start, 5, 50);
+    assertEquals(5, end.getGear());
+    assertEquals(50, end.getSpeed());
+    assertEquals(1, start.getGear());
+    assertEquals(0, start.getSpeed());
+  }
+
+  @Test
+  public void testTruck() {
+    int[] lows = new int[18];
+    int[] highs = new int[18];
+    for (int i = 0; i < 18; i++) {
+      lows[i] = i * 6;
+      highs[i] = i * 6 + 9;
+    }
+    GearProfile truck = GearProfile.of(lows, highs);
+    ManualTransmission car = truck.getPlanner().drive(new RegularManualTransmission(truck), 18,
+            111);
+    assertEquals(18, car.getGear());
+    assertEquals(111, car.getSpeed());
+    assertSame(TransmissionStatus.OK_EVERYTHING_IS_OK, car.getStatusCode());
+    assertTrue(truck.getPlanner().plan(18, 111, 1, 0).length > 0);
+  }
+
+  @Test
+  public void testShared() {
+    assertSame(profile.getPlanner(), GearProfile.of(new int[]{0, 5, 15, 25, 35},
+            new int[]{10, 20, 30, 40, 50}).getPlanner());
+  }
+
+  @Test
+  public void testAlreadyThere() {
+    assertEquals(0, profile.getPlanner().plan(3, 20, 3, 20).length);
+  }
+
+  // first gear never goes above its range, in either planner
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnreachable() {
+    profile.getPlanner().plan(1, 0, 1, 40);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnreachableWithoutTable() {
+    GearProfile.of(new int[]{0, 100, 200, 300, 400}, new int[]{150, 250, 350, 450, 550})
+            .getPlanner().plan(1, 0, 1, 400);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testOutsideRanges() {
+    profile.getPlanner().plan(1, 0, 6, 40);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownAction() {
+    ShiftPlanner.execute(new RegularManualTransmission(profile), new byte[]{4});
+  }
+}
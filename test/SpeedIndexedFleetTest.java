@@ -0,0 +1,130 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import vehicle.GearProfile;
+import vehicle.ManualTransmission;
+import vehicle.TransitionTable;
+import vehicle.fleet.AggregatingFleet;
+import vehicle.fleet.Fleet;
+import vehicle.fleet.SpeedIndexedFleet;
+import vehicle.fleet.TransmissionFleet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that the speed index of a fleet always finds what scanning every transmission finds.
+ */
+public class SpeedIndexedFleetTest {
+
+  private TransitionTable profile;
+  private SpeedIndexedFleet fleet;
+
+  @Before
+  public void setup() {
+    this.profile = new TransitionTable(new int[]{0, 5, 15, 25, 35},
+            new int[]{10, 20, 30, 40, 50});
+    this.fleet = new SpeedIndexedFleet(new TransmissionFleet(profile, 1000));
+  }
+
+  private static int[] scan(Fleet fleet, int gear, int from, int to) {
+    return IntStream.range(0, fleet.size())
+            .filter(id -> fleet.getGear(id) == gear && fleet.getSpeed(id) >= from
+                    && fleet.getSpeed(id) <= to)
+            .toArray();
+  }
+
+  private static void assertFinds(SpeedIndexedFleet fleet, int gear, int from, int to) {
+    int[] found = fleet.findInRange(gear, from, to);
+    for (int i = 1; i < found.length; i++) {
+      assertTrue(fleet.getSpeed(found[i - 1]) <= fleet.getSpeed(found[i]));
+    }
+    Arrays.sort(found);
+    assertArrayEquals(scan(fleet, gear, from, to), found);
+    assertEquals(found.length, fleet.countInRange(gear, from, to));
+  }
+
+  @Test
+  public void testStartOfFleet() {
+    assertEquals(1000, fleet.countInRange(1, 0, 0));
+    assertEquals(0, fleet.countInRange(1, 1, 10));
+    assertEquals(0, fleet.findInRange(2, 0, 50).length);
+  }
+
+  // the index follows random actions, and its results come out by speed
+  @Test
+  public void testRandomActions() {
+    Random random = new Random(11);
+    for (int i = 0; i < 300000; i++) {
+      fleet.apply(random.nextInt(fleet.size()), random.nextInt(TransitionTable.ACTIONS));
+      if (i % 10000 == 0) {
+        int gear = random.nextInt(5) + 1;
+        int from = random.nextInt(60) - 5;
+        assertFinds(fleet, gear, from, from + random.nextInt(30));
+      }
+    }
+    for (int gear = 1; gear <= 5; gear++) {
+      assertFinds(fleet, gear, 0, 50);
+      assertFinds(fleet, gear, 20, 30);
+    }
+  }
+
+  // speeds from 0 to 500 take several words of bits per gear
+  @Test
+  public void testWideSpeedRanges() {
+    GearProfile truck = GearProfile.of(new int[]{0, 100, 250}, new int[]{150, 300, 500});
+    TransmissionFleet trucks = new TransmissionFleet(truck.getTransitions(), 300);
+    Random random = new Random(12);
+    for (int i = 0; i < 400000; i++) {
+      trucks.apply(random.nextInt(300), random.nextInt(TransitionTable.ACTIONS));
+    }
+    SpeedIndexedFleet indexed = new SpeedIndexedFleet(trucks);
+    for (int i = 0; i < 100000; i++) {
+      indexed.apply(random.nextInt(300), random.nextInt(TransitionTable.ACTIONS));
+    }
+    for (int gear = 1; gear <= 3; gear++) {
+      assertFinds(indexed, gear, 0, 500);
+      assertFinds(indexed, gear, 63, 64);
+      assertFinds(indexed, gear, 120, 260);
+    }
+  }
+
+  // batches and views go through the index, under aggregates too
+  @Test
+  public void testBatchesAndViews() {
+    AggregatingFleet counted = new AggregatingFleet(fleet);
+    int[] ids = {7, 8};
+    for (int i = 0; i < 10; i++) {
+      counted.increaseSpeed(ids);
+    }
+    ManualTransmission car = counted.view(9);
+    car.increaseSpeed(10);
+    car.increaseGear();
+
+    assertArrayEquals(new int[]{7, 8}, sorted(fleet.findInRange(1, 10, 10)));
+    assertArrayEquals(new int[]{9}, fleet.findInRange(2, 5, 20));
+    assertEquals(1, counted.getGearCount(2));
+  }
+
+  private static int[] sorted(int[] ids) {
+    Arrays.sort(ids);
+    return ids;
+  }
+
+  @Test
+  public void testEmptyRanges() {
+    assertEquals(0, fleet.countInRange(1, 10, 5));
+    assertEquals(0, fleet.findInRange(3, 60, 100).length);
+    assertEquals(1000, fleet.countInRange(1, -100, 100));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoSuchGear() {
+    fleet.findInRange(0, 0, 50);
+  }
+}
@@ -0,0 +1,263 @@
+import org.junit.Test;
+
+import java.util.Random;
+
+import vehicle.ManualTransmission;
+import vehicle.RegularManualTransmission;
+import vehicle.TransitionTable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the transition table against the comparisons that RegularManualTransmission
+ * used to make on every call.
+ */
+public class TransitionTableTest {
+
+  private static final String[] MESSAGES = {
+    "OK: everything is OK.",
+    "OK: you may increase the gear.",
+    "OK: you may decrease the gear.",
+    "Cannot increase speed, increase gear first.",
+    "Cannot decrease speed, decrease gear first.",
+    "Cannot increase gear, increase speed first.",
+    "Cannot decrease gear, decrease speed first.",
+    "Cannot increase speed. Reached maximum speed.",
+    "Cannot decrease speed. Reached minimum speed.",
+    "Cannot increase gear. Reached maximum gear.",
+    "Cannot decrease gear. Reached minimum gear."
+  };
+
+  private static final int[][] PROFILES = {
+    {0, 10, 5, 20, 15, 30, 25, 40, 35, 50},
+    {0, 1, 0, 1, 0, 1, 0, 1, 0, 1},
+    {0, 50, 0, 50, 0, 50, 0, 50, 0, 50},
+    {0, 10, -5, 3, 2, 20, 1, 8, 0, 20},
+    {0, 10, 8, 5, 4, 30, 25, 40, 35, 50}
+  };
+
+  /**
+   * The if/else chains of RegularManualTransmission before the transition table, kept
+   * word for word so that the table can be checked against them from any state.
+   */
+  private static class Reference {
+    private final int[] lowerSpeed;
+    private final int[] higherSpeed;
+    private int gear;
+    private int currentSpeed;
+    private String currentMessage;
+
+    Reference(int[] p) {
+      this.lowerSpeed = new int[]{p[0], p[2], p[4], p[6], p[8]};
+      this.higherSpeed = new int[]{p[1], p[3], p[5], p[7], p[9]};
+      this.gear = 1;
+      this.currentSpeed = 0;
+      this.currentMessage = MESSAGES[0];
+    }
+
+    private boolean inRange(int gearNum, int speed) {
+      gearNum = this.gear;
+      for (int i = 0; i < lowerSpeed.length; i++) {
+        if (gear != 5 && lowerSpeed[gearNum] <= speed && speed <= higherSpeed[gearNum - 1]) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    void increaseSpeed() {
+      int newSpeed = this.currentSpeed + 1;
+
+      if (currentSpeed > higherSpeed[gear - 1]) {
+        return;
+      } else if (newSpeed > higherSpeed[4] && gear == 5) {
+        this.currentMessage = MESSAGES[7];
+        return;
+      } else if (newSpeed > higherSpeed[gear - 1] && gear < 5) {
+        this.currentMessage = MESSAGES[3];
+        return;
+      } else if (this.inRange(gear - 1, newSpeed) && this.inRange(gear, newSpeed)) {
+        this.currentMessage = MESSAGES[1];
+      } else if (newSpeed >= lowerSpeed[gear - 1] && newSpeed <= higherSpeed[gear - 1]) {
+        this.currentMessage = MESSAGES[0];
+      }
+      this.currentSpeed = newSpeed;
+    }
+
+    void decreaseSpeed() {
+      int newSpeed = this.currentSpeed - 1;
+
+      if (currentSpeed < lowerSpeed[gear - 1]) {
+        currentMessage = MESSAGES[0];
+        return;
+      } else if (newSpeed < lowerSpeed[0] && gear == 1) {
+        this.currentMessage = MESSAGES[8];
+        return;
+      } else if (newSpeed < lowerSpeed[gear - 1] && gear != 1) {
+        this.currentMessage = MESSAGES[4];
+        return;
+      } else if (gear > 1 && newSpeed <= higherSpeed[gear - 2]) {
+        this.currentMessage = MESSAGES[2];
+        this.currentSpeed = newSpeed;
+        return;
+      }
+      currentMessage = MESSAGES[0];
+      this.currentSpeed = newSpeed;
+    }
+
+    void increaseGear() {
+      this.gear = this.gear + 1;
+
+      if (gear < 5 && currentSpeed >= lowerSpeed[gear]) {
+        this.currentMessage = MESSAGES[0];
+        return;
+      } else if (this.gear == 6) {
+        this.currentMessage = MESSAGES[9];
+        this.gear--;
+        return;
+      } else if (this.currentSpeed < lowerSpeed[gear - 1]) {
+        this.currentMessage = MESSAGES[5];
+        this.gear--;
+        return;
+      }
+      this.currentMessage = MESSAGES[0];
+    }
+
+    void decreaseGear() {
+      this.gear = this.gear - 1;
+
+      if (gear > 1 && currentSpeed <= higherSpeed[gear - 1]) {
+        this.currentMessage = MESSAGES[0];
+        return;
+      } else if (gear == 0) {
+        this.currentMessage = MESSAGES[10];
+        this.gear++;
+        return;
+      } else if (this.currentSpeed > higherSpeed[gear - 1]) {
+        this.currentMessage = MESSAGES[6];
+        this.gear++;
+        return;
+      }
+      this.currentMessage = MESSAGES[0];
+    }
+
+    void apply(int action) {
+      switch (action) {
+        case TransitionTable.INCREASE_SPEED:
+          increaseSpeed();
+          break;
+        case TransitionTable.DECREASE_SPEED:
+          decreaseSpeed();
+          break;
+        case TransitionTable.INCREASE_GEAR:
+          increaseGear();
+          break;
+        default:
+          decreaseGear();
+          break;
+      }
+    }
+  }
+
+  private static void apply(ManualTransmission car, int action) {
+    switch (action) {
+      case TransitionTable.INCREASE_SPEED:
+        car.increaseSpeed();
+        break;
+      case TransitionTable.DECREASE_SPEED:
+        car.decreaseSpeed();
+        break;
+      case TransitionTable.INCREASE_GEAR:
+        car.increaseGear();
+        break;
+      default:
+        car.decreaseGear();
+        break;
+    }
+  }
+
+  // every action from every (gear, speed) pair gives the same state as the old chains
+  @Test
+  public void testEveryStateMatchesReference() {
+    for (int[] p : PROFILES) {
+      TransitionTable table = new TransitionTable(new int[]{p[0], p[2], p[4], p[6], p[8]},
+              new int[]{p[1], p[3], p[5], p[7], p[9]});
+
+      for (int gear = 1; gear <= 5; gear++) {
+        for (int speed = table.getMinSpeed(); speed <= table.getMaxSpeed(); speed++) {
+          for (int action = 0; action < TransitionTable.ACTIONS; action++) {
+            Reference expected = new Reference(p);
+            expected.gear = gear;
+            expected.currentSpeed = speed;
+            expected.currentMessage = null;
+            expected.apply(action);
+
+            int entry = table.entry(gear, speed, action);
+            int status = TransitionTable.status(entry);
+            String message = status == TransitionTable.UNCHANGED ? null : MESSAGES[status];
+
+            assertEquals(expected.gear, gear + TransitionTable.gearChange(entry));
+            assertEquals(expected.currentSpeed, speed + TransitionTable.speedChange(entry));
+            assertEquals(expected.currentMessage, message);
+          }
+        }
+      }
+    }
+  }
+
+  // long random drives give the same gear, speed and status after every action
+  @Test
+  public void testRandomDrivesMatchReference() {
+    Random random = new Random(5004);
+    for (int[] p : PROFILES) {
+      Reference expected = new Reference(p);
+      ManualTransmission car = new RegularManualTransmission(p[0], p[1], p[2], p[3], p[4],
+              p[5], p[6], p[7], p[8], p[9]);
+
+      for (int i = 0; i < 20000; i++) {
+        int action = random.nextInt(TransitionTable.ACTIONS);
+        expected.apply(action);
+        apply(car, action);
+
+        assertEquals(expected.gear, car.getGear());
+        assertEquals(expected.currentSpeed, car.getSpeed());
+        assertEquals(expected.currentMessage, car.getStatus());
+      }
+    }
+  }
+
+  @Test
+  public void testWideRangesAreWorkedOutOnEveryCall() {
+    TransitionTable table = new TransitionTable(new int[]{0, 5, 15, 25, 35},
+            new int[]{10, 20, 30, 40, Integer.MAX_VALUE});
+
+    int entry = table.entry(5, Integer.MAX_VALUE, TransitionTable.INCREASE_SPEED);
+    assertEquals(7, TransitionTable.status(entry));
+    assertEquals(0, TransitionTable.speedChange(entry));
+
+    entry = table.entry(5, 1000000, TransitionTable.DECREASE_SPEED);
+    assertEquals(0, TransitionTable.status(entry));
+    assertEquals(-1, TransitionTable.speedChange(entry));
+  }
+
+  // an action beyond the four codes would read the entries of the next state
+  @Test
+  public void testUnknownAction() {
+    TransitionTable table = new TransitionTable(new int[]{0, 5, 15, 25, 35},
+            new int[]{10, 20, 30, 40, 50});
+    for (int action : new int[]{-1, TransitionTable.ACTIONS, 100}) {
+      try {
+        table.entry(2, 12, action);
+        fail("action " + action + " is not one of the four");
+      } catch (IllegalArgumentException e) {
+        // expected
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMismatchedRanges() {
+    new TransitionTable(new int[]{0, 5}, new int[]{10});
+  }
+}
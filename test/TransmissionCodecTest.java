@@ -0,0 +1,214 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import vehicle.GearProfile;
+import vehicle.ManualTransmission;
+import vehicle.RegularManualTransmission;
+import vehicle.ShiftPlanner;
+import vehicle.TransitionTable;
+import vehicle.TransmissionCodec;
+import vehicle.TransmissionState;
+import vehicle.TransmissionStatus;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests the compact binary format of transmission states.
+ */
+public class TransmissionCodecTest {
+
+  private GearProfile car;
+  private TransmissionCodec codec;
+
+  @Before
+  public void setup() {
+    this.car = GearProfile.of(new int[]{0, 5, 15, 25, 35}, new int[]{10, 20, 30, 40, 50});
+    this.codec = new TransmissionCodec(car);
+  }
+
+  private static RegularManualTransmission[] drive(GearProfile profile, int count, long seed) {
+    Random random = new Random(seed);
+    RegularManualTransmission[] cars = new RegularManualTransmission[count];
+    for (int i = 0; i < count; i++) {
+      cars[i] = new RegularManualTransmission(profile);
+      for (int step = random.nextInt(200); step > 0; step--) {
+        byte action = (byte) random.nextInt(TransitionTable.ACTIONS);
+        ShiftPlanner.execute(cars[i], new byte[]{action});
+      }
+    }
+    return cars;
+  }
+
+  private static void assertSameState(ManualTransmission expected, ManualTransmission actual) {
+    assertEquals(TransmissionState.of(expected), TransmissionState.of(actual));
+  }
+
+  @Test
+  public void testRecordBytes() {
+    assertEquals(2, codec.getRecordBytes());
+    assertEquals(9 + 40, codec.getHeaderBytes());
+    int[] lows = new int[18];
+    int[] highs = new int[18];
+    for (int i = 0; i < 18; i++) {
+      lows[i] = i * 500;
+      highs[i] = i * 500 + 800;
+    }
+    assertEquals(3, new TransmissionCodec(GearProfile.of(lows, highs)).getRecordBytes());
+  }
+
+  // every gear, speed and status of the profile comes back as it went in
+  @Test
+  public void testEveryStateRoundTrips() {
+    ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+    int states = 0;
+    for (int gear = 1; gear <= 5; gear++) {
+      for (int speed = 0; speed <= 50; speed++) {
+        for (TransmissionStatus status : TransmissionStatus.values()) {
+          codec.encode(new RegularManualTransmission(car,
+                  new TransmissionState(gear, speed, status)), buffer);
+          states++;
+        }
+      }
+    }
+    assertEquals(states * 2, buffer.position());
+
+    buffer.flip();
+    for (int gear = 1; gear <= 5; gear++) {
+      for (int speed = 0; speed <= 50; speed++) {
+        for (TransmissionStatus status : TransmissionStatus.values()) {
+          assertEquals(new TransmissionState(gear, speed, status),
+                  TransmissionState.of(codec.decode(buffer)));
+        }
+      }
+    }
+    assertEquals(0, buffer.remaining());
+  }
+
+  // a stream read back with its header gives the same transmissions, which go on to behave
+  // the same
+  @Test
+  public void testStreamRoundTrips() {
+    RegularManualTransmission[] cars = drive(car, 1000, 1);
+    ByteBuffer buffer = ByteBuffer.allocate(codec.getHeaderBytes() + 2000)
+            .order(ByteOrder.LITTLE_ENDIAN);
+    codec.writeHeader(buffer);
+    assertEquals(1000, codec.encode(cars, 0, cars.length, buffer));
+    assertEquals(0, buffer.remaining());
+
+    buffer.flip();
+    TransmissionCodec read = TransmissionCodec.readHeader(buffer);
+    assertSame(car, read.getProfile());
+    RegularManualTransmission[] copies = new RegularManualTransmission[1000];
+    assertEquals(1000, read.decode(buffer, copies, 0, 1000));
+    for (int i = 0; i < cars.length; i++) {
+      assertSameState(cars[i], copies[i]);
+      assertSameState(cars[i].increaseGear().increaseSpeed(), copies[i].increaseGear()
+              .increaseSpeed());
+    }
+  }
+
+  @Test
+  public void testPackedStatesRoundTrip() {
+    TransitionTable table = car.getTransitions();
+    long[] states = new long[500];
+    Random random = new Random(2);
+    long state = TransitionTable.state(1, 0, 0);
+    for (int i = 0; i < states.length; i++) {
+      state = table.next(state, random.nextInt(TransitionTable.ACTIONS));
+      states[i] = state;
+    }
+    ByteBuffer buffer = ByteBuffer.allocateDirect(1000);
+    assertEquals(500, codec.encodeStates(states, 0, 500, buffer));
+    buffer.flip();
+    long[] copies = new long[500];
+    assertEquals(500, codec.decodeStates(buffer, copies, 0, 500));
+    assertArrayEquals(states, copies);
+  }
+
+  // a bulk call stops at the end of the buffer and the rest goes in the next one
+  @Test
+  public void testPartialBuffers() {
+    RegularManualTransmission[] cars = drive(car, 10, 3);
+    ByteBuffer buffer = ByteBuffer.allocate(7);
+    assertEquals(3, codec.encode(cars, 0, 10, buffer));
+    assertEquals(6, buffer.position());
+    buffer.flip();
+    RegularManualTransmission[] copies = new RegularManualTransmission[10];
+    assertEquals(3, codec.decode(buffer, copies, 0, 10));
+    assertEquals(0, codec.decode(buffer, copies, 3, 7));
+    for (int i = 0; i < 3; i++) {
+      assertSameState(cars[i], copies[i]);
+    }
+  }
+
+  // transmissions of the same profile are put back in place, others are replaced
+  @Test
+  public void testDecodeReusesTransmissions() {
+    RegularManualTransmission[] cars = drive(car, 3, 4);
+    ByteBuffer buffer = ByteBuffer.allocate(6);
+    codec.encode(cars, 0, 3, buffer);
+    RegularManualTransmission truck = new RegularManualTransmission(GearProfile.of(
+            new int[]{0, 50}, new int[]{60, 100}));
+    RegularManualTransmission[] copies = {new RegularManualTransmission(car), truck, null};
+    RegularManualTransmission first = copies[0];
+
+    buffer.flip();
+    assertEquals(3, codec.decode(buffer, copies, 0, 3));
+    assertSame(first, copies[0]);
+    assertNotSame(truck, copies[1]);
+    for (int i = 0; i < 3; i++) {
+      assertSameState(cars[i], copies[i]);
+    }
+  }
+
+  @Test(expected = BufferOverflowException.class)
+  public void testEncodeIntoFullBuffer() {
+    codec.encode(new RegularManualTransmission(car), ByteBuffer.allocate(1));
+  }
+
+  @Test(expected = BufferUnderflowException.class)
+  public void testTruncatedHeader() {
+    ByteBuffer buffer = ByteBuffer.allocate(codec.getHeaderBytes());
+    codec.writeHeader(buffer);
+    buffer.flip().limit(buffer.limit() - 1);
+    TransmissionCodec.readHeader(buffer);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNotAHeader() {
+    TransmissionCodec.readHeader(ByteBuffer.allocate(64));
+  }
+
+  // gear 5 of a 5-gear car fits in 3 bits, which could also hold gear 8
+  @Test(expected = IllegalArgumentException.class)
+  public void testRecordOutsideRanges() {
+    codec.decode(ByteBuffer.wrap(new byte[]{0, 7 << 4}));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTransmissionOfOtherProfile() {
+    ManualTransmission truck = new RegularManualTransmission(GearProfile.of(
+            new int[]{0, 50}, new int[]{60, 100})).increaseSpeed(55);
+    codec.encode(truck, ByteBuffer.allocate(2));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRangesTooWide() {
+    new TransmissionCodec(GearProfile.of(new int[]{0, 5}, new int[]{10, Integer.MAX_VALUE}));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRestoreOutsideRanges() {
+    new RegularManualTransmission(car, new TransmissionState(6, 0,
+            TransmissionStatus.OK_EVERYTHING_IS_OK));
+  }
+}
@@ -0,0 +1,192 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import vehicle.GearProfile;
+import vehicle.ManualTransmission;
+import vehicle.RegularManualTransmission;
+import vehicle.TransitionTable;
+import vehicle.TransmissionStatus;
+import vehicle.fleet.TransmissionFleet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that a fleet of transmissions follows the same rules as RegularManualTransmission.
+ */
+public class TransmissionFleetTest {
+
+  private TransitionTable profile;
+  private TransmissionFleet fleet;
+
+  @Before
+  public void setup() {
+    this.profile = new TransitionTable(new int[]{0, 5, 15, 25, 35},
+            new int[]{10, 20, 30, 40, 50});
+    this.fleet = new TransmissionFleet(profile, 100);
+  }
+
+  private static void apply(ManualTransmission car, int action) {
+    switch (action) {
+      case TransitionTable.INCREASE_SPEED:
+        car.increaseSpeed();
+        break;
+      case TransitionTable.DECREASE_SPEED:
+        car.decreaseSpeed();
+        break;
+      case TransitionTable.INCREASE_GEAR:
+        car.increaseGear();
+        break;
+      default:
+        car.decreaseGear();
+        break;
+    }
+  }
+
+  @Test
+  public void testStartOfFleet() {
+    assertEquals(100, fleet.size());
+    for (int id = 0; id < fleet.size(); id++) {
+      assertEquals(1, fleet.getGear(id));
+      assertEquals(0, fleet.getSpeed(id));
+      assertSame(TransmissionStatus.OK_EVERYTHING_IS_OK, fleet.getStatusCode(id));
+    }
+  }
+
+  // random batches give every transmission the same state as its own RegularManualTransmission
+  @Test
+  public void testBatchesMatchRegularTransmissions() {
+    ManualTransmission[] cars = new ManualTransmission[fleet.size()];
+    for (int id = 0; id < cars.length; id++) {
+      cars[id] = new RegularManualTransmission(0, 10, 5, 20, 15, 30, 25, 40, 35, 50);
+    }
+
+    Random random = new Random(4);
+    for (int i = 0; i < 5000; i++) {
+      int[] ids = random.ints(random.nextInt(20), 0, fleet.size()).toArray();
+      int action = random.nextInt(TransitionTable.ACTIONS);
+      fleet.apply(ids, action);
+      for (int id : ids) {
+        apply(cars[id], action);
+      }
+    }
+
+    for (int id = 0; id < cars.length; id++) {
+      assertEquals(cars[id].getGear(), fleet.getGear(id));
+      assertEquals(cars[id].getSpeed(), fleet.getSpeed(id));
+      assertEquals(cars[id].getStatus(), fleet.getStatusCode(id).getMessage());
+    }
+  }
+
+  @Test
+  public void testNamedBatches() {
+    int[] ids = {3, 7};
+    for (int i = 0; i < 12; i++) {
+      fleet.increaseSpeed(ids);
+    }
+    assertEquals(10, fleet.getSpeed(3));
+    assertSame(TransmissionStatus.NO_INCREASE_SPEED, fleet.getStatusCode(7));
+
+    fleet.increaseGear(ids);
+    fleet.decreaseSpeed(ids);
+    assertEquals(2, fleet.getGear(3));
+    assertSame(TransmissionStatus.OK_DECREASE_GEAR, fleet.getStatusCode(7));
+
+    fleet.decreaseGear(ids);
+    assertEquals(1, fleet.getGear(7));
+    assertEquals(0, fleet.getSpeed(4));
+  }
+
+  private static void walk(TransmissionFleet fleet, long seed, int steps) {
+    Random random = new Random(seed);
+    for (int i = 0; i < steps; i++) {
+      fleet.apply(random.nextInt(fleet.size()), random.nextInt(TransitionTable.ACTIONS));
+    }
+  }
+
+  private static void assertShifts(TransmissionFleet fleet) {
+    BitSet up = fleet.mayIncreaseGear();
+    BitSet down = fleet.mayDecreaseGear();
+    for (int id = 0; id < fleet.size(); id++) {
+      int gear = fleet.getGear(id);
+      int speed = fleet.getSpeed(id);
+      TransitionTable table = fleet.getProfile();
+      assertEquals("up " + gear + "/" + speed, TransitionTable.gearChange(
+              table.entry(gear, speed, TransitionTable.INCREASE_GEAR)) == 1, up.get(id));
+      assertEquals("down " + gear + "/" + speed, TransitionTable.gearChange(
+              table.entry(gear, speed, TransitionTable.DECREASE_GEAR)) == -1, down.get(id));
+    }
+    assertTrue(up.length() <= fleet.size());
+  }
+
+  // the batch checks agree with the table, including the tail that does not fill a vector
+  @Test
+  public void testMayShiftMatchesTable() {
+    TransmissionFleet cars = new TransmissionFleet(profile, 1001);
+    walk(cars, 5, 400000);
+    assertShifts(cars);
+    assertTrue(cars.mayIncreaseGear().cardinality() > 0);
+    assertTrue(cars.mayDecreaseGear().cardinality() > 0);
+  }
+
+  // more gears than a vector has lanes, so their bounds are gathered from memory
+  @Test
+  public void testMayShiftWithManyGears() {
+    int[] lows = new int[18];
+    int[] highs = new int[18];
+    for (int i = 0; i < lows.length; i++) {
+      lows[i] = i * 10;
+      highs[i] = i * 10 + 25;
+    }
+    TransmissionFleet trucks = new TransmissionFleet(
+            GearProfile.of(lows, highs).getTransitions(), 777);
+    walk(trucks, 6, 1000000);
+    assertShifts(trucks);
+  }
+
+  // a fleet at rest may not shift, and may shift up once it reaches the lower speed of gear 2
+  @Test
+  public void testMayShiftAtRest() {
+    assertTrue(fleet.mayIncreaseGear().isEmpty());
+    assertTrue(fleet.mayDecreaseGear().isEmpty());
+    fleet.increaseSpeed(new int[]{3, 64});
+    fleet.increaseSpeed(new int[]{3, 64, 99});
+    fleet.increaseSpeed(new int[]{3, 64, 99});
+    fleet.increaseSpeed(new int[]{3, 64, 99});
+    fleet.increaseSpeed(new int[]{3, 64, 99});
+    assertEquals(BitSet.valueOf(new long[]{1L << 3, 1L}), fleet.mayIncreaseGear());
+  }
+
+  // a view changes the fleet it came from
+  @Test
+  public void testView() {
+    ManualTransmission car = fleet.view(42);
+    car.increaseSpeed(10);
+    car.increaseGear();
+
+    assertEquals(10, fleet.getSpeed(42));
+    assertEquals(2, fleet.getGear(42));
+    assertEquals("OK: everything is OK.", car.getStatus());
+    assertEquals(10, fleet.view(42).getSpeed());
+    assertEquals(0, fleet.getSpeed(41));
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testViewOutsideFleet() {
+    fleet.view(100);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSpeedsTooHighForFleet() {
+    new TransmissionFleet(new TransitionTable(new int[]{0, 5}, new int[]{10, 40000}), 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeSize() {
+    new TransmissionFleet(profile, -1);
+  }
+}
@@ -0,0 +1,241 @@
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import vehicle.ImmutableManualTransmission;
+import vehicle.ManualTransmission;
+import vehicle.RegularManualTransmission;
+import vehicle.TransitionTable;
+import vehicle.TransmissionState;
+import vehicle.journal.JournaledManualTransmission;
+import vehicle.journal.TransmissionJournal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests the journal of the commands done on transmissions.
+ */
+public class TransmissionJournalTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private TransitionTable profile;
+  private Path directory;
+
+  @Before
+  public void setup() {
+    this.profile = new TransitionTable(new int[]{0, 5, 15, 25, 35},
+            new int[]{10, 20, 30, 40, 50});
+    this.directory = folder.getRoot().toPath().resolve("journal");
+  }
+
+  private ManualTransmission car() {
+    return new RegularManualTransmission(0, 10, 5, 20, 15, 30, 25, 40, 35, 50);
+  }
+
+  // drives every car with random commands, including the ones that change the speed in bulk
+  private static void drive(ManualTransmission[] cars, Random random, int commands) {
+    for (int i = 0; i < commands; i++) {
+      int id = random.nextInt(cars.length);
+      switch (random.nextInt(7)) {
+        case 0:
+          cars[id] = cars[id].increaseSpeed();
+          break;
+        case 1:
+          cars[id] = cars[id].decreaseSpeed();
+          break;
+        case 2:
+          cars[id] = cars[id].increaseGear();
+          break;
+        case 3:
+          cars[id] = cars[id].decreaseGear();
+          break;
+        case 4:
+          cars[id] = cars[id].increaseSpeed(random.nextInt(20));
+          break;
+        case 5:
+          cars[id] = cars[id].decreaseSpeed(random.nextInt(20));
+          break;
+        default:
+          cars[id] = cars[id].setSpeedClamped(random.nextInt(60) - 5);
+          break;
+      }
+    }
+  }
+
+  private static JournaledManualTransmission[] attach(TransmissionJournal journal,
+                                                      ManualTransmission[] cars) {
+    JournaledManualTransmission[] journaled = new JournaledManualTransmission[cars.length];
+    for (int id = 0; id < cars.length; id++) {
+      journaled[id] = journal.attach(id, cars[id]);
+    }
+    return journaled;
+  }
+
+  @Test
+  public void testFollowsTransmissions() throws IOException {
+    ManualTransmission[] cars = new ManualTransmission[20];
+    for (int id = 0; id < cars.length; id++) {
+      cars[id] = car();
+    }
+    try (TransmissionJournal journal = TransmissionJournal.open(directory, profile, 100)) {
+      ManualTransmission[] journaled = attach(journal, cars);
+      drive(journaled, new Random(3), 5000);
+
+      for (int id = 0; id < cars.length; id++) {
+        assertEquals(TransmissionState.of(cars[id]), journal.getState(id));
+        assertEquals(TransmissionState.of(cars[id]), journal.replay(id));
+      }
+    }
+  }
+
+  // a transmission that returns a new instance for every action is followed as well
+  @Test
+  public void testFollowsImmutableTransmissions() throws IOException {
+    ManualTransmission[] cars = new ManualTransmission[5];
+    for (int id = 0; id < cars.length; id++) {
+      cars[id] = ImmutableManualTransmission.start(profile);
+    }
+    try (TransmissionJournal journal = TransmissionJournal.open(directory, profile, 7)) {
+      JournaledManualTransmission[] journaled = attach(journal, cars);
+      ManualTransmission[] drivers = journaled.clone();
+      drive(drivers, new Random(11), 2000);
+
+      for (int id = 0; id < cars.length; id++) {
+        assertSame(journaled[id], drivers[id]);
+        assertEquals(TransmissionState.of(journaled[id]), journal.replay(id));
+      }
+    }
+  }
+
+  @Test
+  public void testReopen() throws IOException {
+    ManualTransmission[] cars = new ManualTransmission[50];
+    for (int id = 0; id < cars.length; id++) {
+      cars[id] = car();
+    }
+    try (TransmissionJournal journal = TransmissionJournal.open(directory, profile, 1000)) {
+      drive(attach(journal, cars), new Random(17), 20000);
+    }
+
+    try (TransmissionJournal journal = TransmissionJournal.open(directory, profile, 1000)) {
+      for (int id = 0; id < cars.length; id++) {
+        assertEquals(TransmissionState.of(cars[id]), journal.getState(id));
+        assertEquals(TransmissionState.of(cars[id]), journal.replay(id));
+      }
+    }
+  }
+
+  // a crash in the middle of a record or of a snapshot loses nothing that was flushed before
+  @Test
+  public void testTornWrites() throws IOException {
+    ManualTransmission[] cars = new ManualTransmission[10];
+    for (int id = 0; id < cars.length; id++) {
+      cars[id] = car();
+    }
+    try (TransmissionJournal journal = TransmissionJournal.open(directory, profile, 64)) {
+      drive(attach(journal, cars), new Random(23), 3000);
+      journal.flush();
+    }
+
+    try (FileChannel log = FileChannel.open(directory.resolve("transmissions.log"),
+            StandardOpenOption.APPEND);
+         FileChannel snapshots = FileChannel.open(directory.resolve("transmissions.snapshot"),
+                 StandardOpenOption.APPEND)) {
+      log.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 1, 2}));
+      snapshots.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 3, 0, 0, 0, 1, 0, 1, 0}));
+    }
+
+    try (TransmissionJournal journal = TransmissionJournal.open(directory, profile, 64)) {
+      assertEquals(0, Files.size(directory.resolve("transmissions.log")) % 12);
+      for (int id = 0; id < cars.length; id++) {
+        assertEquals(TransmissionState.of(cars[id]), journal.getState(id));
+        assertEquals(TransmissionState.of(cars[id]), journal.replay(id));
+      }
+    }
+  }
+
+  // however many snapshots were taken, the file only holds the latest one
+  @Test
+  public void testKeepsLatestSnapshot() throws IOException {
+    ManualTransmission[] cars = new ManualTransmission[30];
+    for (int id = 0; id < cars.length; id++) {
+      cars[id] = car();
+    }
+    Path snapshots = directory.resolve("transmissions.snapshot");
+    try (TransmissionJournal journal = TransmissionJournal.open(directory, profile, 10)) {
+      drive(attach(journal, cars), new Random(29), 5000);
+      journal.snapshot();
+      assertEquals(4 + cars.length * 12 + 12, Files.size(snapshots));
+      try (FileChannel file = FileChannel.open(snapshots, StandardOpenOption.READ)) {
+        ByteBuffer trailer = ByteBuffer.allocate(12);
+        file.read(trailer, file.size() - 12);
+        assertEquals(Files.size(directory.resolve("transmissions.log")), trailer.getLong(0));
+      }
+    }
+    assertFalse(Files.exists(directory.resolve("transmissions.snapshot.tmp")));
+
+    try (TransmissionJournal journal = TransmissionJournal.open(directory, profile, 10)) {
+      for (int id = 0; id < cars.length; id++) {
+        assertEquals(TransmissionState.of(cars[id]), journal.replay(id));
+      }
+    }
+  }
+
+  // a snapshot of more vehicles than are written or read at once
+  @Test
+  public void testSnapshotInChunks() throws IOException {
+    ManualTransmission[] cars = new ManualTransmission[10000];
+    for (int id = 0; id < cars.length; id++) {
+      cars[id] = car();
+    }
+    try (TransmissionJournal journal = TransmissionJournal.open(directory, profile, 1000000)) {
+      drive(attach(journal, cars), new Random(31), 30000);
+      journal.snapshot();
+    }
+
+    // the log is emptied and the snapshot made to cover none of it, so every state comes
+    // from the snapshot
+    try (FileChannel log = FileChannel.open(directory.resolve("transmissions.log"),
+            StandardOpenOption.WRITE)) {
+      log.truncate(0);
+    }
+    try (FileChannel file = FileChannel.open(directory.resolve("transmissions.snapshot"),
+            StandardOpenOption.WRITE)) {
+      ByteBuffer trailer = ByteBuffer.allocate(8).putLong(0, 0);
+      file.write(trailer, file.size() - 12);
+    }
+    try (TransmissionJournal journal = TransmissionJournal.open(directory, profile, 1000000)) {
+      for (int id = 0; id < cars.length; id++) {
+        assertEquals(TransmissionState.of(cars[id]), journal.getState(id));
+      }
+      assertEquals(TransmissionState.of(cars[9999]), journal.replay(9999));
+      assertEquals(TransmissionState.of(cars[4242]), journal.replay(4242));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownVehicle() throws IOException {
+    try (TransmissionJournal journal = TransmissionJournal.open(directory, profile, 10)) {
+      journal.attach(0, car());
+      journal.replay(1);
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoSnapshots() throws IOException {
+    TransmissionJournal.open(directory, profile, 0);
+  }
+}
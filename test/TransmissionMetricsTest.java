@@ -0,0 +1,176 @@
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import javax.management.Attribute;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+
+import vehicle.ImmutableManualTransmission;
+import vehicle.ManualTransmission;
+import vehicle.RegularManualTransmission;
+import vehicle.TransmissionStatus;
+import vehicle.metrics.JmxMetricsSink;
+import vehicle.metrics.LatencySnapshot;
+import vehicle.metrics.MetricsSnapshot;
+import vehicle.metrics.TransmissionMetrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the counters of the calls made on transmissions.
+ */
+public class TransmissionMetricsTest {
+
+  private TransmissionMetrics metrics;
+
+  @Before
+  public void setup() {
+    this.metrics = new TransmissionMetrics();
+  }
+
+  private static ManualTransmission car() {
+    return new RegularManualTransmission(0, 10, 5, 20, 15, 30, 25, 40, 35, 50);
+  }
+
+  @Test
+  public void testCounts() {
+    ManualTransmission car = metrics.wrap(car());
+    car.decreaseSpeed();
+    car.decreaseGear();
+    car.increaseSpeed();
+    car.increaseSpeed();
+    car.increaseGear();
+    car.increaseSpeed(100);
+    car.setSpeedClamped(0);
+
+    MetricsSnapshot snapshot = metrics.snapshot();
+    assertEquals(7, snapshot.getTotal());
+    assertEquals(1, snapshot.getCount(TransmissionMetrics.DECREASE_SPEED,
+            TransmissionStatus.NO_DECREASE_SPEED_MIN));
+    assertEquals(1, snapshot.getCount(TransmissionMetrics.DECREASE_GEAR,
+            TransmissionStatus.NO_DECREASE_GEAR_MIN));
+    assertEquals(2, snapshot.getCount(TransmissionMetrics.INCREASE_SPEED));
+    assertEquals(1, snapshot.getCount(TransmissionMetrics.INCREASE_GEAR,
+            TransmissionStatus.NO_INCREASE_GEAR));
+    assertEquals(1, snapshot.getCount(TransmissionMetrics.INCREASE_SPEED_BY,
+            TransmissionStatus.NO_INCREASE_SPEED));
+    assertEquals(1, snapshot.getCount(TransmissionMetrics.SET_SPEED_CLAMPED));
+    assertEquals(0, snapshot.getLatency(TransmissionMetrics.INCREASE_SPEED).getCount());
+  }
+
+  // the counts match the statuses of the same drive without metrics, for either kind of
+  // transmission
+  @Test
+  public void testMatchesDrive() {
+    ManualTransmission plain = car();
+    ManualTransmission metered = metrics.wrap(ImmutableManualTransmission.start(0, 10, 5, 20,
+            15, 30, 25, 40, 35, 50));
+    long[] expected = new long[TransmissionStatus.values().length];
+    Random random = new Random(37);
+    for (int i = 0; i < 10000; i++) {
+      int action = random.nextInt(4);
+      for (ManualTransmission car : new ManualTransmission[]{plain, metered}) {
+        switch (action) {
+          case 0:
+            car.increaseSpeed();
+            break;
+          case 1:
+            car.decreaseSpeed();
+            break;
+          case 2:
+            car.increaseGear();
+            break;
+          default:
+            car.decreaseGear();
+            break;
+        }
+      }
+      expected[plain.getStatusCode().ordinal()]++;
+      assertSame(plain.getStatusCode(), metered.getStatusCode());
+    }
+
+    MetricsSnapshot snapshot = metrics.snapshot();
+    for (TransmissionStatus status : TransmissionStatus.values()) {
+      assertEquals(expected[status.ordinal()], snapshot.getCount(status));
+    }
+  }
+
+  @Test
+  public void testDisabled() {
+    ManualTransmission car = metrics.wrap(car());
+    metrics.setEnabled(false);
+    car.increaseSpeed();
+    car.increaseGear();
+    assertEquals(0, metrics.snapshot().getTotal());
+    assertEquals(1, car.getSpeed());
+
+    metrics.setEnabled(true);
+    car.increaseSpeed();
+    assertEquals(1, metrics.snapshot().getTotal());
+    metrics.reset();
+    assertEquals(0, metrics.snapshot().getTotal());
+  }
+
+  @Test
+  public void testLatencies() {
+    metrics.setTimed(true);
+    ManualTransmission car = metrics.wrap(car());
+    for (int i = 0; i < 1000; i++) {
+      car.increaseSpeed();
+      car.decreaseSpeed();
+    }
+    LatencySnapshot latency = metrics.snapshot().getLatency(TransmissionMetrics.INCREASE_SPEED);
+    assertEquals(1000, latency.getCount());
+    assertTrue(latency.getPercentile(0) <= latency.getPercentile(50));
+    assertTrue(latency.getPercentile(50) <= latency.getPercentile(99));
+    assertTrue(latency.getPercentile(99) <= latency.getMax());
+    assertTrue(latency.getMean() <= latency.getMax());
+    assertEquals(0, metrics.snapshot().getLatency(TransmissionMetrics.INCREASE_GEAR).getMax());
+  }
+
+  @Test
+  public void testSinks() {
+    MetricsSnapshot[] published = new MetricsSnapshot[1];
+    metrics.addSink(snapshot -> published[0] = snapshot);
+    metrics.wrap(car()).increaseSpeed();
+    assertSame(metrics.publish(), published[0]);
+    assertEquals(1, published[0].getTotal());
+  }
+
+  @Test
+  public void testJmx() throws JMException {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName("vehicle:type=TransmissionMetrics,name=test");
+    try (JmxMetricsSink sink = new JmxMetricsSink(metrics, name)) {
+      ManualTransmission car = metrics.wrap(car());
+      car.decreaseSpeed();
+      car.decreaseSpeed();
+      assertEquals(0L, server.getAttribute(name, "Total"));
+
+      metrics.publish();
+      assertEquals(2L, server.getAttribute(name, "Total"));
+      TabularData counts = (TabularData) server.getAttribute(name, "StatusCounts");
+      assertEquals(1, counts.size());
+      assertEquals(2L, counts.get(new Object[]{"decreaseSpeed NO_DECREASE_SPEED_MIN"})
+              .get("value"));
+
+      server.setAttribute(name, new Attribute("Enabled", false));
+      assertFalse(metrics.isEnabled());
+      assertFalse(sink.isEnabled());
+    }
+    assertFalse(server.isRegistered(name));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownOperation() {
+    metrics.snapshot().getCount(TransmissionMetrics.OPERATIONS);
+  }
+}